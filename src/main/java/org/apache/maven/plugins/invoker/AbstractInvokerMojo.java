@@ -29,6 +29,7 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -49,8 +50,13 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.execution.MavenSession;
@@ -119,6 +125,11 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
      */
     private static final int RESULT_COLUMN = 60;
 
+    /**
+     * The directory below {@link #cloneProjectsTo} where projects are cloned for their speculative execution.
+     */
+    private static final String SPECULATIVE_DIRECTORY = ".invoker-speculative";
+
     /**
      * Flag used to suppress certain invocations. This is useful in tailoring the build using profiles.
      *
@@ -602,6 +613,31 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
      * # Since plugin version 3.2.1
      * invoker.ordinal = 3
      *
+     * # A comma separated list of projects, relative to projectsDirectory, which must be finished before this one
+     * # is started. The project is skipped if one of them fails. When set, invoker.ordinal of other projects
+     * # is not taken into account for this project. Projects which are not selected are ignored with a warning.
+     * # Since plugin version 3.10.2
+     * invoker.dependsOn = project-a, group/project-b
+     *
+     * # The heap in MB reserved for this project when parallelMemoryBudget is set, by default the largest -Xmx
+     * # of the invocations and .mvn/jvm.config is used. Units like 2g are accepted.
+     * # Since plugin version 3.10.2
+     * invoker.memoryBudget = 1024
+     *
+     * # A comma separated list of names of resources, like a port or a directory, used exclusively by this project.
+     * # Projects locking the same resource are never executed at the same time in parallel mode.
+     * # Since plugin version 3.10.2
+     * invoker.locks = port-8080, shared-dir
+     *
+     * # Whether this project is always executed, also when it does not fit into the timeBudget, false by default
+     * # Since plugin version 3.10.2
+     * invoker.mandatory = true
+     *
+     * # The number of parallelThreads slots occupied by this project while it is running, by default the largest
+     * # number of threads given by -T in invoker.goals or .mvn/maven.config
+     * # Since plugin version 3.10.2
+     * invoker.slots = 4
+     *
      * # The additional value for the environment variable.
      * # Since plugin version 3.2.2
      * invoker.environmentVariables.&lt;variableName&gt; = variableValue
@@ -633,13 +669,251 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
      * When terminated with "C", the number part is multiplied by the number of processors (cores) available
      * to the Java virtual machine. Floating point value are only accepted together with "C".</p>
      *
-     * <p>Example values: "1.5C", "4"</p>
+     * <p>With the value "auto" the number of maven forked process is adjusted during the run between
+     * {@link #parallelThreadsMin} and {@link #parallelThreadsMax}, depending on the system load and available
+     * memory.</p>
+     *
+     * <p>Example values: "1.5C", "4", "auto"</p>
      *
      * @since 1.6
      */
     @Parameter(property = "invoker.parallelThreads", defaultValue = "1")
     private String parallelThreads;
 
+    /**
+     * Run the projects in parallel on virtual threads instead of platform threads, which reduces the number of threads
+     * mostly waiting for the maven forked process. The number of maven forked process in parallel is still limited by
+     * {@link #parallelThreads}. Requires Java 21 or later, on older Java versions platform threads are used.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.useVirtualThreads", defaultValue = "false")
+    private boolean useVirtualThreads;
+
+    /**
+     * Number of threads for running setup projects in parallel, accepts the same values as {@link #parallelThreads}.
+     * Setup projects are always finished before other projects are started.
+     *
+     * <p>If not set, setup projects are run in a single thread - unless one of them declares
+     * <code>invoker.dependsOn</code> in its invoker properties, then {@link #parallelThreads} is used.</p>
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.setupParallelThreads")
+    private String setupParallelThreads;
+
+    /**
+     * The minimal number of maven forked process in parallel when {@link #parallelThreads} is "auto".
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.parallelThreadsMin", defaultValue = "1")
+    private int parallelThreadsMin;
+
+    /**
+     * The maximal number of maven forked process in parallel when {@link #parallelThreads} is "auto". Accepts the
+     * same values as {@link #parallelThreads}.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.parallelThreadsMax", defaultValue = "1C")
+    private String parallelThreadsMax;
+
+    /**
+     * The memory in MB which should stay available when {@link #parallelThreads} is "auto". If less memory is
+     * available, fewer maven forked process are run in parallel.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.parallelThreadsMinFreeMemory", defaultValue = "1024")
+    private long parallelThreadsMinFreeMemory;
+
+    /**
+     * The total heap in MB of all maven forked process running in parallel. A project is only started when its heap
+     * fits into the part of the budget not used by already running projects, a project with a heap larger than the
+     * whole budget is run alone.
+     * <p>
+     * The heap of a project is taken from <code>invoker.memoryBudget</code> in its invoker properties, or else from
+     * the largest <code>-Xmx</code> of its <code>invoker.mavenOpts</code>, {@link #mavenOpts} and
+     * <code>.mvn/jvm.config</code>. If not set to a value greater than zero, the heap is not taken into account.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.parallelMemoryBudget", defaultValue = "0")
+    private int parallelMemoryBudget;
+
+    /**
+     * The heap in MB assumed for projects without <code>-Xmx</code> when {@link #parallelMemoryBudget} is set.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.parallelJobMemory", defaultValue = "0")
+    private int parallelJobMemory;
+
+    /**
+     * Derive the maximal heap of the forked Maven processes from the physical memory, so the processes running at the
+     * same time neither exceed it nor get needlessly small heaps. The memory left after {@link #autoMaxHeapReserve}
+     * is divided by the number of projects running at the same time, {@link #hostParallelThreads} if set, else
+     * {@link #parallelThreads}, and three quarters of it are added as <code>-Xmx</code> to the
+     * <code>MAVEN_OPTS</code>. On Linux the memory limit of a container is taken into account.
+     * <p>
+     * Invocations with an <code>-Xmx</code> in {@link #mavenOpts}, <code>invoker.mavenOpts</code> or the
+     * <code>.mvn/jvm.config</code> of the project keep it.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.autoMaxHeap", defaultValue = "false")
+    private boolean autoMaxHeap;
+
+    /**
+     * The memory in MB kept free for this Maven process and the system when {@link #autoMaxHeap} is enabled.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.autoMaxHeapReserve", defaultValue = "2048")
+    private int autoMaxHeapReserve;
+
+    /**
+     * Pin the forked Maven processes to disjoint sets of processors on Linux when projects are executed in parallel.
+     * The processors available to this Maven process are split into one set for each of the {@link #parallelThreads},
+     * each project runs its Maven processes through <code>taskset</code> on the set of its thread and with a matching
+     * <code>-XX:ActiveProcessorCount</code> in the <code>MAVEN_OPTS</code>, unless already set there. The JIT
+     * compiler and garbage collector threads of the processes then don't compete for the same processors.
+     * <p>
+     * Requires <code>taskset</code> and a Java version of the forked processes supporting
+     * <code>-XX:ActiveProcessorCount</code>, i.e. Java 8u191 or later. On other systems a warning is logged.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.cpuAffinity", defaultValue = "false")
+    private boolean cpuAffinity;
+
+    /**
+     * Run the Maven invocations of the projects inside this JVM instead of forking a new Maven process for each, which
+     * saves the startup of the JVM and the warm up of the JIT compiler. Each invocation loads Maven from the
+     * {@link #mavenHome} into a new class world configured by its <code>bin/m2.conf</code>, and gets the same command
+     * line as a forked Maven process.
+     * <p>
+     * Invocations which need a separate process are forked anyway: with a {@link #javaHome} or toolchain other than
+     * the Java of this Maven process, a {@link #mavenExecutable}, <code>MAVEN_OPTS</code>, a timeout, environment
+     * variables, or a <code>.mvn/jvm.config</code> in the project. Projects can opt out with
+     * <code>invoker.embedded = false</code> in their invoker properties, e.g. when their build resolves relative files
+     * against the working directory of the process, which stays the one of this Maven process.
+     * <p>
+     * The Maven command line changes system properties and the standard streams of the JVM, so embedded invocations
+     * run one at a time. Embedding can not be combined with {@link #parallelThreads} or {@link #setupParallelThreads}
+     * above 1, {@link #autoMaxHeap} or {@link #cpuAffinity}, use a {@link #workerPool} instead. The reason for each
+     * forked invocation is logged. Requires Maven 3.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.embedded", defaultValue = "false")
+    private boolean embedded;
+
+    /**
+     * Run the Maven invocations of the projects in a pool of long-lived Maven worker JVMs started by this plugin,
+     * which keep the Maven core loaded and compiled by the JIT compiler from one invocation to the next, the plugins
+     * are still loaded by each invocation. Each worker loads Maven once from the {@link #mavenHome} and gets the same
+     * command line as a forked Maven process for each invocation, its output is written to the <code>build.log</code>
+     * of the project.
+     * <p>
+     * A worker is started with the Java home, <code>.mvn/jvm.config</code>, <code>MAVEN_OPTS</code> and environment
+     * variables of the invocation which needs it, and is only reused by invocations with the same ones. Invocations
+     * with a {@link #mavenExecutable} or a timeout are forked. With {@link #embedded}, only invocations which can't be
+     * embedded run in a worker.
+     * <p>
+     * The working directory of the project is only passed to Maven as <code>user.dir</code>, the worker process keeps
+     * its own. Projects whose build resolves relative files against the working directory of the process, e.g. with
+     * a plugin forking a process without setting its directory, opt out with <code>invoker.workerPool = false</code>
+     * in their invoker properties.
+     * <p>
+     * Workers are recycled after {@link #workerMaxBuilds} invocations or when the heap used after an invocation exceeds
+     * {@link #workerMaxHeapUsage}. Requires Maven 3.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.workerPool", defaultValue = "false")
+    private boolean workerPool;
+
+    /**
+     * The number of invocations after which a worker of the {@link #workerPool} is replaced by a new one.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.workerMaxBuilds", defaultValue = "100")
+    private int workerMaxBuilds;
+
+    /**
+     * The heap in MB used by a worker of the {@link #workerPool} after an invocation, above which the worker is
+     * replaced by a new one. If not set to a value greater than zero, the heap is not taken into account.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.workerMaxHeapUsage", defaultValue = "1024")
+    private int workerMaxHeapUsage;
+
+    /**
+     * Start the forked Maven processes with <code>java</code> directly instead of the <code>bin/mvn</code> script of
+     * the {@link #mavenHome}, which starts further processes before Maven itself. The command line of the script is
+     * resolved once: the classworlds launcher and its configuration <code>bin/m2.conf</code>, and whether the Java
+     * supports <code>--enable-native-access</code>. For each invocation the <code>.mvn/jvm.config</code> of the
+     * project, <code>MAVEN_OPTS</code>, <code>MAVEN_DEBUG_OPTS</code> and <code>MAVEN_ARGS</code> are applied like the
+     * script does.
+     * <p>
+     * Invocations with a {@link #mavenExecutable}, e.g. a Maven wrapper, are started by that executable, as are all
+     * invocations with {@link #cpuAffinity}. Requires Maven 3.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.directLaunch", defaultValue = "false")
+    private boolean directLaunch;
+
+    /**
+     * Share the classes loaded by the forked Maven processes through a dynamic AppCDS archive per Java home, written
+     * to <code>target/invoker-cds</code>. The first invocation with a Java home, i.e. usually a setup project, writes
+     * the archive at its exit with <code>-XX:ArchiveClassesAtExit</code>, later invocations get
+     * <code>-XX:SharedArchiveFile</code> added to their <code>MAVEN_OPTS</code>. The name of an archive is derived from
+     * the files of the {@link #mavenHome} and the Java runtime, so a new archive is written when one of them changes.
+     * <p>
+     * Requires Java 13 or later in the Maven processes, other Java homes are ignored, as are invocations whose
+     * <code>MAVEN_OPTS</code> or <code>.mvn/jvm.config</code> already configure class data sharing. Invocations run
+     * inside this JVM with {@link #embedded} or by a {@link #workerPool} do not use the archive.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.appCds", defaultValue = "false")
+    private boolean appCds;
+
+    /**
+     * Run compatible projects together as modules of a generated aggregator POM with <code>--fail-at-end</code>, so
+     * they share the startup of Maven and the loading of their plugins. Projects are compatible if their Maven command
+     * lines are equal apart from the POM, i.e. goals, profiles, properties and settings, and they use the same
+     * <code>MAVEN_OPTS</code>, Java home and environment variables.
+     * <p>
+     * Only projects with a single invocation expected to succeed are batched, without selector or pre-build scripts,
+     * without modules, without configuration in <code>.mvn</code> and without dependencies, locks or ordinals which
+     * order them. Post-build scripts run for each project after the batch. The output of a batch is split into the
+     * <code>build.log</code> of each project, with the start and the reactor summary of the batch. Projects which did
+     * not succeed in a batch are restored and run on their own, all projects of a failed batch whose output does not
+     * account for every project as well. Each batch is dispatched as one job among the other projects, so it keeps to
+     * the limits of the parallel projects and runs like a project, its projects are started after it. The aggregator
+     * POMs and their complete logs are written to <code>target/invoker-batches</code>. A project opts out with
+     * <code>invoker.batch = false</code> in its <code>invoker.properties</code>. Requires Maven 3.6 or later, not
+     * supported together with {@link #portRangeBase}.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.batch", defaultValue = "false")
+    private boolean batch;
+
+    /**
+     * The maximal number of projects run together by {@link #batch}.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.batchMaxProjects", defaultValue = "20")
+    private int batchMaxProjects;
+
     /**
      * If enablef and if you have a settings file configured for the execution, it will be merged
      * with your user settings.
@@ -665,6 +939,30 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
     @Parameter
     private Map<String, String> scriptVariables;
 
+    /**
+     * The first port of the port ranges given to projects. Projects running in parallel get disjoint ranges of
+     * {@link #portRangeSize} ports, so they can start servers without port clashes. The range of a project is passed
+     * <ul>
+     * <li>to the Maven invocations as user properties <code>invoker.port.base</code> and
+     * <code>invoker.port.count</code>,</li>
+     * <li>to the hook scripts as variables <code>portBase</code> and <code>portCount</code>,</li>
+     * <li>to the environment as <code>INVOKER_PORT_BASE</code> and <code>INVOKER_PORT_COUNT</code>.</li>
+     * </ul>
+     * If not set to a value greater than zero, no port range is given.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.portRangeBase", defaultValue = "0")
+    private int portRangeBase;
+
+    /**
+     * The number of ports in the range given to each project, see {@link #portRangeBase}.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.portRangeSize", defaultValue = "100")
+    private int portRangeSize;
+
     /**
      * The timeout to apply to tests. Any tests taking longer than this time will be aborted and
      * the test will be flagged as having failed.
@@ -723,13 +1021,179 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
     private List<String> collectedProjects;
 
     /**
-     * Specifies the number of times a failed execution should be retried.
+     * Specifies the number of times a failed execution should be retried. A failed project is queued again right
+     * away, so it is retried while other projects are still running.
      *
      * @since 3.10.0
      */
     @Parameter(defaultValue = "0", property = "invoker.rerunFailingTestsCount")
     private int rerunFailingTestsCount;
 
+    /**
+     * Rerun a failed project with several invocations, see <code>invoker.goals.1</code>, starting from the invocation
+     * which failed instead of the first one. The project directory is copied after each successful invocation, and
+     * restored from that copy before the rerun. The pre-build and post-build hook scripts of the rerun invocations
+     * and the post-build hook script of the project are run again, the pre-build hook script of the project is not.
+     * Takes effect only when {@link #rerunFailingTestsCount} is greater than <code>0</code> and the projects are
+     * cloned to {@link #cloneProjectsTo}, so the projects in {@link #projectsDirectory} are never restored.
+     * <p>
+     * The copies are kept in <code>target/invoker-snapshots</code> while a project is running, one per running
+     * project with several invocations. This needs as much additional disk space as these projects, including
+     * everything their invocations wrote to their directories.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(defaultValue = "false", property = "invoker.rerunFromFailedInvocation")
+    private boolean rerunFromFailedInvocation;
+
+    /**
+     * Stop running projects after {@link #failFastThreshold} projects failed. Projects not started yet are skipped,
+     * the Maven processes of running projects are stopped and those projects are skipped as well. A project counts as
+     * failed when its reruns given by {@link #rerunFailingTestsCount} failed as well.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(defaultValue = "false", property = "invoker.failFast")
+    private boolean failFast;
+
+    /**
+     * The number of failed projects after which the run is stopped when {@link #failFast} is enabled.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(defaultValue = "1", property = "invoker.failFastThreshold")
+    private int failFastThreshold;
+
+    /**
+     * Start a second execution of a project which runs much longer than recorded before, e.g. because of a slow
+     * agent, in parallel mode when no other project is waiting and threads are free. The second execution runs in a
+     * fresh clone of the project, next to copies of its parent projects and ancestor directories as prepared in
+     * {@link #cloneProjectsTo}. The execution which succeeds first gives the result, the Maven process of the other
+     * one is stopped, and its result is kept in the build report as superseded execution.
+     * <p>
+     * A project runs much longer than recorded before when it exceeds the 95th percentile of its durations recorded
+     * in {@link #historyFile} multiplied by {@link #speculativeExecutionFactor}. Requires {@link #cloneProjectsTo},
+     * projects with {@code invoker.locks} are never executed twice.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(defaultValue = "false", property = "invoker.speculativeExecution")
+    private boolean speculativeExecution;
+
+    /**
+     * How many times longer than the 95th percentile of its recorded durations a project has to run before a second
+     * execution is started by {@link #speculativeExecution}.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(defaultValue = "1.5", property = "invoker.speculativeExecutionFactor")
+    private float speculativeExecutionFactor;
+
+    /**
+     * A file where the durations of the build jobs are recorded after each run. The durations recorded there, or the
+     * durations from the build reports of the previous run, are used to start the longest build jobs first, so a
+     * parallel run is not prolonged by a long build job started at its end.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.historyFile")
+    private File historyFile;
+
+    /**
+     * The number of shards the projects are split into, e.g. to run them on several CI nodes. Each node runs the
+     * shard given by {@link #shardIndex}. Setup projects are run in every shard.
+     * <p>
+     * The shards are balanced by the durations recorded in {@link #historyFile}, which should be the same file on
+     * all nodes - the build reports of previous runs are not used then, as they can differ between nodes. Projects
+     * connected by <code>invoker.dependsOn</code> are in the same shard.
+     * <p>
+     * Each shard writes the list of its projects to <code>invoker-shard-&lt;index&gt;-of-&lt;count&gt;.txt</code>
+     * in {@link #reportsDirectory}.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.shardCount", defaultValue = "1")
+    private int shardCount;
+
+    /**
+     * The shard to run, between <code>1</code> and {@link #shardCount}.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.shardIndex", defaultValue = "1")
+    private int shardIndex;
+
+    /**
+     * The estimated duration in seconds of build jobs without a recorded duration. If not set, the average of the
+     * recorded durations is used.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.defaultJobDuration")
+    private Float defaultJobDuration;
+
+    /**
+     * Start the projects which failed or ended with an error in the previous run before the other projects, for a fast
+     * verdict on a fix. The failed projects are read from the build reports of the previous run in
+     * {@link #reportsDirectory}, so they must not be deleted before, e.g. by <code>mvn clean</code>. Projects with
+     * a higher <code>invoker.ordinal</code> are still started before them.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.runFailedFirst", defaultValue = "false")
+    private boolean runFailedFirst;
+
+    /**
+     * The time the projects may take, like <code>90s</code>, <code>10m</code> or <code>1h30m</code>. If set, only
+     * the projects expected to fit into the time budget are run, chosen and started by the failures they are expected
+     * to find per second, based on the durations and failures recorded in {@link #historyFile} and the build reports
+     * of the previous run. The other projects are skipped with reason "time budget". Once the time budget is used up,
+     * no more projects are started.
+     * <p>
+     * Setup projects, projects with <code>invoker.mandatory = true</code> in their invoker properties and the projects
+     * they depend on are always run. The time of setup projects counts towards the budget.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.timeBudget")
+    private String timeBudget;
+
+    /**
+     * Share the {@link #parallelThreads} with all executions of the plugin in the same Maven session, e.g. with the
+     * other modules of a reactor built with <code>-T</code>. Each running project takes its threads from one pool of
+     * the session, sized by the <code>parallelThreads</code> of the first execution using the pool, so the total
+     * number of projects running at the same time is limited. Build reports are still written per module.
+     * <p>
+     * The worker index of a running project is taken from the pool as well, so the port ranges of
+     * {@link #portRangeBase} and the processor sets of {@link #cpuAffinity} are disjoint across all executions, as
+     * long as they use the same <code>portRangeBase</code> and <code>portRangeSize</code>.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.shareParallelThreads", defaultValue = "false")
+    private boolean shareParallelThreads;
+
+    /**
+     * The number of projects running at the same time on the host, shared by all Maven processes using the same
+     * {@link #hostSlotsDirectory}, e.g. builds of several CI jobs on one agent. Each running project takes its
+     * {@code invoker.slots} from the host before its Maven process is started, in addition to the
+     * {@link #parallelThreads} of the execution. All processes sharing the directory should use the same value.
+     * A value of <code>0</code> disables the limit.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.hostParallelThreads", defaultValue = "0")
+    private int hostParallelThreads;
+
+    /**
+     * The directory of the lock files holding the slots of {@link #hostParallelThreads}, one file per slot. The slots
+     * are locked by the operating system, so slots of crashed processes are free again right away.
+     *
+     * @since 3.10.2
+     */
+    @Parameter(property = "invoker.hostSlotsDirectory", defaultValue = "${java.io.tmpdir}/maven-invoker-slots")
+    private File hostSlotsDirectory;
+
     // internal state variables
 
     /**
@@ -749,6 +1213,58 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
      */
     private String actualMavenVersion;
 
+    /**
+     * The durations of build jobs recorded in previous runs.
+     */
+    private BuildJobHistory buildJobHistory;
+
+    /**
+     * The time in milliseconds left of the {@link #timeBudget} for running the non-setup build jobs, <code>0</code>
+     * if there is no time budget.
+     */
+    private long remainingTimeBudgetMillis;
+
+    /**
+     * The maximal heap in MB given by {@link #autoMaxHeap} to invocations without <code>-Xmx</code>, <code>0</code>
+     * if not enabled.
+     */
+    private int autoMaxHeapSize;
+
+    /**
+     * The processors of the parallel threads for {@link #cpuAffinity}, <code>null</code> if not enabled.
+     */
+    private CpuAffinity affinity;
+
+    /**
+     * The executor running invocations inside this JVM for {@link #embedded}, <code>null</code> if not enabled.
+     */
+    private EmbeddedMavenExecutor embeddedMaven;
+
+    /**
+     * The Maven worker JVMs for {@link #workerPool}, <code>null</code> if not enabled.
+     */
+    private MavenWorkerPool mavenWorkers;
+
+    /**
+     * The launcher of Maven processes for {@link #directLaunch}, <code>null</code> if not enabled.
+     */
+    private MavenLauncher mavenLauncher;
+
+    /**
+     * The class data sharing archives for {@link #appCds}, <code>null</code> if not enabled.
+     */
+    private AppCdsArchives appCdsArchives;
+
+    /**
+     * The batches of {@link #batch} which built a build job successfully, the build job only records their output.
+     */
+    private final Map<BuildJob, ReactorBatch> batchedBuilds = new ConcurrentHashMap<>();
+
+    /**
+     * The snapshots of project directories of failed build jobs, used to rerun them from the failed invocation.
+     */
+    private final Map<BuildJob, InvocationSnapshot> invocationSnapshots = new ConcurrentHashMap<>();
+
     // used components - readonly parameters
 
     @Parameter(property = "plugin.artifacts", required = true, readonly = true)
@@ -777,15 +1293,19 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
 
     private final InterpolatorUtils interpolatorUtils;
 
+    private final SharedSlotPools sharedSlotPools;
+
     public AbstractInvokerMojo(
             Invoker invoker,
             SettingsBuilder settingsBuilder,
             ToolchainManager toolchainManagerPrivate,
-            InterpolatorUtils interpolatorUtils) {
+            InterpolatorUtils interpolatorUtils,
+            SharedSlotPools sharedSlotPools) {
         this.invoker = invoker;
         this.settingsBuilder = settingsBuilder;
         this.toolchainManager = toolchainManagerPrivate;
         this.interpolatorUtils = interpolatorUtils;
+        this.sharedSlotPools = sharedSlotPools;
     }
 
     public void setCloneProjectsTo(File cloneProjectsTo) {
@@ -821,6 +1341,17 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
                     + Charset.defaultCharset().displayName() + ", i.e. build is platform dependent!");
         }
 
+        long startTime = System.currentTimeMillis();
+        long timeBudgetSeconds = getTimeBudgetSeconds();
+        autoMaxHeapSize = getAutoMaxHeapSize();
+        affinity = createCpuAffinity();
+        embeddedMaven = createEmbeddedMaven();
+        mavenLauncher = createMavenLauncher();
+        appCdsArchives = createAppCdsArchives();
+
+        // must be done before the reports of the previous run are deleted
+        loadBuildJobHistory();
+
         // done it here to prevent issues with concurrent access in case of parallel run
         if (!disableReports) {
             setupReportsFolder();
@@ -855,6 +1386,16 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
             return;
         }
 
+        warnAboutUnknownDependencies(buildJobs);
+
+        if (shardCount > 1) {
+            buildJobs = selectShard(buildJobs);
+            if (getNonSetupJobs(buildJobs).isEmpty()) {
+                getLog().info("No projects were selected for execution in shard " + shardIndex + ".");
+                return;
+            }
+        }
+
         setupActualMavenVersion();
 
         handleScriptRunnerWithScriptClassPath();
@@ -890,92 +1431,207 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
             projectsDir = cloneProjectsTo;
         } else {
             getLog().warn("Filtering of parent/child POMs is not supported without cloning the projects");
+            if (rerunFromFailedInvocation) {
+                getLog().warn("rerunFromFailedInvocation is not supported without cloning the projects");
+                rerunFromFailedInvocation = false;
+            }
         }
 
-        // First run setup jobs.
-        List<BuildJob> setupBuildJobs = getSetupJobs(buildJobs);
-
-        if (!setupBuildJobs.isEmpty()) {
-            // Run setup jobs in single thread mode.
-            //
-            // Jobs are ordered according to ordinal value from invoker.properties
-            getLog().info("Running " + setupBuildJobs.size() + " setup job" + ((setupBuildJobs.size() < 2) ? "" : "s")
-                    + ":");
-            runBuildsWithRetry(projectsDir, setupBuildJobs, 1);
-            getLog().info("Setup done.");
-        }
+        mavenWorkers = createMavenWorkers();
+        try {
+            // First run setup jobs.
+            List<BuildJob> setupBuildJobs = getSetupJobs(buildJobs);
+
+            if (!setupBuildJobs.isEmpty()) {
+                // Run setup jobs in single thread mode, unless configured otherwise.
+                //
+                // Jobs are ordered according to ordinal value and dependencies from invoker.properties
+                getLog().info("Running " + setupBuildJobs.size() + " setup job"
+                        + ((setupBuildJobs.size() < 2) ? "" : "s") + ":");
+                runBuildsWithRetry(projectsDir, setupBuildJobs, getSetupParallelThreadsCount(setupBuildJobs));
+                getLog().info("Setup done.");
+            }
 
-        List<BuildJob> nonSetupBuildJobs = getNonSetupJobs(buildJobs);
+            List<BuildJob> nonSetupBuildJobs = getNonSetupJobs(buildJobs);
 
-        if (setupBuildJobs.isEmpty() || setupBuildJobs.stream().allMatch(BuildJob::isNotError)) {
-            // We will run the non setup jobs with the configured
-            // parallelThreads number.
-            runBuildsWithRetry(projectsDir, nonSetupBuildJobs, getParallelThreadsCount());
-        } else {
-            for (BuildJob buildJob : nonSetupBuildJobs) {
-                buildJob.setResult(BuildJob.Result.SKIPPED);
-                buildJob.setFailureMessage("Skipped due to setup job(s) failure");
-                writeBuildReport(buildJob);
+            if (setupBuildJobs.isEmpty() || setupBuildJobs.stream().allMatch(BuildJob::isNotError)) {
+                if (timeBudgetSeconds > 0) {
+                    nonSetupBuildJobs = selectWithinTimeBudget(nonSetupBuildJobs, timeBudgetSeconds, startTime);
+                }
+                // We will run the non setup jobs with the configured
+                // parallelThreads number.
+                runBuildsWithRetry(projectsDir, nonSetupBuildJobs, getParallelThreadsCount());
+            } else {
+                for (BuildJob buildJob : nonSetupBuildJobs) {
+                    buildJob.setResult(BuildJob.Result.SKIPPED);
+                    buildJob.setFailureMessage("Skipped due to setup job(s) failure");
+                    writeBuildReport(buildJob);
+                }
+            }
+        } finally {
+            if (mavenWorkers != null) {
+                mavenWorkers.close();
             }
         }
 
+        storeBuildJobHistory(buildJobs);
         writeSummaryFile(buildJobs);
         processResults(new InvokerSession(buildJobs));
     }
 
-    void runBuildsWithRetry(File projectsDir, List<BuildJob> buildJobs, int runWithParallelThreads)
-            throws MojoExecutionException {
-        List<BuildJob> jobsToExecute = buildJobs;
-        int executionCount = 0;
-        do {
-            if (executionCount > 0) {
-                getLog().warn("Rerunning " + jobsToExecute.size() + " failed job"
-                        + ((jobsToExecute.size() < 2) ? "" : "s"));
-            }
+    private long getTimeBudgetSeconds() throws MojoExecutionException {
+        if (timeBudget == null || timeBudget.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            return TimeBudget.parse(timeBudget);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage() + ", expected e.g. 90s, 10m or 1h30m", e);
+        }
+    }
 
-            executionCount++;
+    /**
+     * Selects the build jobs which fit into the rest of the {@link #timeBudget}, the other ones are skipped.
+     *
+     * @param buildJobs The non-setup build jobs, must not be <code>null</code>.
+     * @param timeBudgetSeconds The time budget of the whole run in seconds.
+     * @param startTime The start time of the run in milliseconds.
+     * @return The selected build jobs.
+     * @throws MojoExecutionException If the report of a skipped build job could not be written.
+     */
+    private List<BuildJob> selectWithinTimeBudget(List<BuildJob> buildJobs, long timeBudgetSeconds, long startTime)
+            throws MojoExecutionException {
+        remainingTimeBudgetMillis =
+                Math.max(1, TimeUnit.SECONDS.toMillis(timeBudgetSeconds) - (System.currentTimeMillis() - startTime));
+        List<BuildJob> selectedJobs = new TimeBudget(
+                        TimeUnit.MILLISECONDS.toSeconds(remainingTimeBudgetMillis),
+                        getParallelThreadsCount(),
+                        buildJobHistory)
+                .select(buildJobs);
+        getLog().info("use timeBudget " + timeBudget + ", " + selectedJobs.size() + " of " + buildJobs.size()
+                + " projects selected");
 
-            // set current execution count for jobs
-            for (BuildJob buildJob : jobsToExecute) {
-                buildJob.setExecutionCount(executionCount);
+        for (BuildJob buildJob : buildJobs) {
+            if (!selectedJobs.contains(buildJob)) {
+                buildJob.setResult(BuildJob.Result.SKIPPED);
+                buildJob.setFailureMessage(TimeBudget.SKIP_REASON);
+                reportUnscheduledBuild(buildJob);
             }
+        }
+        return selectedJobs;
+    }
 
-            runBuilds(projectsDir, jobsToExecute, runWithParallelThreads);
-            jobsToExecute = getFailedJobs(jobsToExecute);
-            if (getLog().isDebugEnabled()) {
-                getLog().debug("Execution count: " + executionCount + ", failed jobs: "
-                        + jobsToExecute.stream().map(BuildJob::getProject).collect(Collectors.joining(", ", "[", "]")));
+    /**
+     * Warns about <code>invoker.dependsOn</code> entries matching none of the selected build jobs, as they do not
+     * order anything.
+     *
+     * @param buildJobs All selected build jobs, must not be <code>null</code>.
+     */
+    private void warnAboutUnknownDependencies(List<BuildJob> buildJobs) {
+        JobExecutor.getUnknownDependencies(buildJobs).forEach((buildJob, dependencies) -> {
+            for (String dependency : dependencies) {
+                String reason = new File(projectsDirectory, dependency).exists()
+                        ? "is not selected for execution"
+                        : "does not exist in " + projectsDirectory;
+                getLog().warn("The project " + dependency + " in invoker.dependsOn of " + buildJob.getProject() + " "
+                        + reason + ", it is ignored");
             }
-        } while (executionCount <= rerunFailingTestsCount && !jobsToExecute.isEmpty());
+        });
     }
 
     /**
-     * We need add missing {@code .mnvn} directories for executing projects
+     * Selects the build jobs of the shard given by {@link #shardIndex} and writes their list.
      *
-     * @param projectsDir base of projects
-     * @param buildJobs list of discovered jobs
+     * @param buildJobs All build jobs, must not be <code>null</code>.
+     * @return The build jobs of the shard.
+     * @throws MojoExecutionException If the shard index is invalid or the list can not be written.
      */
-    private void addMissingDotMvnDirectory(File projectsDir, List<BuildJob> buildJobs) throws MojoExecutionException {
-        for (BuildJob buildJob : buildJobs) {
-            Path projectPath = projectsDir.toPath().resolve(buildJob.getProject());
+    private List<BuildJob> selectShard(List<BuildJob> buildJobs) throws MojoExecutionException {
+        if (shardIndex < 1 || shardIndex > shardCount) {
+            throw new MojoExecutionException(
+                    "The shardIndex " + shardIndex + " must be between 1 and shardCount " + shardCount);
+        }
 
-            if (Files.isRegularFile(projectPath)) {
-                projectPath = projectPath.getParent();
-            }
+        BuildJobSharding sharding = new BuildJobSharding(shardCount, buildJobHistory);
+        List<BuildJob> shardBuildJobs = sharding.select(buildJobs, shardIndex);
+        getLog().info("Running shard " + shardIndex + " of " + shardCount + " with "
+                + getNonSetupJobs(shardBuildJobs).size() + " of " + getNonSetupJobs(buildJobs).size() + " projects");
 
-            Path mvnDotPath = projectPath.resolve(".mvn");
-            if (!Files.exists(mvnDotPath)) {
-                try {
-                    Files.createDirectories(mvnDotPath);
-                } catch (IOException e) {
-                    throw new MojoExecutionException(e.getMessage(), e);
-                }
-            }
+        File manifestFile = new File(reportsDirectory, "invoker-shard-" + shardIndex + "-of-" + shardCount + ".txt");
+        try {
+            sharding.writeManifest(shardBuildJobs, shardIndex, manifestFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write shard manifest " + manifestFile, e);
         }
+        return shardBuildJobs;
     }
 
-    private void setupActualMavenVersion() throws MojoExecutionException {
-        if (mavenHome != null) {
+    private void loadBuildJobHistory() {
+        buildJobHistory = new BuildJobHistory();
+        buildJobHistory.setDefaultDuration(defaultJobDuration);
+        try {
+            if (historyFile != null) {
+                buildJobHistory.load(historyFile);
+            }
+            if (shardCount <= 1) {
+                // reports can differ between the nodes running the shards
+                buildJobHistory.loadReports(reportsDirectory);
+            }
+            if (runFailedFirst || (timeBudget != null && !timeBudget.trim().isEmpty())) {
+                buildJobHistory.loadFailures(reportsDirectory);
+            }
+        } catch (IOException | RuntimeException e) {
+            getLog().warn("Failed to read durations of previous runs: " + e.getMessage());
+        }
+    }
+
+    private void storeBuildJobHistory(List<BuildJob> buildJobs) throws MojoExecutionException {
+        if (historyFile != null) {
+            buildJobHistory.record(buildJobs);
+            try {
+                buildJobHistory.store(historyFile);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to write history file " + historyFile, e);
+            }
+        }
+    }
+
+    void runBuildsWithRetry(File projectsDir, List<BuildJob> buildJobs, int runWithParallelThreads)
+            throws MojoExecutionException {
+        // failed jobs are put back to the queue by the job executor, up to rerunFailingTestsCount times
+        for (BuildJob buildJob : buildJobs) {
+            buildJob.setExecutionCount(1);
+        }
+        runBuilds(projectsDir, buildJobs, runWithParallelThreads);
+    }
+
+    /**
+     * We need add missing {@code .mnvn} directories for executing projects
+     *
+     * @param projectsDir base of projects
+     * @param buildJobs list of discovered jobs
+     */
+    private void addMissingDotMvnDirectory(File projectsDir, List<BuildJob> buildJobs) throws MojoExecutionException {
+        for (BuildJob buildJob : buildJobs) {
+            Path projectPath = projectsDir.toPath().resolve(buildJob.getProject());
+
+            if (Files.isRegularFile(projectPath)) {
+                projectPath = projectPath.getParent();
+            }
+
+            Path mvnDotPath = projectPath.resolve(".mvn");
+            if (!Files.exists(mvnDotPath)) {
+                try {
+                    Files.createDirectories(mvnDotPath);
+                } catch (IOException e) {
+                    throw new MojoExecutionException(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private void setupActualMavenVersion() throws MojoExecutionException {
+        if (mavenHome != null) {
             try {
                 actualMavenVersion = SelectorUtils.getMavenVersion(mavenHome);
             } catch (IOException e) {
@@ -1038,10 +1694,6 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
                 .collect(Collectors.toList());
     }
 
-    private List<BuildJob> getFailedJobs(List<BuildJob> buildJobs) {
-        return buildJobs.stream().filter(buildJob -> !buildJob.isNotError()).collect(Collectors.toList());
-    }
-
     private void handleScriptRunnerWithScriptClassPath() {
         final List<String> scriptClassPath;
         if (addTestClassPath) {
@@ -1250,28 +1902,37 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
         // filter cloned POMs
         if (filter) {
             for (String projectPath : projectPaths) {
-                File pomFile = new File(cloneProjectsTo, projectPath);
-                if (pomFile.isFile()) {
-                    buildInterpolatedFile(pomFile, pomFile);
-                }
-
-                // MINVOKER-186
-                // The following is a temporary solution to support Maven 3.3.1 (.mvn/extensions.xml) filtering
-                // Will be replaced by MINVOKER-117 with general filtering mechanism
-                File baseDir = pomFile.getParentFile();
-                File mvnDir = new File(baseDir, ".mvn");
-                if (mvnDir.isDirectory()) {
-                    File extensionsFile = new File(mvnDir, "extensions.xml");
-                    if (extensionsFile.isFile()) {
-                        buildInterpolatedFile(extensionsFile, extensionsFile);
-                    }
-                }
-                // END MINVOKER-186
+                filterClonedProject(new File(cloneProjectsTo, projectPath));
             }
             filteredPomPrefix = null;
         }
     }
 
+    /**
+     * Filters the POM of a cloned project.
+     *
+     * @param pomFile The cloned POM file or project directory, must not be <code>null</code>.
+     * @throws org.apache.maven.plugin.MojoExecutionException If the POM could not be filtered.
+     */
+    private void filterClonedProject(File pomFile) throws MojoExecutionException {
+        if (pomFile.isFile()) {
+            buildInterpolatedFile(pomFile, pomFile);
+        }
+
+        // MINVOKER-186
+        // The following is a temporary solution to support Maven 3.3.1 (.mvn/extensions.xml) filtering
+        // Will be replaced by MINVOKER-117 with general filtering mechanism
+        File baseDir = pomFile.getParentFile();
+        File mvnDir = new File(baseDir, ".mvn");
+        if (mvnDir.isDirectory()) {
+            File extensionsFile = new File(mvnDir, "extensions.xml");
+            if (extensionsFile.isFile()) {
+                buildInterpolatedFile(extensionsFile, extensionsFile);
+            }
+        }
+        // END MINVOKER-186
+    }
+
     /**
      * Gets the parent path of the specified relative path.
      *
@@ -1424,23 +2085,70 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
         }
 
         try {
-            if (runWithParallelThreads > 1) {
-                getLog().info("use parallelThreads " + runWithParallelThreads);
-            }
-
-            JobExecutor jobExecutor = new JobExecutor(buildJobs, runWithParallelThreads);
+            Map<BuildJob, PreparedBatch> batchJobs = batch
+                    ? prepareBatches(
+                            projectsDir, buildJobs, mergedSettingsFile, actualJreVersion, globalInvokerProperties)
+                    : Collections.emptyMap();
+
+            // each batch is a job, so it gets the slots, heap, worker and processors of a project run on its own
+            List<BuildJob> jobs = new ArrayList<>(buildJobs);
+            jobs.addAll(batchJobs.keySet());
+            JobExecutor jobExecutor = newJobExecutor(jobs, runWithParallelThreads);
+            // the projects of a batch record its output or are run on their own when they did not succeed in it
+            batchJobs.forEach((batchJob, preparedBatch) -> preparedBatch
+                    .reactorBatch
+                    .getBuildJobs()
+                    .forEach(buildJob -> jobExecutor.startAfter(buildJob, batchJob)));
+            AtomicReference<MojoExecutionException> batchFailure = new AtomicReference<>();
             jobExecutor.forEach(job -> {
+                PreparedBatch preparedBatch = batchJobs.get(job);
+                if (preparedBatch != null) {
+                    try {
+                        runBatch(job, preparedBatch);
+                    } catch (MojoExecutionException e) {
+                        batchFailure.compareAndSet(null, e);
+                    }
+                    // the projects which did not succeed in the batch are run on their own instead
+                    job.setResult(BuildJob.Result.SUCCESS);
+                    return;
+                }
+                File jobProjectsDir = projectsDir;
+                if (job.isSpeculative()) {
+                    getLog().warn("Starting second execution of " + job.getProject() + ", it runs longer than usual");
+                    jobProjectsDir = cloneSpeculativeProject(job);
+                } else if (job.getExecutionCount() > 1) {
+                    getLog().warn("Rerunning failed job " + job.getProject() + ", execution " + job.getExecutionCount());
+                }
                 Path ancestorFolder = getAncestorFolder(projectsPath.resolve(job.getProject()));
 
                 runBuild(
-                        projectsDir,
+                        jobProjectsDir,
                         job,
                         mergedSettingsFile,
                         javaHome,
                         actualJreVersion,
                         globalInvokerProperties.get(ancestorFolder));
+            }, job -> {
+                PreparedBatch preparedBatch = batchJobs.get(job);
+                if (preparedBatch != null) {
+                    deleteInterpolatedPomFiles(preparedBatch.reactorBatch);
+                } else {
+                    reportUnscheduledBuild(job);
+                }
             });
+            if (batchFailure.get() != null) {
+                throw batchFailure.get();
+            }
+
+            if (jobExecutor.isFailFastTriggered()) {
+                getLog().warn("Fail fast - stopped running projects after " + Math.max(1, failFastThreshold)
+                        + " failed project" + (failFastThreshold < 2 ? "" : "s"));
+            }
         } finally {
+            // snapshots of build jobs which are not rerun any more
+            invocationSnapshots.values().forEach(InvocationSnapshot::delete);
+            invocationSnapshots.clear();
+            batchedBuilds.clear();
             if (interpolatedSettingsFile != null && cloneProjectsTo == null) {
                 interpolatedSettingsFile.delete();
             }
@@ -1450,6 +2158,510 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Groups compatible build jobs into batches for {@link #batch}. Each batch is run by a job, which the build jobs
+     * of the batch are started after. Batched build jobs neither depend on other build jobs nor are depended on, so
+     * the job of a batch has no dependencies either.
+     *
+     * @param projectsDir The base directory of all projects, must not be <code>null</code>.
+     * @param buildJobs The build jobs to run, must not be <code>null</code>.
+     * @param settingsFile The (already interpolated) user settings file for the builds, may be <code>null</code>.
+     * @param actualJreVersion The version of the Java used by the builds, must not be <code>null</code>.
+     * @param globalInvokerProperties The invoker properties of the folders of the projects, must not be
+     *            <code>null</code>.
+     * @return The batches with more than one build job by the jobs running them, never <code>null</code>.
+     * @throws MojoExecutionException If a project could not be read.
+     */
+    private Map<BuildJob, PreparedBatch> prepareBatches(
+            File projectsDir,
+            List<BuildJob> buildJobs,
+            File settingsFile,
+            CharSequence actualJreVersion,
+            Map<Path, Properties> globalInvokerProperties)
+            throws MojoExecutionException {
+        Map<BuildJob, PreparedBatch> batchJobs = new LinkedHashMap<>();
+        if (portRangeBase > 0) {
+            getLog().warn("batch is not supported with portRangeBase, projects are run one by one");
+            return batchJobs;
+        }
+
+        Set<String> prerequisites = new HashSet<>();
+        int ordinal = Integer.MIN_VALUE;
+        for (BuildJob buildJob : buildJobs) {
+            if (buildJob.getDependsOn() != null) {
+                for (String dependsOn : buildJob.getDependsOn().split(",")) {
+                    prerequisites.add(JobExecutor.normalizeProjectPath(dependsOn));
+                }
+            }
+            ordinal = Math.max(ordinal, buildJob.getOrdinal());
+        }
+
+        Path projectsPath = this.projectsDirectory.toPath();
+        Map<List<Object>, ReactorBatch> openBatches = new HashMap<>();
+        Map<ReactorBatch, InvocationRequest> batches = new LinkedHashMap<>();
+        Map<ReactorBatch, InvokerProperties> batchInvokerProperties = new HashMap<>();
+        for (BuildJob buildJob : buildJobs) {
+            if (BuildJob.Type.SETUP.equals(buildJob.getType())
+                    || buildJob.getExecutionCount() > 1
+                    || buildJob.getDependsOn() != null
+                    || buildJob.getLocks() != null
+                    || buildJob.getOrdinal() != ordinal
+                    || prerequisites.contains(JobExecutor.normalizeProjectPath(buildJob.getProject()))) {
+                continue;
+            }
+            File pomFile = new File(projectsDir, buildJob.getProject());
+            if (pomFile.isDirectory()) {
+                pomFile = new File(pomFile, "pom.xml");
+            }
+            File basedir = pomFile.getParentFile();
+            Path ancestorFolder = getAncestorFolder(projectsPath.resolve(buildJob.getProject()));
+            InvokerProperties invokerProperties =
+                    getBuildInvokerProperties(basedir, globalInvokerProperties.get(ancestorFolder));
+            if (!pomFile.isFile() || !isBatchable(basedir, invokerProperties, actualJreVersion)) {
+                continue;
+            }
+
+            File interpolatedPomFile = interpolatePomFile(pomFile, basedir);
+            String coordinates = getBatchCoordinates(interpolatedPomFile);
+            InvocationRequest request = createInvocationRequest(
+                    basedir, interpolatedPomFile, settingsFile, javaHome, invokerProperties, 1, 0, new Properties());
+            List<Object> key = getBatchKey(request);
+            if (coordinates == null || key == null) {
+                deleteInterpolatedPomFile(interpolatedPomFile);
+                continue;
+            }
+            ReactorBatch reactorBatch = openBatches.get(key);
+            if (reactorBatch == null
+                    || reactorBatch.size() >= batchMaxProjects
+                    || !reactorBatch.add(buildJob, coordinates, interpolatedPomFile)) {
+                reactorBatch = new ReactorBatch(new File(
+                        project.getBuild().getDirectory(), "invoker-batches/batch-" + (batches.size() + 1)));
+                reactorBatch.add(buildJob, coordinates, interpolatedPomFile);
+                openBatches.put(key, reactorBatch);
+                batches.put(reactorBatch, request);
+                batchInvokerProperties.put(reactorBatch, invokerProperties);
+            }
+        }
+
+        int batchedCount = 0;
+        for (Map.Entry<ReactorBatch, InvocationRequest> entry : batches.entrySet()) {
+            ReactorBatch reactorBatch = entry.getKey();
+            if (reactorBatch.size() > 1) {
+                batchJobs.put(
+                        newBatchJob(reactorBatch),
+                        new PreparedBatch(reactorBatch, entry.getValue(), batchInvokerProperties.get(reactorBatch)));
+                batchedCount += reactorBatch.size();
+            } else {
+                deleteInterpolatedPomFiles(reactorBatch);
+            }
+        }
+        if (!batchJobs.isEmpty()) {
+            getLog().info("use batch, " + batchedCount + " projects in " + batchJobs.size() + " batch(es)");
+        }
+        return batchJobs;
+    }
+
+    private void deleteInterpolatedPomFiles(ReactorBatch reactorBatch) {
+        for (BuildJob buildJob : reactorBatch.getBuildJobs()) {
+            deleteInterpolatedPomFile(reactorBatch.getModulePomFile(buildJob));
+        }
+    }
+
+    /**
+     * Creates the job running a batch, with the most slots and heap of its build jobs.
+     *
+     * @param reactorBatch The batch, must not be <code>null</code>.
+     * @return The job, never <code>null</code>.
+     */
+    private BuildJob newBatchJob(ReactorBatch reactorBatch) {
+        BuildJob batchJob = new BuildJob("invoker-batches/" + reactorBatch.getDirectory().getName());
+        for (BuildJob buildJob : reactorBatch.getBuildJobs()) {
+            batchJob.setOrdinal(buildJob.getOrdinal());
+            batchJob.setSlots(Math.max(batchJob.getSlots(), buildJob.getSlots()));
+            batchJob.setMemoryBudget(Math.max(batchJob.getMemoryBudget(), buildJob.getMemoryBudget()));
+        }
+        return batchJob;
+    }
+
+    /**
+     * Runs the build jobs of a batch as modules of one Maven invocation. The build jobs built successfully are recorded
+     * in {@link #batchedBuilds}, the others are restored to be run on their own.
+     *
+     * @param batchJob The job running the batch, must not be <code>null</code>.
+     * @param preparedBatch The batch with the invocation of its first build job, must not be <code>null</code>.
+     * @throws MojoExecutionException If a project could not be restored after the batch.
+     */
+    private void runBatch(BuildJob batchJob, PreparedBatch preparedBatch) throws MojoExecutionException {
+        try {
+            runBatch(batchJob, preparedBatch.reactorBatch, preparedBatch.request, preparedBatch.invokerProperties);
+        } finally {
+            deleteInterpolatedPomFiles(preparedBatch.reactorBatch);
+        }
+    }
+
+    private void runBatch(
+            BuildJob batchJob,
+            ReactorBatch reactorBatch,
+            InvocationRequest request,
+            InvokerProperties invokerProperties)
+            throws MojoExecutionException {
+        Map<BuildJob, InvocationSnapshot> snapshots = new HashMap<>();
+        try {
+            for (BuildJob buildJob : reactorBatch.getBuildJobs()) {
+                snapshots.put(
+                        buildJob,
+                        InvocationSnapshot.create(
+                                reactorBatch.getBasedir(buildJob), getSnapshotsDirectory(), 0, new Properties()));
+            }
+            reactorBatch.writePom();
+        } catch (IOException e) {
+            snapshots.values().forEach(InvocationSnapshot::delete);
+            getLog().warn("Failed to prepare batch " + reactorBatch.getPomFile() + ", projects are run one by one: "
+                    + e.getMessage());
+            return;
+        }
+
+        request.setBaseDirectory(reactorBatch.getDirectory());
+        request.setPomFile(reactorBatch.getPomFile());
+        request.setReactorFailureBehavior(InvocationRequest.ReactorFailureBehavior.FailAtEnd);
+        request.setOutputHandler(reactorBatch);
+        request.setErrorHandler(reactorBatch);
+
+        long startTime = System.currentTimeMillis();
+        int exitCode;
+        try {
+            exitCode = executeInvocation(batchJob, request, invokerProperties);
+        } catch (MavenInvocationException | RunFailureException e) {
+            getLog().debug("Error invoking Maven: " + e.getMessage(), e);
+            exitCode = -1;
+        }
+        reactorBatch.setTime(System.currentTimeMillis() - startTime);
+        try {
+            reactorBatch.writeBuildLog();
+        } catch (IOException e) {
+            getLog().debug("Failed to write log of batch " + reactorBatch.getPomFile() + ": " + e.getMessage());
+        }
+
+        int succeeded = 0;
+        for (BuildJob buildJob : reactorBatch.getBuildJobs()) {
+            InvocationSnapshot snapshot = snapshots.get(buildJob);
+            File basedir = reactorBatch.getBasedir(buildJob);
+            try {
+                if (reactorBatch.isSuccessful(buildJob, exitCode)) {
+                    batchedBuilds.put(buildJob, reactorBatch);
+                    succeeded++;
+                } else {
+                    snapshot.restore(basedir);
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to restore " + basedir + " after batch: " + e.getMessage(), e);
+            } finally {
+                snapshot.delete();
+            }
+        }
+        getLog().info("Batch " + reactorBatch.getPomFile() + ": " + succeeded + " of " + reactorBatch.size()
+                + " projects succeeded");
+    }
+
+    /**
+     * Checks whether a project may be run in a batch for {@link #batch}, apart from its Maven invocation.
+     *
+     * @param basedir The base directory of the project, must not be <code>null</code>.
+     * @param invokerProperties The invoker properties of the project, must not be <code>null</code>.
+     * @param actualJreVersion The version of the Java used by the builds, must not be <code>null</code>.
+     * @return <code>true</code> if the project may be batched.
+     * @throws MojoExecutionException If the <code>.mvn</code> directory could not be read.
+     */
+    private boolean isBatchable(File basedir, InvokerProperties invokerProperties, CharSequence actualJreVersion)
+            throws MojoExecutionException {
+        if (!invokerProperties.isBatch()
+                || invokerProperties.isInvocationDefined(2)
+                || !invokerProperties.isExpectedResult(0, 1)
+                || getSelection(invokerProperties, actualJreVersion) != 0
+                || hasScript(basedir, selectorScript)
+                || hasScript(basedir, preBuildHookScript)
+                || hasScript(basedir, preBuildHookScript + ".1")) {
+            return false;
+        }
+        // the batch has an empty .mvn directory as root
+        Path mvnDirectory = basedir.toPath().resolve(".mvn");
+        if (!Files.isDirectory(mvnDirectory)) {
+            return false;
+        }
+        try (Stream<Path> files = Files.walk(mvnDirectory)) {
+            return files.noneMatch(Files::isRegularFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read " + mvnDirectory, e);
+        }
+    }
+
+    private static boolean hasScript(File basedir, String script) {
+        return script != null
+                && (new File(basedir, script).isFile()
+                        || new File(basedir, script + ".bsh").isFile()
+                        || new File(basedir, script + ".groovy").isFile());
+    }
+
+    /**
+     * Gets the <code>groupId:artifactId</code> Maven prints for a project of a batch.
+     *
+     * @param pomFile The (already interpolated) POM file, must not be <code>null</code>.
+     * @return The coordinates or <code>null</code> if the project has modules or can not be identified.
+     */
+    private String getBatchCoordinates(File pomFile) {
+        Model model;
+        try {
+            model = PomUtils.loadPom(pomFile);
+        } catch (MojoExecutionException e) {
+            return null;
+        }
+        String groupId = model.getGroupId();
+        if (groupId == null && model.getParent() != null) {
+            groupId = model.getParent().getGroupId();
+        }
+        String artifactId = model.getArtifactId();
+        if (groupId == null || artifactId == null || (groupId + artifactId).contains("${")) {
+            return null;
+        }
+        if (!model.getModules().isEmpty()
+                || model.getProfiles().stream().anyMatch(p -> !p.getModules().isEmpty())) {
+            return null;
+        }
+        return groupId + ':' + artifactId;
+    }
+
+    /**
+     * Gets what must be equal for invocations run in one batch: the command line apart from the POM, the
+     * <code>MAVEN_OPTS</code>, the Java home and the environment.
+     *
+     * @param request The invocation of a project, must not be <code>null</code>.
+     * @return The key or <code>null</code> if the command line could not be built.
+     */
+    private List<Object> getBatchKey(InvocationRequest request) {
+        List<String> args;
+        try {
+            args = new ArrayList<>(Arrays.asList(EmbeddedMavenExecutor.getArguments(request)));
+        } catch (MavenInvocationException e) {
+            getLog().debug("Failed to build command line: " + e.getMessage());
+            return null;
+        }
+        for (int i = 0; i < args.size(); i++) {
+            if ("-f".equals(args.get(i)) || "--file".equals(args.get(i))) {
+                args.subList(i, Math.min(i + 2, args.size())).clear();
+                i--;
+            }
+        }
+        return Arrays.asList(
+                args,
+                Objects.toString(request.getMavenOpts(), "").trim(),
+                request.getJavaHome(),
+                request.getMavenExecutable(),
+                request.getTimeoutInSeconds(),
+                new TreeMap<>(request.getShellEnvironments()),
+                request.isShellEnvironmentInherited());
+    }
+
+    /**
+     * Creates the job executor configured by the parameters of the mojo.
+     *
+     * @param buildJobs The build jobs to run, must not be <code>null</code>.
+     * @param runWithParallelThreads The number of threads.
+     * @return The job executor, never <code>null</code>.
+     * @throws MojoExecutionException If the slots of the host can not be used.
+     */
+    private JobExecutor newJobExecutor(List<BuildJob> buildJobs, int runWithParallelThreads)
+            throws MojoExecutionException {
+        JobExecutor jobExecutor = new JobExecutor(buildJobs, runWithParallelThreads);
+        jobExecutor.setHistory(buildJobHistory);
+        if (runFailedFirst && buildJobHistory.getFailedCount() > 0) {
+            getLog().info("use runFailedFirst, " + buildJobHistory.getFailedCount()
+                    + " project(s) failed in the previous run");
+            jobExecutor.setFailedFirst(true);
+        }
+        jobExecutor.setRetryCount(rerunFailingTestsCount);
+        jobExecutor.setTimeBudget(remainingTimeBudgetMillis);
+        if (failFast) {
+            jobExecutor.setFailFastThreshold(Math.max(1, failFastThreshold));
+        }
+        JobExecutor.SlotPool slotPool = null;
+        if (shareParallelThreads) {
+            SharedSlotPools.Pool pool = sharedSlotPools.get(session, getParallelThreadsCount());
+            if (pool.getSize() != getParallelThreadsCount()) {
+                getLog().warn("parallelThreads " + getParallelThreadsCount() + " differs from the pool shared in the"
+                        + " session, the shared pool of " + pool.getSize() + " threads is used");
+            }
+            getLog().info("use shared pool of " + pool.getSize() + " threads");
+            slotPool = pool;
+        }
+        if (hostParallelThreads > 0) {
+            HostSlotPool hostPool;
+            try {
+                hostPool = new HostSlotPool(hostSlotsDirectory.toPath(), hostParallelThreads);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to create host slots directory " + hostSlotsDirectory, e);
+            }
+            getLog().info("use hostParallelThreads " + hostParallelThreads + " in " + hostSlotsDirectory);
+            slotPool = slotPool != null ? JobExecutor.SlotPool.both(slotPool, hostPool) : hostPool;
+        }
+        jobExecutor.setSlotPool(slotPool);
+        if (runWithParallelThreads > 1 && useVirtualThreads) {
+            if (JobExecutor.isVirtualThreadsSupported()) {
+                getLog().info("use virtual threads");
+                jobExecutor.setVirtualThreads(true);
+            } else {
+                getLog().warn("Virtual threads require Java 21 or later, platform threads are used");
+            }
+        }
+        if (runWithParallelThreads > 1 && speculativeExecution) {
+            if (isSpeculativeExecutionSupported()) {
+                getLog().info("use speculative execution after " + speculativeExecutionFactor
+                        + " times the 95th percentile of recorded durations");
+                jobExecutor.setSpeculativeExecution(speculativeExecutionFactor, this::reportSpeculativeBuild);
+            } else {
+                getLog().warn("Speculative execution requires cloneProjectsTo, projects are executed once");
+            }
+        }
+        if (runWithParallelThreads > 1 && parallelMemoryBudget > 0) {
+            getLog().info("use parallelMemoryBudget " + parallelMemoryBudget + " MB");
+            jobExecutor.setMemoryBudget(parallelMemoryBudget);
+        }
+
+        if (runWithParallelThreads > 1 && isAutoParallelThreads()) {
+            getLog().info("use parallelThreads auto, at most " + runWithParallelThreads);
+            jobExecutor.setConcurrencyLimit(new AdaptiveConcurrency(
+                    parallelThreadsMin, runWithParallelThreads, parallelThreadsMinFreeMemory, getLog()));
+        } else if (runWithParallelThreads > 1) {
+            getLog().info("use parallelThreads " + runWithParallelThreads);
+        }
+        return jobExecutor;
+    }
+
+    private boolean isSpeculativeExecutionSupported() {
+        try {
+            return cloneProjectsTo != null
+                    && !cloneProjectsTo.getCanonicalFile().equals(projectsDirectory.getCanonicalFile());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Clones a project for its speculative execution, to a fresh directory below {@link #cloneProjectsTo}. The project
+     * and its modules are cloned from {@link #projectsDirectory} again, as the running execution changes their clone.
+     * The other parent projects, the files and the <code>.mvn</code> directories of the ancestor directories are
+     * copied from {@link #cloneProjectsTo}, as prepared for the first execution including the changes of setup
+     * projects.
+     *
+     * @param buildJob The speculative execution, must not be <code>null</code>.
+     * @return The base directory of the projects of the speculative execution.
+     * @throws org.apache.maven.plugin.MojoExecutionException If the project could not be cloned.
+     */
+    private File cloneSpeculativeProject(BuildJob buildJob) throws MojoExecutionException {
+        String projectPath = buildJob.getProject();
+        String subpath = new File(projectsDirectory, projectPath).isDirectory() ? projectPath : getParentPath(projectPath);
+        // the worker is not used by another running execution, so each one has its own tree
+        File speculativeDir =
+                new File(new File(cloneProjectsTo, SPECULATIVE_DIRECTORY), String.valueOf(buildJob.getWorker()));
+
+        Collection<String> projectPaths = new LinkedHashSet<>();
+        collectProjects(projectsDirectory, projectPath, projectPaths, true);
+        List<String> clonedPaths = new ArrayList<>();
+        try {
+            FileUtils.deleteDirectory(speculativeDir);
+            copyAncestorFiles(subpath, speculativeDir);
+            for (String path : projectPaths) {
+                String dir = new File(projectsDirectory, path).isDirectory() ? path : getParentPath(path);
+                if (isSubpath(dir, subpath)) {
+                    clonedPaths.add(path);
+                } else if (!isSubpath(subpath, dir)) {
+                    // a parent project beside the project, its POM is filtered already
+                    copyDirectoryStructure(new File(cloneProjectsTo, dir), new File(speculativeDir, dir));
+                }
+            }
+            copyDirectoryStructure(new File(projectsDirectory, subpath), new File(speculativeDir, subpath));
+        } catch (IOException e) {
+            throw new MojoExecutionException(
+                    "Failed to clone project " + projectPath + " to: " + speculativeDir + ". Reason: " + e.getMessage(),
+                    e);
+        }
+        for (String path : clonedPaths) {
+            filterClonedProject(new File(speculativeDir, path));
+        }
+        addMissingDotMvnDirectory(speculativeDir, Collections.singletonList(buildJob));
+        return speculativeDir;
+    }
+
+    /**
+     * Copies the files and <code>.mvn</code> directories of the ancestor directories of a project from
+     * {@link #cloneProjectsTo}, like a parent POM or shared scripts.
+     *
+     * @param subpath The relative path of the project directory, must not be <code>null</code>.
+     * @param targetDir The base directory to copy to, must not be <code>null</code>.
+     * @throws IOException If the files could not be copied.
+     */
+    private void copyAncestorFiles(String subpath, File targetDir) throws IOException {
+        String dir = subpath;
+        while (!".".equals(dir)) {
+            dir = getParentPath(dir);
+            File[] files = new File(cloneProjectsTo, dir).listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                File targetFile = new File(new File(targetDir, dir), file.getName());
+                if (file.isFile()) {
+                    FileUtils.copyFile(file, targetFile);
+                } else if (".mvn".equals(file.getName())) {
+                    copyDirectoryStructure(file, targetFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether a relative path is equal to or below another one.
+     */
+    private static boolean isSubpath(String path, String parentPath) {
+        String normalizedPath = JobExecutor.normalizeProjectPath(path);
+        String normalizedParentPath = JobExecutor.normalizeProjectPath(parentPath);
+        return ".".equals(normalizedParentPath)
+                || normalizedPath.equals(normalizedParentPath)
+                || normalizedPath.startsWith(normalizedParentPath + "/");
+    }
+
+    /**
+     * Reports a build job after both of its executions finished, see {@link #speculativeExecution}.
+     *
+     * @param buildJob The build job with already set result, must not be <code>null</code>.
+     * @throws org.apache.maven.plugin.MojoExecutionException If the report could not be written.
+     */
+    private void reportSpeculativeBuild(BuildJob buildJob) throws MojoExecutionException {
+        if (!suppressSummaries) {
+            getLog().info("  " + buildJob.getProject() + " was executed twice, the result " + buildJob.getResult()
+                    + " is taken, the superseded execution ended with " + buildJob.getSupersededResult());
+        }
+        writeBuildReport(buildJob);
+    }
+
+    /**
+     * Reports a build job which was not started, because e.g. one of its dependencies failed.
+     *
+     * @param buildJob The build job with already set result, must not be <code>null</code>.
+     * @throws org.apache.maven.plugin.MojoExecutionException If the report could not be written.
+     */
+    private void reportUnscheduledBuild(BuildJob buildJob) throws MojoExecutionException {
+        if (!suppressSummaries) {
+            MessageBuilder buffer = pad(buildJob);
+            if (BuildJob.Result.SKIPPED.equals(buildJob.getResult())) {
+                buffer.warning("SKIPPED");
+            } else {
+                buffer.failure("FAILED");
+            }
+            getLog().info(buffer.a(' ') + buildJob.getFailureMessage());
+        }
+        writeBuildReport(buildJob);
+    }
+
     private Path getAncestorFolder(Path p) {
         Path ancestor = p;
         if (Files.isRegularFile(ancestor)) {
@@ -1652,7 +2864,7 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
 
         getLog().info(buffer().a("Building: ").strong(buildJob.getProject()).build());
 
-        InvokerProperties invokerProperties = getInvokerProperties(basedir, globalInvokerProperties);
+        InvokerProperties invokerProperties = getBuildInvokerProperties(basedir, globalInvokerProperties);
 
         // let's set what details we can
         buildJob.setName(invokerProperties.getJobName());
@@ -1661,7 +2873,9 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
         try {
             int selection = getSelection(invokerProperties, actualJreVersion);
             if (selection == 0) {
-                long startTime = System.currentTimeMillis();
+                ReactorBatch reactorBatch = batchedBuilds.get(buildJob);
+                long startTime = System.currentTimeMillis()
+                        - (reactorBatch != null ? reactorBatch.getTimePerBuildJob() : 0);
                 boolean executed;
 
                 FileLogger buildLogger = setupBuildLogFile(basedir, buildJob.getExecutionCount());
@@ -1671,7 +2885,13 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
 
                 try {
                     executed = runBuild(
-                            basedir, interpolatedPomFile, settingsFile, actualJavaHome, invokerProperties, buildLogger);
+                            basedir,
+                            interpolatedPomFile,
+                            settingsFile,
+                            actualJavaHome,
+                            invokerProperties,
+                            buildJob,
+                            buildLogger);
                 } finally {
                     long elapsedTime = System.currentTimeMillis() - startTime;
                     buildJob.setTime(elapsedTime / ONE_SECOND);
@@ -1734,12 +2954,20 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
 
             if (!suppressSummaries) {
                 getLog().info("  " + e.getMessage());
-                getLog().info(pad(buildJob).failure("FAILED").a(' ') + "(" + formatElapsedTime(buildJob.getTime())
-                        + ")");
+                if (BuildJob.Result.SKIPPED.equals(e.getType())) {
+                    getLog().info(pad(buildJob).warning("SKIPPED").a(' ') + "("
+                            + formatElapsedTime(buildJob.getTime()) + ")");
+                } else {
+                    getLog().info(pad(buildJob).failure("FAILED").a(' ') + "("
+                            + formatElapsedTime(buildJob.getTime()) + ")");
+                }
             }
         } finally {
             deleteInterpolatedPomFile(interpolatedPomFile);
-            writeBuildReport(buildJob);
+            if (!buildJob.isSpeculative()) {
+                // reported together with the original build job
+                writeBuildReport(buildJob);
+            }
         }
     }
 
@@ -1910,6 +3138,7 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
      * @param settingsFile The (already interpolated) user settings file for the build, may be <code>null</code>. Will
      *            be merged with the settings file of the invoking Maven process.
      * @param invokerProperties The properties to use.
+     * @param buildJob The build job of the project, must not be <code>null</code>.
      * @param logger file logger to write execution build.log
      * @return <code>true</code> if the project was launched or <code>false</code> if the selector script indicated that
      *         the project should be skipped.
@@ -1923,6 +3152,7 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
             File settingsFile,
             File actualJavaHome,
             InvokerProperties invokerProperties,
+            BuildJob buildJob,
             FileLogger logger)
             throws MojoExecutionException, RunFailureException {
         if (getLog().isDebugEnabled() && !invokerProperties.getProperties().isEmpty()) {
@@ -1937,85 +3167,561 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
         Map<String, Object> context = new LinkedHashMap<>();
         Properties scriptUserProperties = new Properties();
         context.put("userProperties", scriptUserProperties);
+        int portBase = getPortBase(buildJob);
+        if (portBase > 0) {
+            context.put("portBase", portBase);
+            context.put("portCount", portRangeSize);
+        }
+
+        int firstInvocationIndex = restoreInvocationSnapshot(buildJob, basedir, scriptUserProperties, logger);
 
         if (!runSelectorHook(basedir, context, logger)) {
             return false;
         }
 
         try {
-            runPreBuildHook(basedir, context, logger, 0);
+            if (firstInvocationIndex == 1) {
+                runPreBuildHook(basedir, context, logger, 0);
+            }
 
-            for (int invocationIndex = 1; ; invocationIndex++) {
+            for (int invocationIndex = firstInvocationIndex; ; invocationIndex++) {
                 if (invocationIndex > 1 && !invokerProperties.isInvocationDefined(invocationIndex)) {
                     break;
                 }
 
                 runPreBuildHook(basedir, context, logger, invocationIndex);
 
-                final InvocationRequest request = new DefaultInvocationRequest();
-
-                request.setBatchMode(true);
-
-                // values only from Mojo configurations
-                request.setLocalRepositoryDirectory(localRepositoryPath);
-                request.setShowErrors(showErrors);
-                request.setShowVersion(showVersion);
-                request.setJavaHome(actualJavaHome);
-                request.setMavenHome(mavenHome);
-                setupLoggerForBuildJob(logger, request);
-
-                request.setBaseDirectory(basedir);
-                request.setPomFile(pomFile);
-
-                String customSettingsFile = invokerProperties.getSettingsFile(invocationIndex);
-                if (customSettingsFile != null) {
-                    File interpolateSettingsFile = interpolateSettings(new File(customSettingsFile));
-                    File mergeSettingsFile = mergeSettings(interpolateSettingsFile);
-
-                    request.setUserSettingsFile(mergeSettingsFile);
-                } else {
-                    request.setUserSettingsFile(settingsFile);
-                }
-
-                Properties userProperties =
-                        getUserProperties(basedir, invokerProperties.getUserPropertiesFile(invocationIndex));
-                userProperties.putAll(scriptUserProperties);
-                request.setProperties(userProperties);
-
-                invokerProperties.configureInvocation(request, invocationIndex);
-
-                if (getLog().isDebugEnabled()) {
-                    try {
-                        getLog().debug("Using MAVEN_OPTS: " + request.getMavenOpts());
-                        getLog().debug("Executing: " + new MavenCommandLineBuilder().build(request));
-                    } catch (CommandLineConfigurationException e) {
-                        getLog().debug("Failed to display command line: " + e.getMessage());
+                ReactorBatch reactorBatch = batchedBuilds.remove(buildJob);
+                if (reactorBatch != null) {
+                    // already built successfully as module of the batch, only its output is left to record
+                    if (logger != null) {
+                        logger.consumeLine("Built in batch " + reactorBatch.getPomFile().getAbsolutePath());
+                        reactorBatch.getBuildLog(buildJob).forEach(logger::consumeLine);
                     }
+                    runPostBuildHook(basedir, context, logger, invocationIndex);
+                    continue;
                 }
 
+                final InvocationRequest request = createInvocationRequest(
+                        basedir,
+                        pomFile,
+                        settingsFile,
+                        actualJavaHome,
+                        invokerProperties,
+                        invocationIndex,
+                        portBase,
+                        scriptUserProperties);
+                setupLoggerForBuildJob(logger, request);
+
+                checkCancelled(buildJob);
                 try {
-                    InvocationResult result = invoker.execute(request);
-                    verify(result, invocationIndex, invokerProperties, logger);
+                    int exitCode = executeInvocation(buildJob, request, invokerProperties);
+                    checkCancelled(buildJob);
+                    verify(exitCode, invocationIndex, invokerProperties, logger);
                 } catch (final MavenInvocationException e) {
+                    checkCancelled(buildJob);
                     getLog().debug("Error invoking Maven: " + e.getMessage(), e);
                     throw new RunFailureException(
                             "Maven invocation failed. " + e.getMessage(), BuildJob.Result.FAILURE_BUILD);
                 }
                 runPostBuildHook(basedir, context, logger, invocationIndex);
+
+                if (invokerProperties.isInvocationDefined(invocationIndex + 1)) {
+                    takeInvocationSnapshot(buildJob, basedir, invocationIndex, scriptUserProperties);
+                }
             }
         } finally {
             runPostBuildHook(basedir, context, logger, 0);
         }
+        discardInvocationSnapshot(buildJob);
         return true;
     }
 
+    /**
+     * Runs a Maven invocation embedded, in a worker, by the launcher or by the invoker, as enabled for this mojo. The
+     * forked Maven processes get the AppCDS archive and the processors of the worker running the build job.
+     *
+     * @param buildJob The build job running the invocation, must not be <code>null</code>.
+     * @param request The configured invocation, must not be <code>null</code>.
+     * @param invokerProperties The invoker properties of the project, must not be <code>null</code>.
+     * @return The exit code of Maven.
+     * @throws MavenInvocationException If Maven could not be run.
+     * @throws RunFailureException If the build job was cancelled or the invoker failed to run Maven.
+     */
+    private int executeInvocation(BuildJob buildJob, InvocationRequest request, InvokerProperties invokerProperties)
+            throws MavenInvocationException, RunFailureException {
+        boolean embeddedInvocation = isEmbeddedInvocation(buildJob, request, invokerProperties);
+        boolean pooledInvocation = !embeddedInvocation && isPooledInvocation(buildJob, request, invokerProperties);
+        boolean launchedInvocation =
+                !embeddedInvocation && !pooledInvocation && affinity == null && isLaunchedInvocation(request);
+        File trainingArchive = null;
+        if (appCdsArchives != null && !embeddedInvocation && !pooledInvocation) {
+            trainingArchive = appCdsArchives.configure(request);
+        }
+        if (affinity != null && !embeddedInvocation && !pooledInvocation) {
+            try {
+                affinity.configure(request, buildJob.getWorker());
+            } catch (CommandLineConfigurationException e) {
+                getLog().debug("Failed to pin Maven executable to processors: " + e.getMessage());
+            }
+        }
+
+        if (getLog().isDebugEnabled()) {
+            try {
+                getLog().debug("Using MAVEN_OPTS: " + request.getMavenOpts());
+                getLog().debug("Executing: " + new MavenCommandLineBuilder().build(request));
+            } catch (CommandLineConfigurationException e) {
+                getLog().debug("Failed to display command line: " + e.getMessage());
+            }
+        }
+
+        try {
+            if (embeddedInvocation) {
+                return embeddedMaven.execute(request);
+            } else if (pooledInvocation) {
+                return mavenWorkers.execute(request);
+            } else if (launchedInvocation) {
+                return mavenLauncher.execute(request);
+            }
+            InvocationResult result = invoker.execute(request);
+            if (result.getExecutionException() != null) {
+                checkCancelled(buildJob);
+                throw new RunFailureException(
+                        "The Maven invocation failed. "
+                                + result.getExecutionException().getMessage(),
+                        BuildJob.Result.ERROR);
+            }
+            return result.getExitCode();
+        } finally {
+            if (trainingArchive != null) {
+                appCdsArchives.trained(trainingArchive);
+            }
+        }
+    }
+
+    /**
+     * Creates the Maven invocation of a project, without output handlers.
+     *
+     * @param basedir The base directory of the project, must not be <code>null</code>.
+     * @param pomFile The (already interpolated) POM file, may be <code>null</code> for a POM-less Maven invocation.
+     * @param settingsFile The (already interpolated) user settings file for the build, may be <code>null</code>.
+     * @param invokerProperties The properties to use.
+     * @param invocationIndex The index of the invocation.
+     * @param portBase The first port given to the build job, <code>0</code> if none.
+     * @param scriptUserProperties The user properties set by hook scripts so far.
+     * @return The configured invocation, never <code>null</code>.
+     * @throws org.apache.maven.plugin.MojoExecutionException If the settings or user properties could not be read.
+     */
+    private InvocationRequest createInvocationRequest(
+            File basedir,
+            File pomFile,
+            File settingsFile,
+            File actualJavaHome,
+            InvokerProperties invokerProperties,
+            int invocationIndex,
+            int portBase,
+            Properties scriptUserProperties)
+            throws MojoExecutionException {
+        final InvocationRequest request = new DefaultInvocationRequest();
+
+        request.setBatchMode(true);
+
+        // values only from Mojo configurations
+        request.setLocalRepositoryDirectory(localRepositoryPath);
+        request.setShowErrors(showErrors);
+        request.setShowVersion(showVersion);
+        request.setJavaHome(actualJavaHome);
+        request.setMavenHome(mavenHome);
+
+        request.setBaseDirectory(basedir);
+        request.setPomFile(pomFile);
+
+        String customSettingsFile = invokerProperties.getSettingsFile(invocationIndex);
+        if (customSettingsFile != null) {
+            File interpolateSettingsFile = interpolateSettings(new File(customSettingsFile));
+            File mergeSettingsFile = mergeSettings(interpolateSettingsFile);
+
+            request.setUserSettingsFile(mergeSettingsFile);
+        } else {
+            request.setUserSettingsFile(settingsFile);
+        }
+
+        Properties userProperties =
+                getUserProperties(basedir, invokerProperties.getUserPropertiesFile(invocationIndex));
+        if (portBase > 0) {
+            userProperties.setProperty("invoker.port.base", String.valueOf(portBase));
+            userProperties.setProperty("invoker.port.count", String.valueOf(portRangeSize));
+            request.addShellEnvironment("INVOKER_PORT_BASE", String.valueOf(portBase));
+            request.addShellEnvironment("INVOKER_PORT_COUNT", String.valueOf(portRangeSize));
+        }
+        userProperties.putAll(scriptUserProperties);
+        request.setProperties(userProperties);
+
+        invokerProperties.configureInvocation(request, invocationIndex);
+        return request;
+    }
+
+    /**
+     * Restores the project directory from the snapshot taken after the last successful invocation of a previous
+     * execution of the build job, if any.
+     *
+     * @param buildJob The build job, must not be <code>null</code>.
+     * @param basedir The base directory of the project, must not be <code>null</code>.
+     * @param scriptUserProperties The user properties for hook scripts, filled from the snapshot.
+     * @param logger file logger to write execution build.log
+     * @return The index of the first invocation to run.
+     * @throws org.apache.maven.plugin.MojoExecutionException If the project directory could not be restored.
+     */
+    private int restoreInvocationSnapshot(
+            BuildJob buildJob, File basedir, Properties scriptUserProperties, FileLogger logger)
+            throws MojoExecutionException {
+        InvocationSnapshot snapshot = invocationSnapshots.remove(buildJob);
+        if (snapshot == null) {
+            return 1;
+        }
+        try {
+            snapshot.restore(basedir);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to restore " + basedir + " for rerun: " + e.getMessage(), e);
+        } finally {
+            snapshot.delete();
+        }
+        scriptUserProperties.putAll(snapshot.getUserProperties());
+
+        int invocationIndex = snapshot.getInvocationIndex() + 1;
+        getLog().info("Resuming " + buildJob.getProject() + " from invocation " + invocationIndex);
+        if (logger != null) {
+            logger.consumeLine("Resuming from invocation " + invocationIndex);
+        }
+        return invocationIndex;
+    }
+
+    /**
+     * Takes a snapshot of the project directory after a successful invocation, if the build job can be rerun from
+     * the next invocation.
+     *
+     * @param buildJob The build job, must not be <code>null</code>.
+     * @param basedir The base directory of the project, must not be <code>null</code>.
+     * @param invocationIndex The index of the successful invocation.
+     * @param scriptUserProperties The user properties set by hook scripts so far.
+     * @throws org.apache.maven.plugin.MojoExecutionException If the project directory could not be copied.
+     */
+    private void takeInvocationSnapshot(
+            BuildJob buildJob, File basedir, int invocationIndex, Properties scriptUserProperties)
+            throws MojoExecutionException {
+        if (!rerunFromFailedInvocation || buildJob.getExecutionCount() > rerunFailingTestsCount) {
+            return;
+        }
+        try {
+            InvocationSnapshot previous = invocationSnapshots.put(
+                    buildJob,
+                    InvocationSnapshot.create(basedir, getSnapshotsDirectory(), invocationIndex, scriptUserProperties));
+            if (previous != null) {
+                previous.delete();
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to copy " + basedir + " for rerun: " + e.getMessage(), e);
+        }
+    }
+
+    private File getSnapshotsDirectory() {
+        return new File(project.getBuild().getDirectory(), "invoker-snapshots");
+    }
+
+    private void discardInvocationSnapshot(BuildJob buildJob) {
+        InvocationSnapshot snapshot = invocationSnapshots.remove(buildJob);
+        if (snapshot != null) {
+            snapshot.delete();
+        }
+    }
+
+    /**
+     * Gets the first port of the range given to a build job, the range is disjoint from the ranges of the build jobs
+     * running at the same time.
+     *
+     * @param buildJob The build job, must not be <code>null</code>.
+     * @return The first port or <code>0</code> if no port ranges are configured.
+     */
+    int getPortBase(BuildJob buildJob) {
+        if (portRangeBase <= 0) {
+            return 0;
+        }
+        return portRangeBase + buildJob.getWorker() * portRangeSize;
+    }
+
+    /**
+     * Gets the number of worker indices of running projects. With {@link #shareParallelThreads} the indices are taken
+     * from the shared pool, up to its size.
+     *
+     * @return The number of workers.
+     */
+    private int getWorkerCount() {
+        if (shareParallelThreads) {
+            return sharedSlotPools.get(session, getParallelThreadsCount()).getSize();
+        }
+        return getParallelThreadsCount();
+    }
+
     int getParallelThreadsCount() {
-        if (parallelThreads.endsWith("C")) {
-            float parallelThreadsMultiple =
-                    Float.parseFloat(parallelThreads.substring(0, parallelThreads.length() - 1));
+        if (isAutoParallelThreads()) {
+            return Math.max(parallelThreadsMin, parseThreadsCount(parallelThreadsMax));
+        }
+        return parseThreadsCount(parallelThreads);
+    }
+
+    /**
+     * Computes the maximal heap of the forked Maven processes for {@link #autoMaxHeap}.
+     *
+     * @return The heap in MB or <code>0</code> if not enabled or the physical memory is not known.
+     */
+    private int getAutoMaxHeapSize() {
+        if (!autoMaxHeap) {
+            return 0;
+        }
+        long totalMemory = MaxHeapSizing.getTotalMemory();
+        if (totalMemory <= 0) {
+            getLog().warn("Physical memory is not available, autoMaxHeap is ignored");
+            return 0;
+        }
+        int concurrency = hostParallelThreads > 0 ? hostParallelThreads : getParallelThreadsCount();
+        int maxHeap = MaxHeapSizing.compute(totalMemory, autoMaxHeapReserve, concurrency);
+        if (maxHeap == MaxHeapSizing.MIN_HEAP) {
+            getLog().warn("Physical memory of " + totalMemory + " MB is low for " + concurrency
+                    + " projects running at the same time, use -Xmx" + maxHeap + "m");
+        } else {
+            getLog().info("use autoMaxHeap -Xmx" + maxHeap + "m for " + concurrency + " projects running at the same"
+                    + " time with " + totalMemory + " MB physical memory");
+        }
+        return maxHeap;
+    }
+
+    /**
+     * Splits the processors for {@link #cpuAffinity}.
+     *
+     * @return The processors of the parallel threads or <code>null</code> if not enabled or not supported.
+     * @throws MojoExecutionException If the launcher script can not be written.
+     */
+    private CpuAffinity createCpuAffinity() throws MojoExecutionException {
+        if (!cpuAffinity || getWorkerCount() < 2) {
+            return null;
+        }
+        File launcher = new File(project.getBuild().getDirectory(), "invoker-taskset.sh");
+        CpuAffinity cpuSets;
+        try {
+            cpuSets = CpuAffinity.create(launcher, getWorkerCount());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write " + launcher, e);
+        }
+        if (cpuSets == null) {
+            getLog().warn("CPU affinity requires Linux with taskset, Maven processes are not pinned to processors");
+        } else {
+            getLog().info("use cpuAffinity, " + cpuSets.getCpuSet(0).size() + " processor(s) per thread");
+        }
+        return cpuSets;
+    }
+
+    /**
+     * Resolves the Maven installation for {@link #embedded}.
+     *
+     * @return The executor or <code>null</code> if not enabled or not supported by the Maven installation.
+     * @throws MojoExecutionException If combined with parallel or tuned processes or the Maven installation can not
+     *             be read.
+     */
+    private EmbeddedMavenExecutor createEmbeddedMaven() throws MojoExecutionException {
+        if (!embedded) {
+            return null;
+        }
+        // embedded invocations run one at a time and without MAVEN_OPTS, so these would fork every invocation
+        List<String> conflicts = new ArrayList<>();
+        if (getWorkerCount() > 1
+                || (setupParallelThreads != null
+                        && !setupParallelThreads.trim().isEmpty()
+                        && parseThreadsCount(setupParallelThreads.trim()) > 1)) {
+            conflicts.add("parallelThreads");
+        }
+        if (autoMaxHeap) {
+            conflicts.add("autoMaxHeap");
+        }
+        if (cpuAffinity) {
+            conflicts.add("cpuAffinity");
+        }
+        if (!conflicts.isEmpty()) {
+            throw new MojoExecutionException("embedded can not be combined with " + String.join(", ", conflicts)
+                    + ", use workerPool to avoid the startup of Maven processes running in parallel");
+        }
+        File home = mavenHome != null ? mavenHome : new File(System.getProperty("maven.home", ""));
+        EmbeddedMavenExecutor executor;
+        try {
+            executor = EmbeddedMavenExecutor.create(home.getAbsoluteFile());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read Maven installation " + home, e);
+        }
+        if (executor == null) {
+            getLog().warn("Maven installation " + home + " can not be embedded, Maven invocations are forked");
+        } else {
+            getLog().info("use embedded Maven " + executor.getMavenHome());
+        }
+        return executor;
+    }
+
+    /**
+     * Checks whether an invocation is run inside this JVM for {@link #embedded}.
+     *
+     * @param buildJob The build job of the project, must not be <code>null</code>.
+     * @param request The configured invocation, must not be <code>null</code>.
+     * @param invokerProperties The invoker properties of the project, must not be <code>null</code>.
+     * @return <code>true</code> if the invocation is embedded, <code>false</code> if it is forked.
+     */
+    private boolean isEmbeddedInvocation(
+            BuildJob buildJob, InvocationRequest request, InvokerProperties invokerProperties) {
+        if (embeddedMaven == null) {
+            return false;
+        }
+        if (!invokerProperties.isEmbedded()) {
+            getLog().info("Forking Maven invocation of " + buildJob.getProject() + " due to invoker.embedded = false");
+            return false;
+        }
+        String forkReason = embeddedMaven.getForkReason(request);
+        if (forkReason != null) {
+            getLog().info("Forking Maven invocation of " + buildJob.getProject() + " due to " + forkReason);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Creates the pool for {@link #workerPool}, the workers are started when needed.
+     *
+     * @return The pool or <code>null</code> if not enabled or not supported by the Maven installation.
+     * @throws MojoExecutionException If the Maven installation can not be read.
+     */
+    private MavenWorkerPool createMavenWorkers() throws MojoExecutionException {
+        if (!workerPool) {
+            return null;
+        }
+        File home = mavenHome != null ? mavenHome : new File(System.getProperty("maven.home", ""));
+        try {
+            if (EmbeddedMavenCli.getBootClassPath(home.getAbsoluteFile()) == null) {
+                getLog().warn("Maven installation " + home + " can not run in workers, Maven invocations are forked");
+                return null;
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read Maven installation " + home, e);
+        }
+        getLog().info("use Maven worker pool, workers are recycled after " + workerMaxBuilds + " invocations");
+        return new MavenWorkerPool(
+                home.getAbsoluteFile(),
+                new File(project.getBuild().getDirectory(), "invoker-workers"),
+                Math.max(1, workerMaxBuilds),
+                workerMaxHeapUsage * 1024L * 1024L,
+                Math.max(1, getParallelThreadsCount()));
+    }
+
+    /**
+     * Checks whether an invocation is run by a worker for {@link #workerPool}.
+     *
+     * @param buildJob The build job of the invocation, must not be <code>null</code>.
+     * @param request The configured invocation, must not be <code>null</code>.
+     * @param invokerProperties The invoker properties of the build job, must not be <code>null</code>.
+     * @return <code>true</code> if the invocation is run by a worker, <code>false</code> if it is forked.
+     */
+    private boolean isPooledInvocation(
+            BuildJob buildJob, InvocationRequest request, InvokerProperties invokerProperties) {
+        if (mavenWorkers == null) {
+            return false;
+        }
+        if (!invokerProperties.isWorkerPool()) {
+            getLog().debug(
+                    "Forking Maven invocation of " + buildJob.getProject() + " due to invoker.workerPool = false");
+            return false;
+        }
+        String forkReason = mavenWorkers.getForkReason(request);
+        if (forkReason != null) {
+            getLog().debug("Forking Maven invocation due to " + forkReason);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Resolves the command line of <code>bin/mvn</code> for {@link #directLaunch}.
+     *
+     * @return The launcher or <code>null</code> if not enabled or not supported by the Maven installation.
+     * @throws MojoExecutionException If the Maven installation can not be read.
+     */
+    private MavenLauncher createMavenLauncher() throws MojoExecutionException {
+        if (!directLaunch) {
+            return null;
+        }
+        File home = mavenHome != null ? mavenHome : new File(System.getProperty("maven.home", ""));
+        MavenLauncher launcher;
+        try {
+            launcher = MavenLauncher.create(home.getAbsoluteFile());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read Maven installation " + home, e);
+        }
+        if (launcher == null) {
+            getLog().warn("Maven installation " + home + " can not be launched directly, bin/mvn is used");
+        } else {
+            getLog().info("use directLaunch of Maven " + launcher.getMavenHome());
+        }
+        return launcher;
+    }
+
+    /**
+     * Fingerprints the Maven installation for {@link #appCds}.
+     *
+     * @return The archives or <code>null</code> if not enabled.
+     */
+    private AppCdsArchives createAppCdsArchives() {
+        if (!appCds) {
+            return null;
+        }
+        File home = mavenHome != null ? mavenHome : new File(System.getProperty("maven.home", ""));
+        AppCdsArchives archives = AppCdsArchives.create(
+                home.getAbsoluteFile(), new File(project.getBuild().getDirectory(), "invoker-cds"));
+        getLog().info("use appCds archives of Maven " + archives.getMavenHome());
+        return archives;
+    }
+
+    /**
+     * Checks whether an invocation is started without the Maven executable for {@link #directLaunch}.
+     *
+     * @param request The configured invocation, must not be <code>null</code>.
+     * @return <code>true</code> if the invocation is launched directly, <code>false</code> if it is forked.
+     */
+    private boolean isLaunchedInvocation(InvocationRequest request) {
+        if (mavenLauncher == null) {
+            return false;
+        }
+        String forkReason = mavenLauncher.getForkReason(request);
+        if (forkReason != null) {
+            getLog().debug("Starting Maven executable due to " + forkReason);
+            return false;
+        }
+        return true;
+    }
+
+    int getSetupParallelThreadsCount(List<BuildJob> setupBuildJobs) {
+        if (setupParallelThreads != null && !setupParallelThreads.trim().isEmpty()) {
+            return Math.max(1, parseThreadsCount(setupParallelThreads.trim()));
+        }
+        if (setupBuildJobs.stream().anyMatch(job -> job.getDependsOn() != null)) {
+            return getParallelThreadsCount();
+        }
+        return 1;
+    }
+
+    private boolean isAutoParallelThreads() {
+        return "auto".equalsIgnoreCase(parallelThreads);
+    }
+
+    private static int parseThreadsCount(String threads) {
+        if (threads.endsWith("C")) {
+            float parallelThreadsMultiple = Float.parseFloat(threads.substring(0, threads.length() - 1));
             return (int) (parallelThreadsMultiple * Runtime.getRuntime().availableProcessors());
         } else {
-            return Integer.parseInt(parallelThreads);
+            return Integer.parseInt(threads);
         }
     }
 
@@ -2163,25 +3869,33 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
     }
 
     /**
-     * Verifies the invocation result.
+     * Checks whether the current build job was cancelled by {@link #failFast} or {@link #speculativeExecution}, which
+     * interrupt its thread.
+     *
+     * @param buildJob The current build job, must not be <code>null</code>.
+     * @throws RunFailureException If the build job was cancelled.
+     */
+    private void checkCancelled(BuildJob buildJob) throws RunFailureException {
+        if (Thread.currentThread().isInterrupted()) {
+            String reason = buildJob.getCancellation() != null ? buildJob.getCancellation() : "Cancelled";
+            throw new RunFailureException(reason, BuildJob.Result.SKIPPED);
+        }
+    }
+
+    /**
+     * Verifies the exit code of an invocation.
      *
-     * @param result The invocation result to check, must not be <code>null</code>.
+     * @param exitCode The exit code of Maven.
      * @param invocationIndex The index of the invocation for which to check the exit code, must not be negative.
      * @param invokerProperties The invoker properties used to check the exit code, must not be <code>null</code>.
      * @param logger The build logger, may be <code>null</code> if logging is disabled.
      */
-    private void verify(
-            InvocationResult result, int invocationIndex, InvokerProperties invokerProperties, FileLogger logger)
+    private void verify(int exitCode, int invocationIndex, InvokerProperties invokerProperties, FileLogger logger)
             throws RunFailureException {
-        if (result.getExecutionException() != null) {
-            throw new RunFailureException(
-                    "The Maven invocation failed. "
-                            + result.getExecutionException().getMessage(),
-                    BuildJob.Result.ERROR);
-        } else if (!invokerProperties.isExpectedResult(result.getExitCode(), invocationIndex)) {
+        if (!invokerProperties.isExpectedResult(exitCode, invocationIndex)) {
             StringBuilder buffer = new StringBuilder(256);
             buffer.append("The build exited with code ")
-                    .append(result.getExitCode())
+                    .append(exitCode)
                     .append(". ");
             if (logger != null) {
                 buffer.append("See ");
@@ -2258,6 +3972,21 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
             InvokerProperties invokerProperties =
                     getInvokerProperties(new File(projectsDirectory, job.getProject()).getParentFile(), null);
             job.setOrdinal(invokerProperties.getOrdinal());
+            List<String> dependsOn = invokerProperties.getDependsOn();
+            if (!dependsOn.isEmpty()) {
+                job.setDependsOn(String.join(",", dependsOn));
+            }
+            List<String> locks = invokerProperties.getLocks();
+            if (!locks.isEmpty()) {
+                job.setLocks(String.join(",", locks));
+            }
+            job.setMandatory(invokerProperties.isMandatory());
+            job.setSlots(invokerProperties.getSlots(
+                    readMvnConfig(job, "maven.config"), Runtime.getRuntime().availableProcessors()));
+            if (parallelMemoryBudget > 0) {
+                int memoryBudget = invokerProperties.getMemoryBudget(readMvnConfig(job, "jvm.config"));
+                job.setMemoryBudget(memoryBudget > 0 ? memoryBudget : parallelJobMemory);
+            }
         }
 
         relativizeProjectPaths(buildJobsAll);
@@ -2265,6 +3994,44 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
         return buildJobsAll;
     }
 
+    /**
+     * Reads a configuration file from the <code>.mvn</code> directory of the project of a build job.
+     *
+     * @param job The build job with a project path relative to the projects directory.
+     * @param fileName The name of the file, like <code>jvm.config</code>.
+     * @return The content of the file or <code>null</code> if not present.
+     */
+    private String readMvnConfig(BuildJob job, String fileName) throws MojoExecutionException {
+        File basedir = new File(projectsDirectory, job.getProject());
+        if (!basedir.isDirectory()) {
+            basedir = basedir.getParentFile();
+        }
+        return readMvnConfig(basedir, fileName);
+    }
+
+    /**
+     * Reads a configuration file from the <code>.mvn</code> directory of a project.
+     *
+     * @param basedir The base directory of the project.
+     * @param fileName The name of the file, like <code>jvm.config</code>.
+     * @return The content of the file, without comments for <code>jvm.config</code>, or <code>null</code> if not
+     *         present.
+     */
+    private String readMvnConfig(File basedir, String fileName) throws MojoExecutionException {
+        File configFile = new File(basedir, ".mvn/" + fileName);
+        if (!configFile.isFile()) {
+            return null;
+        }
+        try {
+            if ("jvm.config".equals(fileName)) {
+                return String.join(" ", MavenLauncher.getJvmConfigOptions(basedir));
+            }
+            return new String(Files.readAllBytes(configFile.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read " + configFile, e);
+        }
+    }
+
     /**
      * Scans the projects directory for projects to build. Both (POM) files and mere directories will be matched by the
      * scanner patterns. If the patterns match a directory which contains a file named "pom.xml", the results will
@@ -2449,6 +4216,20 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Gets the invoker properties of a project to run, see {@link #getInvokerProperties(File, Properties)}.
+     */
+    private InvokerProperties getBuildInvokerProperties(File basedir, Properties globalInvokerProperties)
+            throws MojoExecutionException {
+        InvokerProperties invokerProperties = getInvokerProperties(basedir, globalInvokerProperties);
+        if (autoMaxHeapSize > 0
+                && InvokerProperties.getMaxHeap(Objects.toString(readMvnConfig(basedir, "jvm.config"), "")) > 0) {
+            // the heap of the project wins, MAVEN_OPTS would override it
+            invokerProperties.setDefaultMaxHeap(0);
+        }
+        return invokerProperties;
+    }
+
     /**
      * Gets the (interpolated) invoker properties for an integration test.
      *
@@ -2500,10 +4281,26 @@ public abstract class AbstractInvokerMojo extends AbstractMojo {
         invokerProperties.setDefaultEnvironmentVariables(environmentVariables);
         invokerProperties.setDefaultUpdateSnapshots(updateSnapshots);
         invokerProperties.setDefaultUserPropertiesFiles(testPropertiesFile);
+        invokerProperties.setDefaultMaxHeap(autoMaxHeapSize);
 
         return invokerProperties;
     }
 
+    /**
+     * A batch of {@link #batch} with the invocation of its first build job, run by a job of its own.
+     */
+    private static class PreparedBatch {
+        private final ReactorBatch reactorBatch;
+        private final InvocationRequest request;
+        private final InvokerProperties invokerProperties;
+
+        PreparedBatch(ReactorBatch reactorBatch, InvocationRequest request, InvokerProperties invokerProperties) {
+            this.reactorBatch = reactorBatch;
+            this.request = request;
+            this.invokerProperties = invokerProperties;
+        }
+    }
+
     static class ToolchainPrivateManager {
         private final ToolchainManager manager;
         private final MavenSession session;
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Number of concurrently running build jobs adjusted to the system load and the available memory, used for
+ * <code>parallelThreads=auto</code>.
+ * <p>
+ * The number of active slots is decreased by one when the load average exceeds the number of processors or the
+ * available memory drops below the configured minimum, and increased by one when all active slots are in use and the
+ * system has spare capacity for one more Maven process.
+ */
+class AdaptiveConcurrency implements JobExecutor.ConcurrencyLimit {
+
+    /**
+     * Provides the system metrics.
+     */
+    interface SystemMetrics {
+        /**
+         * @return the system load average for the last minute or a negative value if not available
+         */
+        double getLoadAverage();
+
+        /**
+         * @return the available memory in MB or a negative value if not available
+         */
+        long getAvailableMemory();
+    }
+
+    /**
+     * Minimal time between two decisions, the load average needs time to reflect the started processes.
+     */
+    static final long DECISION_INTERVAL_MILLIS = 5000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long minFreeMemory;
+    private final int processors;
+    private final SystemMetrics metrics;
+    private final Log log;
+
+    private int limit;
+    private long lastDecision;
+
+    AdaptiveConcurrency(int minLimit, int maxLimit, long minFreeMemory, Log log) {
+        this(minLimit, maxLimit, minFreeMemory, Runtime.getRuntime().availableProcessors(), new ProcMetrics(), log);
+    }
+
+    AdaptiveConcurrency(
+            int minLimit, int maxLimit, long minFreeMemory, int processors, SystemMetrics metrics, Log log) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.minFreeMemory = minFreeMemory;
+        this.processors = processors;
+        this.metrics = metrics;
+        this.log = log;
+
+        double load = metrics.getLoadAverage();
+        int initialLimit = load < 0 ? this.minLimit : (int) (processors - load);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.lastDecision = System.currentTimeMillis();
+        log.info(String.format(
+                Locale.ROOT,
+                "parallelThreads auto: load average %s, available memory %s, starting with %d of %d-%d slots",
+                formatLoad(load),
+                formatMemory(metrics.getAvailableMemory()),
+                limit,
+                this.minLimit,
+                this.maxLimit));
+    }
+
+    int getMaxLimit() {
+        return maxLimit;
+    }
+
+    @Override
+    public synchronized int getLimit(int usedSlots) {
+        long now = System.currentTimeMillis();
+        if (now - lastDecision < DECISION_INTERVAL_MILLIS) {
+            return limit;
+        }
+        lastDecision = now;
+        return decide(usedSlots);
+    }
+
+    /**
+     * Evaluates the system metrics and adjusts the number of active slots.
+     *
+     * @param usedSlots the number of slots occupied by currently running jobs
+     * @return the new number of active slots
+     */
+    synchronized int decide(int usedSlots) {
+        double load = metrics.getLoadAverage();
+        long freeMemory = metrics.getAvailableMemory();
+
+        boolean overloaded = load > processors;
+        boolean lowMemory = freeMemory >= 0 && freeMemory < minFreeMemory;
+        boolean spareCpu = load < 0 || load < processors * 0.75;
+        boolean spareMemory = freeMemory < 0 || freeMemory >= 2 * minFreeMemory;
+
+        int newLimit = limit;
+        String reason;
+        if ((overloaded || lowMemory) && limit > minLimit) {
+            newLimit = limit - 1;
+            reason = overloaded ? "system overloaded" : "low memory";
+        } else if (spareCpu && spareMemory && usedSlots >= limit && limit < maxLimit) {
+            newLimit = limit + 1;
+            reason = "spare capacity";
+        } else {
+            reason = "no change";
+        }
+
+        String message = String.format(
+                Locale.ROOT,
+                "parallelThreads auto: load average %s, available memory %s, used slots %d, %s - active slots %d -> %d",
+                formatLoad(load),
+                formatMemory(freeMemory),
+                usedSlots,
+                reason,
+                limit,
+                newLimit);
+        if (newLimit != limit) {
+            log.info(message);
+        } else if (log.isDebugEnabled()) {
+            log.debug(message);
+        }
+
+        limit = newLimit;
+        return limit;
+    }
+
+    private String formatLoad(double load) {
+        return load < 0 ? "n/a" : String.format(Locale.ROOT, "%.2f/%d", load, processors);
+    }
+
+    private static String formatMemory(long memory) {
+        return memory < 0 ? "n/a" : memory + " MB";
+    }
+
+    /**
+     * Reads the metrics from <code>/proc</code> on Linux, with a fallback to the operating system MXBean.
+     */
+    static class ProcMetrics implements SystemMetrics {
+        private static final Path LOADAVG = Paths.get("/proc/loadavg");
+        private static final Path MEMINFO = Paths.get("/proc/meminfo");
+
+        @Override
+        public double getLoadAverage() {
+            try {
+                if (Files.isReadable(LOADAVG)) {
+                    return Double.parseDouble(
+                            new String(Files.readAllBytes(LOADAVG)).trim().split("\\s+")[0]);
+                }
+            } catch (IOException | RuntimeException e) {
+                // use fallback
+            }
+            return ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        }
+
+        @Override
+        public long getAvailableMemory() {
+            try {
+                if (Files.isReadable(MEMINFO)) {
+                    return parseAvailableMemory(Files.readAllLines(MEMINFO));
+                }
+            } catch (IOException | RuntimeException e) {
+                // not available
+            }
+            return -1;
+        }
+
+        static long parseAvailableMemory(List<String> meminfo) {
+            for (String line : meminfo) {
+                if (line.startsWith("MemAvailable:")) {
+                    String[] fields = line.substring("MemAvailable:".length()).trim().split("\\s+");
+                    return Long.parseLong(fields[0]) / 1024;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.shared.invoker.InvocationRequest;
+
+/**
+ * Dynamic AppCDS archives of the classes loaded by Maven processes, one per Maven installation and Java home.
+ * <p>
+ * The first invocation with a Java home trains the archive with <code>-XX:ArchiveClassesAtExit</code>, later
+ * invocations map it with <code>-XX:SharedArchiveFile</code> instead of loading and verifying the classes again. The
+ * name of an archive is a fingerprint of the files of the Maven installation and the Java runtime, so a changed
+ * installation or JDK trains a new archive. Requires Java 13 or later in the Maven processes.
+ *
+ * @since 3.10.2
+ */
+class AppCdsArchives {
+
+    static final String ARCHIVE_CLASSES_AT_EXIT = "-XX:ArchiveClassesAtExit=";
+
+    static final String SHARED_ARCHIVE_FILE = "-XX:SharedArchiveFile=";
+
+    /**
+     * Keeps warnings about skipped classes and mismatching archives out of the build logs.
+     */
+    static final String DISABLE_CDS_LOG = "-Xlog:cds*=off";
+
+    /**
+     * The first Java version supporting dynamic archives.
+     */
+    static final int MIN_JAVA_VERSION = 13;
+
+    private final File mavenHome;
+    private final File directory;
+    private final String mavenFingerprint;
+
+    private final Set<String> training = new HashSet<>();
+
+    private final Set<String> unsupported = new HashSet<>();
+
+    private final AtomicInteger trainingCount = new AtomicInteger();
+
+    AppCdsArchives(File mavenHome, File directory, String mavenFingerprint) {
+        this.mavenHome = mavenHome;
+        this.directory = directory;
+        this.mavenFingerprint = mavenFingerprint;
+    }
+
+    /**
+     * Fingerprints the Maven installation, the archives are written when needed.
+     *
+     * @param mavenHome the home directory of the Maven installation, must not be <code>null</code>
+     * @param directory the directory of the archives, must not be <code>null</code>
+     * @return the archives
+     */
+    static AppCdsArchives create(File mavenHome, File directory) {
+        StringBuilder fingerprint = new StringBuilder(mavenHome.getAbsolutePath()).append('\n');
+        appendFiles(fingerprint, EmbeddedMavenCli.getM2Conf(mavenHome));
+        appendFiles(fingerprint, new File(mavenHome, "boot").listFiles());
+        appendFiles(fingerprint, new File(mavenHome, "lib").listFiles());
+        appendFiles(fingerprint, new File(mavenHome, "lib/ext").listFiles());
+        return new AppCdsArchives(mavenHome, directory, fingerprint.toString());
+    }
+
+    File getMavenHome() {
+        return mavenHome;
+    }
+
+    /**
+     * Adds the archive of the Java home of an invocation to its <code>MAVEN_OPTS</code>, or lets the invocation train
+     * it if not yet available and no other invocation is training it.
+     *
+     * @param request the invocation configured for the build job, must not be <code>null</code>
+     * @return the archive trained by the invocation, to be passed to {@link #trained(File)} after the invocation, or
+     *         <code>null</code> if not training
+     */
+    File configure(InvocationRequest request) {
+        File javaHome = getJavaHome(request);
+        String key = getArchiveName(javaHome);
+        if (key == null || hasOption(request.getMavenOpts()) || hasJvmConfigOption(request)) {
+            return null;
+        }
+        File archive = new File(directory, key);
+        if (archive.isFile()) {
+            addMavenOpts(request, SHARED_ARCHIVE_FILE + archive.getAbsolutePath());
+            return null;
+        }
+        synchronized (this) {
+            if (unsupported.contains(key) || !training.add(key)) {
+                return null;
+            }
+        }
+        try {
+            Files.createDirectories(directory.toPath());
+        } catch (IOException e) {
+            trained(archive);
+            return null;
+        }
+        // the archive is written at the exit of the process, parallel invocations must not map it before
+        File trainingArchive = new File(directory, key + "." + trainingCount.incrementAndGet() + ".tmp");
+        addMavenOpts(request, ARCHIVE_CLASSES_AT_EXIT + trainingArchive.getAbsolutePath());
+        return trainingArchive;
+    }
+
+    /**
+     * Publishes the archive trained by an invocation. If the invocation did not write it, the Java home is not used
+     * for archives any more.
+     *
+     * @param trainingArchive the archive returned by {@link #configure(InvocationRequest)}, must not be
+     *            <code>null</code>
+     */
+    void trained(File trainingArchive) {
+        String name = trainingArchive.getName();
+        String key = name.substring(0, name.indexOf(".jsa") + ".jsa".length());
+        boolean published = false;
+        try {
+            if (trainingArchive.length() > 0) {
+                Files.move(
+                        trainingArchive.toPath(),
+                        new File(directory, key).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                published = true;
+            } else {
+                Files.deleteIfExists(trainingArchive.toPath());
+            }
+        } catch (IOException e) {
+            // not published
+        }
+        synchronized (this) {
+            training.remove(key);
+            if (!published) {
+                unsupported.add(key);
+            }
+        }
+    }
+
+    /**
+     * Gets the file name of the archive of a Java home.
+     *
+     * @param javaHome the Java home, must not be <code>null</code>
+     * @return the name or <code>null</code> if the Java home does not support dynamic archives
+     */
+    String getArchiveName(File javaHome) {
+        File release = new File(javaHome, "release");
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(release.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+        if (parseJavaVersion(lines) < MIN_JAVA_VERSION) {
+            return null;
+        }
+        StringBuilder fingerprint = new StringBuilder(mavenFingerprint);
+        fingerprint.append(javaHome.getAbsolutePath()).append('\n');
+        lines.forEach(line -> fingerprint.append(line).append('\n'));
+        appendFiles(fingerprint, new File(javaHome, "lib/modules"), new File(javaHome, "lib/server/classes.jsa"));
+        return "maven-" + digest(fingerprint.toString()) + ".jsa";
+    }
+
+    /**
+     * Parses the major version of the <code>release</code> file of a Java home, like <code>JAVA_VERSION="17.0.9"</code>
+     * or <code>JAVA_VERSION="1.8.0_392"</code>.
+     *
+     * @return the major version or <code>-1</code> if not available
+     */
+    static int parseJavaVersion(List<String> release) {
+        for (String line : release) {
+            if (line.startsWith("JAVA_VERSION=")) {
+                String version = line.substring("JAVA_VERSION=".length()).replace("\"", "");
+                if (version.startsWith("1.")) {
+                    version = version.substring(2);
+                }
+                int end = 0;
+                while (end < version.length() && Character.isDigit(version.charAt(end))) {
+                    end++;
+                }
+                return end > 0 ? Integer.parseInt(version.substring(0, end)) : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the Java home running the Maven process of an invocation, like <code>bin/mvn</code> resolves it.
+     */
+    static File getJavaHome(InvocationRequest request) {
+        if (request.getJavaHome() != null) {
+            return request.getJavaHome();
+        }
+        String javaHome = request.getShellEnvironments().get("JAVA_HOME");
+        if (javaHome == null && request.isShellEnvironmentInherited()) {
+            javaHome = System.getenv("JAVA_HOME");
+        }
+        return new File(javaHome != null ? javaHome : System.getProperty("java.home"));
+    }
+
+    /**
+     * Checks whether the <code>.mvn/jvm.config</code> of the project of an invocation already chooses a class data
+     * sharing archive. A file which can not be read counts as choosing one, the invocation is left unchanged.
+     */
+    private static boolean hasJvmConfigOption(InvocationRequest request) {
+        if (request.getBaseDirectory() == null && request.getPomFile() == null) {
+            return false;
+        }
+        File projectDirectory = EmbeddedMavenCli.getMultiModuleProjectDirectory(
+                EmbeddedMavenExecutor.getWorkingDirectory(request));
+        try {
+            return hasOption(String.join(" ", MavenLauncher.getJvmConfigOptions(projectDirectory)));
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Checks whether the <code>MAVEN_OPTS</code> of an invocation already choose a class data sharing archive.
+     */
+    static boolean hasOption(String mavenOpts) {
+        return mavenOpts != null
+                && (mavenOpts.contains(SHARED_ARCHIVE_FILE)
+                        || mavenOpts.contains(ARCHIVE_CLASSES_AT_EXIT)
+                        || mavenOpts.contains("-Xshare:off"));
+    }
+
+    private static void addMavenOpts(InvocationRequest request, String option) {
+        String mavenOpts = request.getMavenOpts();
+        if (mavenOpts == null || mavenOpts.trim().isEmpty()) {
+            request.setMavenOpts(option + " " + DISABLE_CDS_LOG);
+        } else {
+            request.setMavenOpts(mavenOpts.trim() + " " + option + " " + DISABLE_CDS_LOG);
+        }
+    }
+
+    private static void appendFiles(StringBuilder fingerprint, File... files) {
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isFile()) {
+                fingerprint
+                        .append(file.getName())
+                        .append(' ')
+                        .append(file.length())
+                        .append(' ')
+                        .append(file.lastModified())
+                        .append('\n');
+            }
+        }
+    }
+
+    private static String digest(String fingerprint) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
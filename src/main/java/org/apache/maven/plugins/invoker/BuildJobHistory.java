@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.apache.maven.plugins.invoker.model.BuildJob;
+import org.apache.maven.plugins.invoker.model.io.xpp3.BuildJobXpp3Reader;
+import org.codehaus.plexus.util.xml.XmlStreamReader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Durations of build jobs recorded in previous runs, and the build jobs which failed in the previous run.
+ *
+ * @since 3.10.2
+ */
+class BuildJobHistory {
+
+    private static final String TIME_SUFFIX = ".time";
+
+    private static final String FAILED_SUFFIX = ".failed";
+
+    /**
+     * Number of the most recent durations kept for each project.
+     */
+    static final int MAX_SAMPLES = 10;
+
+    /**
+     * Failure rate added to the recorded one, so projects without failures are not all equal.
+     */
+    private static final float BASE_FAILURE_RATE = 0.05f;
+
+    /**
+     * Recorded durations in seconds per project path, the most recent at the end.
+     */
+    private final Map<String, List<Float>> durations = new TreeMap<>();
+
+    /**
+     * Recorded results per project path, <code>1</code> for a failure and <code>0</code> for a success, the most
+     * recent at the end.
+     */
+    private final Map<String, List<Integer>> results = new TreeMap<>();
+
+    private Float defaultDuration;
+
+    /**
+     * Paths of projects which failed in the previous run.
+     */
+    private final Set<String> failedProjects = new TreeSet<>();
+
+    /**
+     * The estimated duration of build jobs without recorded duration.
+     *
+     * @param defaultDuration duration in seconds, if <code>null</code> the average of all recorded durations is used
+     */
+    void setDefaultDuration(Float defaultDuration) {
+        this.defaultDuration = defaultDuration;
+    }
+
+    /**
+     * Loads the durations stored by {@link #store(File)}.
+     *
+     * @param historyFile the history file, must not be <code>null</code>
+     * @throws IOException if the existing file can not be read
+     */
+    void load(File historyFile) throws IOException {
+        if (!historyFile.isFile()) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(historyFile.toPath())) {
+            properties.load(in);
+        }
+
+        for (String key : properties.stringPropertyNames()) {
+            if (key.endsWith(TIME_SUFFIX)) {
+                String project = key.substring(0, key.length() - TIME_SUFFIX.length());
+                for (String time : properties.getProperty(key).split(",")) {
+                    addDuration(project, Float.parseFloat(time.trim()));
+                }
+            } else if (key.endsWith(FAILED_SUFFIX)) {
+                String project = key.substring(0, key.length() - FAILED_SUFFIX.length());
+                for (String failed : properties.getProperty(key).split(",")) {
+                    addResult(project, "1".equals(failed.trim()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the durations from the build reports of the previous run, for projects without recorded duration.
+     *
+     * @param reportsDirectory the directory with <code>BUILD-*.xml</code> reports, may be <code>null</code>
+     * @throws IOException if a report can not be read
+     */
+    void loadReports(File reportsDirectory) throws IOException {
+        for (BuildJob buildJob : readReports(reportsDirectory)) {
+            String project = JobExecutor.normalizeProjectPath(buildJob.getProject());
+            if (isExecuted(buildJob) && !durations.containsKey(project)) {
+                addDuration(project, buildJob.getTime());
+            }
+        }
+    }
+
+    /**
+     * Loads the projects which failed or ended with an error from the build reports of the previous run.
+     *
+     * @param reportsDirectory the directory with <code>BUILD-*.xml</code> reports, may be <code>null</code>
+     * @throws IOException if a report can not be read
+     */
+    void loadFailures(File reportsDirectory) throws IOException {
+        for (BuildJob buildJob : readReports(reportsDirectory)) {
+            if (buildJob.getResult() != null && !buildJob.isNotError()) {
+                addFailure(buildJob.getProject());
+            }
+        }
+    }
+
+    void addResult(String project, boolean failed) {
+        List<Integer> failures = results.computeIfAbsent(project, k -> new ArrayList<>());
+        failures.add(failed ? 1 : 0);
+        if (failures.size() > MAX_SAMPLES) {
+            failures.remove(0);
+        }
+    }
+
+    /**
+     * The share of recorded executions of the given project which failed. Without recorded results, a project which
+     * failed in the previous run has a failure rate of <code>1</code>.
+     *
+     * @param project the project path
+     * @return the failure rate between <code>0</code> and <code>1</code>
+     */
+    float getFailureRate(String project) {
+        List<Integer> failures = results.get(JobExecutor.normalizeProjectPath(project));
+        if (failures == null || failures.isEmpty()) {
+            return hasFailed(project) ? 1 : 0;
+        }
+        float sum = 0;
+        for (Integer failure : failures) {
+            sum += failure;
+        }
+        return sum / failures.size();
+    }
+
+    /**
+     * The failures expected per second of running the given project, used to prefer the projects most likely to find
+     * a failure in short time. Projects which never failed are assumed to fail sometimes, so the shorter ones are
+     * preferred.
+     *
+     * @param project the project path
+     * @return the failure rate divided by the estimated duration in seconds
+     */
+    float getFailureDensity(String project) {
+        return (getFailureRate(project) + BASE_FAILURE_RATE) / Math.max(1, getEstimatedDuration(project));
+    }
+
+    void addFailure(String project) {
+        failedProjects.add(JobExecutor.normalizeProjectPath(project));
+    }
+
+    /**
+     * Whether the given project failed in the previous run, see {@link #loadFailures(File)}.
+     *
+     * @param project the project path
+     * @return <code>true</code> if the project failed or ended with an error
+     */
+    boolean hasFailed(String project) {
+        return failedProjects.contains(JobExecutor.normalizeProjectPath(project));
+    }
+
+    /**
+     * @return the number of projects which failed in the previous run
+     */
+    int getFailedCount() {
+        return failedProjects.size();
+    }
+
+    private static List<BuildJob> readReports(File reportsDirectory) throws IOException {
+        BuildJobXpp3Reader reader = new BuildJobXpp3Reader();
+        List<BuildJob> buildJobs = new ArrayList<>();
+        for (File reportFile : ReportUtils.getReportFiles(reportsDirectory)) {
+            try (Reader xmlReader = new XmlStreamReader(reportFile)) {
+                buildJobs.add(reader.read(xmlReader));
+            } catch (XmlPullParserException e) {
+                throw new IOException("Failed to parse report file: " + reportFile, e);
+            }
+        }
+        return buildJobs;
+    }
+
+    /**
+     * Records the durations and results of the executed build jobs.
+     *
+     * @param buildJobs the build jobs of the current run, must not be <code>null</code>
+     */
+    void record(Collection<BuildJob> buildJobs) {
+        for (BuildJob buildJob : buildJobs) {
+            if (isExecuted(buildJob)) {
+                addDuration(JobExecutor.normalizeProjectPath(buildJob.getProject()), buildJob.getTime());
+            }
+            if (buildJob.getResult() != null && !BuildJob.Result.SKIPPED.equals(buildJob.getResult())) {
+                addResult(JobExecutor.normalizeProjectPath(buildJob.getProject()), !buildJob.isNotError());
+            }
+        }
+    }
+
+    /**
+     * Stores the recorded durations.
+     *
+     * @param historyFile the history file, must not be <code>null</code>
+     * @throws IOException if the file can not be written
+     */
+    void store(File historyFile) throws IOException {
+        Properties properties = new Properties();
+        durations.forEach((project, times) -> properties.setProperty(
+                project + TIME_SUFFIX, times.stream().map(String::valueOf).collect(Collectors.joining(","))));
+        results.forEach((project, failures) -> properties.setProperty(
+                project + FAILED_SUFFIX, failures.stream().map(String::valueOf).collect(Collectors.joining(","))));
+
+        if (historyFile.getParentFile() != null) {
+            Files.createDirectories(historyFile.getParentFile().toPath());
+        }
+        try (OutputStream out = Files.newOutputStream(historyFile.toPath())) {
+            properties.store(out, "Durations of invoker build jobs in seconds and their failures");
+        }
+    }
+
+    void addDuration(String project, float time) {
+        List<Float> times = durations.computeIfAbsent(project, k -> new ArrayList<>());
+        times.add(time);
+        if (times.size() > MAX_SAMPLES) {
+            times.remove(0);
+        }
+    }
+
+    /**
+     * Recorded durations of the given project.
+     *
+     * @param project the project path
+     * @return the durations in seconds, the most recent at the end, empty if none was recorded
+     */
+    List<Float> getDurations(String project) {
+        return durations.getOrDefault(JobExecutor.normalizeProjectPath(project), new ArrayList<>());
+    }
+
+    /**
+     * Estimated duration of the given project, the average of its recorded durations.
+     *
+     * @param project the project path
+     * @return the duration in seconds
+     */
+    float getEstimatedDuration(String project) {
+        List<Float> times = getDurations(project);
+        if (!times.isEmpty()) {
+            return average(times);
+        }
+        if (defaultDuration != null) {
+            return defaultDuration;
+        }
+        List<Float> averages =
+                durations.values().stream().map(BuildJobHistory::average).collect(Collectors.toList());
+        return averages.isEmpty() ? 0 : average(averages);
+    }
+
+    /**
+     * The given percentile of the recorded durations of the given project, using the nearest rank.
+     *
+     * @param project the project path
+     * @param percentile the percentile, between <code>0</code> and <code>100</code>
+     * @return the duration in seconds, <code>0</code> if no duration was recorded
+     */
+    float getPercentileDuration(String project, int percentile) {
+        List<Float> times = new ArrayList<>(getDurations(project));
+        if (times.isEmpty()) {
+            return 0;
+        }
+        Collections.sort(times);
+        int rank = (int) Math.ceil(percentile / 100.0 * times.size());
+        return times.get(Math.max(0, Math.min(times.size(), rank) - 1));
+    }
+
+    private static float average(List<Float> values) {
+        float sum = 0;
+        for (Float value : values) {
+            sum += value;
+        }
+        return sum / values.size();
+    }
+
+    private static boolean isExecuted(BuildJob buildJob) {
+        return buildJob.getResult() != null
+                && !BuildJob.Result.SKIPPED.equals(buildJob.getResult())
+                && !BuildJob.Result.ERROR.equals(buildJob.getResult())
+                && buildJob.getTime() > 0;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.maven.plugins.invoker.model.BuildJob;
+
+/**
+ * Splits build jobs into disjoint shards, executed e.g. on different CI nodes.
+ * <p>
+ * Build jobs connected by {@code dependsOn} are kept in one shard. Such groups are assigned, the longest first, to the
+ * shard with the shortest total estimated duration, so all shards take about the same time. The assignment depends
+ * only on the build jobs and the history, so all nodes compute the same shards given the same history.
+ * <p>
+ * Setup build jobs are part of every shard.
+ *
+ * @since 3.10.2
+ */
+class BuildJobSharding {
+
+    private final int shardCount;
+    private final BuildJobHistory history;
+
+    /**
+     * @param shardCount the number of shards
+     * @param history the recorded durations, may be <code>null</code> to balance the shards by the number of jobs
+     */
+    BuildJobSharding(int shardCount, BuildJobHistory history) {
+        this.shardCount = shardCount;
+        this.history = history;
+    }
+
+    /**
+     * Selects the build jobs of one shard.
+     *
+     * @param buildJobs all build jobs, must not be <code>null</code>
+     * @param shardIndex the index of the shard, between <code>1</code> and the number of shards
+     * @return the build jobs of the shard in the original order
+     */
+    List<BuildJob> select(List<BuildJob> buildJobs, int shardIndex) {
+        Map<BuildJob, Integer> shards = assign(buildJobs);
+        return buildJobs.stream()
+                .filter(job -> BuildJob.Type.SETUP.equals(job.getType()) || shards.get(job) == shardIndex)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Assigns the non-setup build jobs to shards.
+     *
+     * @param buildJobs all build jobs, must not be <code>null</code>
+     * @return the shard index of each non-setup build job
+     */
+    Map<BuildJob, Integer> assign(List<BuildJob> buildJobs) {
+        List<List<BuildJob>> groups = new ArrayList<>(groupByDependencies(buildJobs).values());
+        // deterministic order: the longest groups first, then by the path of their first project
+        groups.sort(Comparator.comparing(this::getEstimatedDuration)
+                .reversed()
+                .thenComparing(group -> JobExecutor.normalizeProjectPath(group.get(0).getProject())));
+
+        float[] shardDurations = new float[shardCount];
+        int[] shardSizes = new int[shardCount];
+        Map<BuildJob, Integer> shards = new HashMap<>();
+        for (List<BuildJob> group : groups) {
+            int shard = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (shardDurations[i] < shardDurations[shard]
+                        || (shardDurations[i] == shardDurations[shard] && shardSizes[i] < shardSizes[shard])) {
+                    shard = i;
+                }
+            }
+            shardDurations[shard] += getEstimatedDuration(group);
+            shardSizes[shard] += group.size();
+            for (BuildJob buildJob : group) {
+                shards.put(buildJob, shard + 1);
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Writes the projects of a shard, so the shards can be checked for full coverage.
+     *
+     * @param buildJobs the build jobs of the shard, must not be <code>null</code>
+     * @param shardIndex the index of the shard
+     * @param manifestFile the file to write, must not be <code>null</code>
+     * @throws IOException if the file can not be written
+     */
+    void writeManifest(List<BuildJob> buildJobs, int shardIndex, File manifestFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# invoker shard " + shardIndex + " of " + shardCount + ", setup projects are part of every shard");
+        buildJobs.stream()
+                .map(job -> JobExecutor.normalizeProjectPath(job.getProject())
+                        + (BuildJob.Type.SETUP.equals(job.getType()) ? " (setup)" : ""))
+                .sorted()
+                .forEach(lines::add);
+
+        if (manifestFile.getParentFile() != null) {
+            Files.createDirectories(manifestFile.getParentFile().toPath());
+        }
+        Files.write(manifestFile.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Groups the non-setup build jobs connected by {@code dependsOn}.
+     */
+    private Map<String, List<BuildJob>> groupByDependencies(List<BuildJob> buildJobs) {
+        Map<String, String> parents = new HashMap<>();
+        Map<String, BuildJob> jobsByPath = new LinkedHashMap<>();
+        for (BuildJob buildJob : buildJobs) {
+            if (!BuildJob.Type.SETUP.equals(buildJob.getType())) {
+                String path = JobExecutor.normalizeProjectPath(buildJob.getProject());
+                jobsByPath.put(path, buildJob);
+                parents.put(path, path);
+            }
+        }
+
+        for (BuildJob buildJob : jobsByPath.values()) {
+            if (buildJob.getDependsOn() != null) {
+                for (String dependsOn : buildJob.getDependsOn().split(",")) {
+                    String dependency = JobExecutor.normalizeProjectPath(dependsOn);
+                    if (parents.containsKey(dependency)) {
+                        parents.put(
+                                findRoot(parents, dependency),
+                                findRoot(parents, JobExecutor.normalizeProjectPath(buildJob.getProject())));
+                    }
+                }
+            }
+        }
+
+        Map<String, List<BuildJob>> groups = new LinkedHashMap<>();
+        jobsByPath.forEach((path, buildJob) -> groups.computeIfAbsent(findRoot(parents, path), k -> new ArrayList<>())
+                .add(buildJob));
+        // independent of the order in which the projects were found
+        groups.values()
+                .forEach(group ->
+                        group.sort(Comparator.comparing(job -> JobExecutor.normalizeProjectPath(job.getProject()))));
+        return groups;
+    }
+
+    private static String findRoot(Map<String, String> parents, String path) {
+        String root = path;
+        while (!parents.get(root).equals(root)) {
+            root = parents.get(root);
+        }
+        return root;
+    }
+
+    private float getEstimatedDuration(List<BuildJob> group) {
+        if (history == null) {
+            return group.size();
+        }
+        float duration = 0;
+        for (BuildJob buildJob : group) {
+            duration += history.getEstimatedDuration(buildJob.getProject());
+        }
+        return duration;
+    }
+}
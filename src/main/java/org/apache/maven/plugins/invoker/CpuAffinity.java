@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.maven.shared.invoker.CommandLineConfigurationException;
+import org.apache.maven.shared.invoker.InvocationRequest;
+import org.apache.maven.shared.invoker.MavenCommandLineBuilder;
+
+/**
+ * Pins the Maven processes of build jobs to disjoint sets of processors on Linux, one set per worker.
+ * <p>
+ * The processors available to this process are split into one set per worker. The Maven executable of an invocation
+ * is started through a launcher script calling <code>taskset</code> with the set of the worker running the build job,
+ * and <code>-XX:ActiveProcessorCount</code> is added to the <code>MAVEN_OPTS</code>, so the JIT compiler and garbage
+ * collector threads of the Maven process fit the set.
+ *
+ * @since 3.10.2
+ */
+class CpuAffinity {
+
+    static final String CPU_SET_VARIABLE = "INVOKER_CPU_SET";
+
+    static final String MAVEN_EXECUTABLE_VARIABLE = "INVOKER_MAVEN_EXECUTABLE";
+
+    private static final String ACTIVE_PROCESSOR_COUNT = "-XX:ActiveProcessorCount=";
+
+    private static final Path STATUS = Paths.get("/proc/self/status");
+
+    private final List<List<Integer>> cpuSets;
+    private final File launcher;
+
+    CpuAffinity(List<List<Integer>> cpuSets, File launcher) {
+        this.cpuSets = cpuSets;
+        this.launcher = launcher;
+    }
+
+    /**
+     * Creates the launcher script and splits the processors available to this process.
+     *
+     * @param launcher the launcher script to write, must not be <code>null</code>
+     * @param workers the number of workers running build jobs at the same time
+     * @return the CPU affinity or <code>null</code> if not supported on this system
+     * @throws IOException if the launcher script can not be written
+     */
+    static CpuAffinity create(File launcher, int workers) throws IOException {
+        List<Integer> cpus = getAllowedCpus();
+        if (cpus.isEmpty() || !isTasksetAvailable()) {
+            return null;
+        }
+        Files.createDirectories(launcher.getParentFile().toPath());
+        Files.write(
+                launcher.toPath(),
+                ("#!/bin/sh\nexec taskset -c \"$" + CPU_SET_VARIABLE + "\" \"$" + MAVEN_EXECUTABLE_VARIABLE
+                                + "\" \"$@\"\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        if (!launcher.setExecutable(true)) {
+            throw new IOException("Failed to make " + launcher + " executable");
+        }
+        return new CpuAffinity(partition(cpus, workers), launcher);
+    }
+
+    /**
+     * Gets the processors of a worker.
+     *
+     * @param worker the index of the worker
+     * @return the processors, never empty
+     */
+    List<Integer> getCpuSet(int worker) {
+        return cpuSets.get(worker % cpuSets.size());
+    }
+
+    /**
+     * Runs the Maven executable of an invocation pinned to the processors of a worker.
+     *
+     * @param request the invocation configured for the build job, must not be <code>null</code>
+     * @param worker the index of the worker running the build job
+     * @throws CommandLineConfigurationException if the Maven executable can not be found
+     */
+    void configure(InvocationRequest request, int worker) throws CommandLineConfigurationException {
+        List<Integer> cpuSet = getCpuSet(worker);
+        MavenCommandLineBuilder commandLineBuilder = new MavenCommandLineBuilder();
+        commandLineBuilder.build(request);
+        String executable = commandLineBuilder.getMavenExecutable().getPath();
+
+        request.setMavenExecutable(launcher);
+        request.addShellEnvironment(MAVEN_EXECUTABLE_VARIABLE, executable);
+        request.addShellEnvironment(CPU_SET_VARIABLE, formatCpuList(cpuSet));
+
+        String mavenOpts = request.getMavenOpts();
+        if (mavenOpts == null || mavenOpts.trim().isEmpty()) {
+            request.setMavenOpts(ACTIVE_PROCESSOR_COUNT + cpuSet.size());
+        } else if (!mavenOpts.contains(ACTIVE_PROCESSOR_COUNT)) {
+            request.setMavenOpts(mavenOpts.trim() + " " + ACTIVE_PROCESSOR_COUNT + cpuSet.size());
+        }
+    }
+
+    /**
+     * Splits processors into disjoint sets of about the same size, at most one set per processor.
+     *
+     * @param cpus the processors, must not be empty
+     * @param count the number of sets
+     * @return the sets of processors
+     */
+    static List<List<Integer>> partition(List<Integer> cpus, int count) {
+        int sets = Math.max(1, Math.min(count, cpus.size()));
+        List<List<Integer>> cpuSets = new ArrayList<>();
+        for (int i = 0; i < sets; i++) {
+            cpuSets.add(new ArrayList<>(cpus.subList(i * cpus.size() / sets, (i + 1) * cpus.size() / sets)));
+        }
+        return cpuSets;
+    }
+
+    /**
+     * Parses a list of processors in the format of <code>Cpus_allowed_list</code>, like <code>0-3,8,10-11</code>.
+     */
+    static List<Integer> parseCpuList(String cpuList) {
+        List<Integer> cpus = new ArrayList<>();
+        for (String range : cpuList.trim().split(",")) {
+            if (range.isEmpty()) {
+                continue;
+            }
+            int separator = range.indexOf('-');
+            int first = Integer.parseInt(separator < 0 ? range : range.substring(0, separator));
+            int last = separator < 0 ? first : Integer.parseInt(range.substring(separator + 1));
+            for (int cpu = first; cpu <= last; cpu++) {
+                cpus.add(cpu);
+            }
+        }
+        return cpus;
+    }
+
+    static String formatCpuList(List<Integer> cpus) {
+        return cpus.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    private static List<Integer> getAllowedCpus() {
+        try {
+            if (Files.isReadable(STATUS)) {
+                for (String line : Files.readAllLines(STATUS)) {
+                    if (line.startsWith("Cpus_allowed_list:")) {
+                        return parseCpuList(line.substring("Cpus_allowed_list:".length()));
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not supported
+        }
+        return Collections.emptyList();
+    }
+
+    private static boolean isTasksetAvailable() {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return false;
+        }
+        for (String directory : path.split(File.pathSeparator)) {
+            if (new File(directory, "taskset").canExecute()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
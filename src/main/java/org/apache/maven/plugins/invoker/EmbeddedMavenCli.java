@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Maven 3 command line loaded into a class world configured by <code>bin/m2.conf</code> of a Maven installation,
+ * like the classworlds launcher started by <code>bin/mvn</code> does. Classworlds is loaded from the
+ * <code>boot</code> directory of the Maven installation and used by reflection.
+ * <p>
+ * Uses only classes of the JDK, so it can be loaded in a {@link MavenWorker} without further class path.
+ *
+ * @since 3.10.2
+ */
+class EmbeddedMavenCli implements Closeable {
+
+    static final String MAVEN_CLI = "org.apache.maven.cli.MavenCli";
+
+    private static final String LAUNCHER = "org.codehaus.plexus.classworlds.launcher.Launcher";
+
+    private static final String CLASS_WORLD = "org.codehaus.plexus.classworlds.ClassWorld";
+
+    private static final String MULTI_MODULE_PROJECT_DIRECTORY = "maven.multiModuleProjectDirectory";
+
+    private final File mavenHome;
+    private final URLClassLoader bootLoader;
+    private final Object world;
+    private final ClassLoader mainRealm;
+    private final Constructor<?> cliConstructor;
+    private final Method doMain;
+
+    private EmbeddedMavenCli(
+            File mavenHome,
+            URLClassLoader bootLoader,
+            Object world,
+            ClassLoader mainRealm,
+            Constructor<?> cliConstructor,
+            Method doMain) {
+        this.mavenHome = mavenHome;
+        this.bootLoader = bootLoader;
+        this.world = world;
+        this.mainRealm = mainRealm;
+        this.cliConstructor = cliConstructor;
+        this.doMain = doMain;
+    }
+
+    /**
+     * Gets the class path of the classworlds launcher of a Maven installation.
+     *
+     * @param mavenHome the home directory of the Maven installation, must not be <code>null</code>
+     * @return the class path or <code>null</code> if the installation does not start the Maven 3 command line
+     * @throws IOException if the installation can not be read
+     */
+    static URL[] getBootClassPath(File mavenHome) throws IOException {
+        File m2Conf = getM2Conf(mavenHome);
+        File[] bootJars = new File(mavenHome, "boot").listFiles((dir, name) -> name.endsWith(".jar"));
+        if (!m2Conf.isFile() || bootJars == null || bootJars.length == 0 || !isMavenCli(m2Conf)) {
+            return null;
+        }
+        Arrays.sort(bootJars);
+        URL[] bootClassPath = new URL[bootJars.length];
+        for (int i = 0; i < bootJars.length; i++) {
+            bootClassPath[i] = bootJars[i].toURI().toURL();
+        }
+        return bootClassPath;
+    }
+
+    static File getM2Conf(File mavenHome) {
+        return new File(mavenHome, "bin/m2.conf");
+    }
+
+    private static boolean isMavenCli(File m2Conf) throws IOException {
+        for (String line : Files.readAllLines(m2Conf.toPath(), StandardCharsets.UTF_8)) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens.length >= 3 && "main".equals(tokens[0]) && "is".equals(tokens[1])) {
+                return MAVEN_CLI.equals(tokens[2]);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loads the Maven command line into a new class world.
+     *
+     * @param mavenHome the home directory of the Maven installation, must not be <code>null</code>
+     * @param bootClassPath the class path of the classworlds launcher, must not be <code>null</code>
+     * @return the command line, to be closed after use
+     * @throws IOException if the configuration of the class world can not be read
+     * @throws ReflectiveOperationException if the classes of Maven can not be loaded
+     */
+    static EmbeddedMavenCli load(File mavenHome, URL[] bootClassPath)
+            throws IOException, ReflectiveOperationException {
+        Map<String, String> systemProperties = getSystemProperties(Collections.singleton("maven.home"));
+        URLClassLoader bootLoader = new URLClassLoader(bootClassPath, ClassLoader.getSystemClassLoader().getParent());
+        try {
+            // used in m2.conf
+            System.setProperty("maven.home", mavenHome.getAbsolutePath());
+
+            Class<?> launcherType = bootLoader.loadClass(LAUNCHER);
+            Object launcher = launcherType.getConstructor().newInstance();
+            launcherType.getMethod("setSystemClassLoader", ClassLoader.class).invoke(launcher, bootLoader);
+            try (InputStream is = Files.newInputStream(getM2Conf(mavenHome).toPath())) {
+                launcherType.getMethod("configure", InputStream.class).invoke(launcher, is);
+            }
+            Object world = launcherType.getMethod("getWorld").invoke(launcher);
+            ClassLoader mainRealm = (ClassLoader) launcherType.getMethod("getMainRealm").invoke(launcher);
+            Class<?> cliType = (Class<?>) launcherType.getMethod("getMainClass").invoke(launcher);
+            return new EmbeddedMavenCli(
+                    mavenHome,
+                    bootLoader,
+                    world,
+                    mainRealm,
+                    cliType.getConstructor(bootLoader.loadClass(CLASS_WORLD)),
+                    cliType.getMethod("doMain", String[].class, String.class, PrintStream.class, PrintStream.class));
+        } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+            bootLoader.close();
+            throw e;
+        } finally {
+            restoreSystemProperties(systemProperties);
+        }
+    }
+
+    /**
+     * Runs Maven with the system properties set like <code>bin/mvn</code> does. Afterwards the system properties set
+     * for the run and the user properties of the command line, which Maven copies to the system properties, get their
+     * previous values again, other system properties are left alone. Must not be called concurrently.
+     * <p>
+     * The working directory is only passed as <code>user.dir</code>, the process keeps its own, so relative files
+     * which are not resolved by Maven against its base directory are resolved against the one of the process.
+     *
+     * @param args the arguments of the Maven command line, must not be <code>null</code>
+     * @param workingDirectory the working directory of Maven, must not be <code>null</code>
+     * @param out the standard output of Maven, must not be <code>null</code>
+     * @param err the standard error of Maven, must not be <code>null</code>
+     * @return the exit code of Maven
+     * @throws InvocationTargetException if Maven failed with an exception
+     * @throws ReflectiveOperationException if Maven can not be started
+     */
+    int doMain(String[] args, File workingDirectory, PrintStream out, PrintStream err)
+            throws ReflectiveOperationException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("maven.home", mavenHome.getAbsolutePath());
+        properties.put("user.dir", workingDirectory.getAbsolutePath());
+        properties.put(
+                MULTI_MODULE_PROJECT_DIRECTORY,
+                getMultiModuleProjectDirectory(workingDirectory).getAbsolutePath());
+        Set<String> names = new HashSet<>(properties.keySet());
+        names.addAll(getUserPropertyNames(args));
+        Map<String, String> systemProperties = getSystemProperties(names);
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try {
+            properties.forEach(System::setProperty);
+            thread.setContextClassLoader(mainRealm);
+
+            Object cli = cliConstructor.newInstance(world);
+            return (Integer) doMain.invoke(cli, args, workingDirectory.getAbsolutePath(), out, err);
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+            restoreSystemProperties(systemProperties);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (world instanceof Closeable) {
+                ((Closeable) world).close();
+            }
+        } finally {
+            bootLoader.close();
+        }
+    }
+
+    /**
+     * Looks for the directory with <code>.mvn</code> like <code>bin/mvn</code> does.
+     *
+     * @param workingDirectory the working directory of the invocation, must not be <code>null</code>
+     * @return the top most project directory, the working directory if no parent has <code>.mvn</code>
+     */
+    static File getMultiModuleProjectDirectory(File workingDirectory) {
+        for (File dir = workingDirectory.getAbsoluteFile(); dir != null; dir = dir.getParentFile()) {
+            if (new File(dir, ".mvn").isDirectory()) {
+                return dir;
+            }
+        }
+        return workingDirectory;
+    }
+
+    /**
+     * Gets the names of the user properties of a Maven command line, given as <code>-D name=value</code> or
+     * <code>-Dname=value</code>.
+     *
+     * @param args the arguments of the Maven command line, must not be <code>null</code>
+     * @return the names of the properties
+     */
+    static Set<String> getUserPropertyNames(String[] args) {
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < args.length; i++) {
+            String property = null;
+            if (("-D".equals(args[i]) || "--define".equals(args[i])) && i + 1 < args.length) {
+                property = args[++i];
+            } else if (args[i].startsWith("-D")) {
+                property = args[i].substring(2);
+            }
+            if (property != null) {
+                int separator = property.indexOf('=');
+                names.add((separator >= 0 ? property.substring(0, separator) : property).trim());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Gets the current values of some system properties.
+     *
+     * @return the values by name, <code>null</code> for properties which are not set
+     */
+    private static Map<String, String> getSystemProperties(Set<String> names) {
+        Map<String, String> values = new HashMap<>();
+        for (String name : names) {
+            values.put(name, System.getProperty(name));
+        }
+        return values;
+    }
+
+    private static void restoreSystemProperties(Map<String, String> values) {
+        values.forEach((name, value) -> {
+            if (value == null) {
+                System.clearProperty(name);
+            } else {
+                System.setProperty(name, value);
+            }
+        });
+    }
+
+    /**
+     * Splits the output written by Maven into lines. Output written while a line is consumed, e.g. by a consumer
+     * mirroring the lines to the log of this Maven process, goes to the original stream.
+     */
+    abstract static class LineOutputStream extends OutputStream {
+
+        private final OutputStream original;
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+
+        private boolean consuming;
+
+        LineOutputStream(OutputStream original) {
+            this.original = original;
+        }
+
+        /**
+         * Consumes a line written by Maven.
+         *
+         * @param line the line without line terminator, never <code>null</code>
+         * @throws IOException if the line can not be consumed
+         */
+        protected abstract void consumeLine(String line) throws IOException;
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (consuming) {
+                original.write(b);
+            } else if (b == '\n') {
+                flushLine();
+            } else {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (line.size() > 0) {
+                flushLine();
+            }
+        }
+
+        private void flushLine() throws IOException {
+            byte[] bytes = line.toByteArray();
+            int length = bytes.length;
+            if (length > 0 && bytes[length - 1] == '\r') {
+                length--;
+            }
+            line.reset();
+            consuming = true;
+            try {
+                consumeLine(new String(bytes, 0, length, Charset.defaultCharset()));
+            } finally {
+                consuming = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.maven.shared.invoker.CommandLineConfigurationException;
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+import org.apache.maven.shared.invoker.InvocationRequest;
+import org.apache.maven.shared.invoker.MavenCommandLineBuilder;
+import org.apache.maven.shared.invoker.MavenInvocationException;
+
+/**
+ * Runs Maven invocations inside this JVM instead of forking a new Maven process, the classes of Maven are loaded by
+ * a new class world per invocation.
+ * <p>
+ * The command line of Maven uses system properties and the standard streams of the JVM, so invocations are executed
+ * one at a time, the system properties set by an invocation are restored after it. A thread waiting for its turn can
+ * be interrupted.
+ *
+ * @since 3.10.2
+ */
+class EmbeddedMavenExecutor {
+
+    /**
+     * Guards the system properties and standard streams, shared by all executors of this JVM.
+     */
+    private static final Lock LOCK = new ReentrantLock();
+
+    private final File mavenHome;
+    private final URL[] bootClassPath;
+
+    EmbeddedMavenExecutor(File mavenHome, URL[] bootClassPath) {
+        this.mavenHome = mavenHome;
+        this.bootClassPath = bootClassPath;
+    }
+
+    /**
+     * Resolves the boot class path of a Maven installation.
+     *
+     * @param mavenHome the home directory of the Maven installation, must not be <code>null</code>
+     * @return the executor or <code>null</code> if the installation does not start the Maven 3 command line
+     * @throws IOException if the installation can not be read
+     */
+    static EmbeddedMavenExecutor create(File mavenHome) throws IOException {
+        URL[] bootClassPath = EmbeddedMavenCli.getBootClassPath(mavenHome);
+        return bootClassPath != null ? new EmbeddedMavenExecutor(mavenHome, bootClassPath) : null;
+    }
+
+    File getMavenHome() {
+        return mavenHome;
+    }
+
+    /**
+     * Checks whether an invocation must be forked, because it needs a setting which only applies to a new process.
+     *
+     * @param request the invocation configured for the build job, must not be <code>null</code>
+     * @return the reason to fork the invocation or <code>null</code> if it can be run inside this JVM
+     */
+    String getForkReason(InvocationRequest request) {
+        if (request.getMavenExecutable() != null) {
+            return "Maven executable " + request.getMavenExecutable();
+        }
+        if (request.getMavenHome() != null && !isSameFile(request.getMavenHome(), mavenHome)) {
+            return "Maven home " + request.getMavenHome();
+        }
+        if (request.getJavaHome() != null && !isCurrentJavaHome(request.getJavaHome())) {
+            return "Java home " + request.getJavaHome();
+        }
+        if (request.getMavenOpts() != null && !request.getMavenOpts().trim().isEmpty()) {
+            return "MAVEN_OPTS " + request.getMavenOpts().trim();
+        }
+        if (request.getTimeoutInSeconds() > 0) {
+            return "timeout";
+        }
+        for (String name : request.getShellEnvironments().keySet()) {
+            // mirrored as user properties
+            if (!name.startsWith("INVOKER_PORT_")) {
+                return "environment variable " + name;
+            }
+        }
+        File jvmConfig = getJvmConfig(request);
+        if (jvmConfig.length() > 0) {
+            return jvmConfig.getPath();
+        }
+        return null;
+    }
+
+    /**
+     * Runs an invocation inside this JVM.
+     *
+     * @param request the invocation configured for the build job, must not be <code>null</code>
+     * @return the exit code of Maven
+     * @throws MavenInvocationException if Maven could not be started
+     */
+    int execute(InvocationRequest request) throws MavenInvocationException {
+        String[] args = getArguments(request);
+        File workingDirectory = getWorkingDirectory(request);
+
+        try (PrintStream out = newPrintStream(request.getOutputHandler(null), System.out);
+                PrintStream err = newPrintStream(request.getErrorHandler(null), System.err)) {
+            LOCK.lockInterruptibly();
+            try (EmbeddedMavenCli cli = EmbeddedMavenCli.load(mavenHome, bootClassPath)) {
+                return cli.doMain(args, workingDirectory, out, err);
+            } finally {
+                LOCK.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MavenInvocationException("Interrupted while waiting to run Maven in-process", e);
+        } catch (InvocationTargetException e) {
+            throw new MavenInvocationException(
+                    "Error running Maven in-process: " + e.getCause().getMessage(), e.getCause());
+        } catch (ReflectiveOperationException | IOException | RuntimeException e) {
+            throw new MavenInvocationException("Error running Maven in-process: " + e.getMessage(), e);
+        }
+    }
+
+    static String[] getArguments(InvocationRequest request) throws MavenInvocationException {
+        try {
+            return new MavenCommandLineBuilder().build(request).getArguments();
+        } catch (CommandLineConfigurationException e) {
+            throw new MavenInvocationException("Error configuring command line", e);
+        }
+    }
+
+    static File getWorkingDirectory(InvocationRequest request) {
+        if (request.getBaseDirectory() != null) {
+            return request.getBaseDirectory();
+        }
+        return request.getPomFile().getAbsoluteFile().getParentFile();
+    }
+
+    static File getJvmConfig(InvocationRequest request) {
+        File projectDirectory = EmbeddedMavenCli.getMultiModuleProjectDirectory(getWorkingDirectory(request));
+        return new File(projectDirectory, ".mvn/jvm.config");
+    }
+
+    static boolean isCurrentJavaHome(File javaHome) {
+        File currentJavaHome = new File(System.getProperty("java.home"));
+        if (isSameFile(javaHome, currentJavaHome)) {
+            return true;
+        }
+        // java.home is the jre sub directory of a JDK before Java 9
+        return "jre".equals(currentJavaHome.getName()) && isSameFile(javaHome, currentJavaHome.getParentFile());
+    }
+
+    static boolean isSameFile(File file, File other) {
+        try {
+            return file.getCanonicalFile().equals(other.getCanonicalFile());
+        } catch (IOException e) {
+            return file.getAbsoluteFile().equals(other.getAbsoluteFile());
+        }
+    }
+
+    static PrintStream newPrintStream(InvocationOutputHandler handler, PrintStream defaultStream) {
+        if (handler == null) {
+            return new PrintStream(new NonClosingOutputStream(defaultStream), true);
+        }
+        return new PrintStream(new OutputHandlerStream(handler, defaultStream), true);
+    }
+
+    /**
+     * Hands the lines written by Maven to the output handler of the invocation.
+     */
+    static class OutputHandlerStream extends EmbeddedMavenCli.LineOutputStream {
+
+        private final InvocationOutputHandler handler;
+
+        OutputHandlerStream(InvocationOutputHandler handler, OutputStream original) {
+            super(original);
+            this.handler = handler;
+        }
+
+        @Override
+        protected void consumeLine(String line) throws IOException {
+            handler.consumeLine(line);
+        }
+    }
+
+    private static class NonClosingOutputStream extends OutputStream {
+
+        private final OutputStream delegate;
+
+        NonClosingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+    }
+}
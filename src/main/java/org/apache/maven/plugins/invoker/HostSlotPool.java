@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugins.invoker.model.BuildJob;
+
+/**
+ * Slots shared by all Maven processes on a host, one lock file per slot in a common directory.
+ * <p>
+ * A slot is taken by locking its file. The locks are released by the operating system when a process ends, so slots
+ * of crashed processes are free again right away. The files themselves are kept and reused, each contains the
+ * process which took the slot last.
+ * <p>
+ * File locks belong to the whole process, and closing any channel of a file releases all locks of the process on it.
+ * So the slots held by this process are recorded for all pools, a held slot is never opened again, and the channel of
+ * a slot file is opened once and kept open.
+ *
+ * @since 3.10.2
+ */
+class HostSlotPool implements JobExecutor.SlotPool {
+
+    // the channels of the slot files opened by this process and the locks of the slots it holds, guarded by CHANNELS
+    private static final Map<Path, FileChannel> CHANNELS = new HashMap<>();
+    private static final Map<Path, FileLock> HELD_LOCKS = new HashMap<>();
+
+    private final Path directory;
+    private final int size;
+
+    // slot files locked for the running jobs of this pool, guarded by CHANNELS
+    private final Map<BuildJob, List<Path>> jobSlots = new HashMap<>();
+
+    /**
+     * @param directory the directory of the lock files, created if missing
+     * @param size the number of slots on the host
+     * @throws IOException if the directory can not be created
+     */
+    HostSlotPool(Path directory, int size) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory.toRealPath();
+        this.size = Math.max(1, size);
+    }
+
+    @Override
+    public boolean tryAcquire(BuildJob buildJob, int slots) {
+        int required = Math.min(size, slots);
+        synchronized (CHANNELS) {
+            List<Path> acquired = new ArrayList<>();
+            for (int slot = 0; slot < size && acquired.size() < required; slot++) {
+                Path file = directory.resolve("slot-" + slot + ".lock");
+                if (!HELD_LOCKS.containsKey(file) && tryLock(file)) {
+                    acquired.add(file);
+                }
+            }
+            if (acquired.size() < required) {
+                acquired.forEach(HostSlotPool::release);
+                return false;
+            }
+            jobSlots.put(buildJob, acquired);
+            return true;
+        }
+    }
+
+    @Override
+    public void release(BuildJob buildJob) {
+        synchronized (CHANNELS) {
+            List<Path> files = jobSlots.remove(buildJob);
+            if (files != null) {
+                files.forEach(HostSlotPool::release);
+            }
+        }
+    }
+
+    /**
+     * Locks a slot file not held by this process, must be called while holding the lock of the channels.
+     */
+    private static boolean tryLock(Path file) {
+        try {
+            FileChannel channel = CHANNELS.get(file);
+            if (channel == null || !channel.isOpen()) {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                CHANNELS.put(file, channel);
+            }
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return false;
+            }
+            HELD_LOCKS.put(file, lock);
+            writeOwner(channel);
+            return true;
+        } catch (OverlappingFileLockException e) {
+            // held by a pool loaded by another class loader of this process, its lock is kept as the channel is
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to lock slot file " + file, e);
+        }
+    }
+
+    private static void writeOwner(FileChannel channel) {
+        byte[] owner = ManagementFactory.getRuntimeMXBean().getName().getBytes(StandardCharsets.UTF_8);
+        try {
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(owner), 0);
+        } catch (IOException e) {
+            // only informational, the slot is taken by the lock
+        }
+    }
+
+    /**
+     * Releases the lock of a slot file, must be called while holding the lock of the channels.
+     */
+    private static void release(Path file) {
+        FileLock lock = HELD_LOCKS.remove(file);
+        if (lock != null) {
+            try {
+                lock.release();
+            } catch (IOException e) {
+                // the lock is released with the process anyway
+            }
+        }
+    }
+}
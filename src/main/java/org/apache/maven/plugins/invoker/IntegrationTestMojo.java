@@ -49,8 +49,9 @@ public class IntegrationTestMojo extends AbstractInvokerMojo {
             Invoker invoker,
             SettingsBuilder settingsBuilder,
             ToolchainManager toolchainManagerPrivate,
-            InterpolatorUtils interpolatorUtils) {
-        super(invoker, settingsBuilder, toolchainManagerPrivate, interpolatorUtils);
+            InterpolatorUtils interpolatorUtils,
+            SharedSlotPools sharedSlotPools) {
+        super(invoker, settingsBuilder, toolchainManagerPrivate, interpolatorUtils, sharedSlotPools);
     }
 
     void processResults(InvokerSession invokerSession) throws MojoFailureException {
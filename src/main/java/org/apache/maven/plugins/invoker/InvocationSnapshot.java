@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * A copy of a project directory taken after a successful invocation of a build job with several invocations, so a
+ * rerun of the build job can continue with the next invocation instead of starting from the first one.
+ * <p>
+ * Build logs in the project directory are neither copied nor restored, they belong to the current execution.
+ *
+ * @since 3.10.2
+ */
+class InvocationSnapshot {
+
+    private static final String BUILD_LOG = "build.log";
+
+    private final Path directory;
+    private final int invocationIndex;
+    private final Properties userProperties;
+
+    private InvocationSnapshot(Path directory, int invocationIndex, Properties userProperties) {
+        this.directory = directory;
+        this.invocationIndex = invocationIndex;
+        this.userProperties = userProperties;
+    }
+
+    /**
+     * Copies a project directory to a new directory.
+     *
+     * @param basedir the base directory of the project, must not be <code>null</code>
+     * @param snapshotsDirectory the directory of the snapshots, outside of the project, must not be <code>null</code>
+     * @param invocationIndex the index of the last successful invocation
+     * @param userProperties the user properties set by hook scripts so far, must not be <code>null</code>
+     * @return the snapshot, never <code>null</code>
+     * @throws IOException if the project directory can not be copied
+     */
+    static InvocationSnapshot create(
+            File basedir, File snapshotsDirectory, int invocationIndex, Properties userProperties)
+            throws IOException {
+        Files.createDirectories(snapshotsDirectory.toPath());
+        Path directory = Files.createTempDirectory(snapshotsDirectory.toPath(), "snapshot-");
+        Properties properties = new Properties();
+        properties.putAll(userProperties);
+        InvocationSnapshot snapshot = new InvocationSnapshot(directory, invocationIndex, properties);
+        try {
+            copy(basedir.toPath(), directory);
+        } catch (IOException e) {
+            snapshot.delete();
+            throw e;
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the index of the last successful invocation, the rerun continues with the next one
+     */
+    int getInvocationIndex() {
+        return invocationIndex;
+    }
+
+    /**
+     * @return the user properties set by hook scripts up to the last successful invocation
+     */
+    Properties getUserProperties() {
+        return userProperties;
+    }
+
+    /**
+     * Replaces the content of a project directory by the snapshot.
+     *
+     * @param basedir the base directory of the project, must not be <code>null</code>
+     * @throws IOException if the project directory can not be restored
+     */
+    void restore(File basedir) throws IOException {
+        Path target = basedir.toPath();
+        try (Stream<Path> files = Files.list(target)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!isBuildLog(target, file)) {
+                    deleteRecursively(file);
+                }
+            }
+        }
+        copy(directory, target);
+    }
+
+    /**
+     * Deletes the snapshot, failures are ignored.
+     */
+    void delete() {
+        try {
+            deleteRecursively(directory);
+        } catch (IOException e) {
+            // only a directory below target left behind
+        }
+    }
+
+    private static boolean isBuildLog(Path basedir, Path file) {
+        String name = file.getFileName().toString();
+        return basedir.equals(file.getParent()) && (name.equals(BUILD_LOG) || name.startsWith(BUILD_LOG + "."));
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!isBuildLog(source, file)) {
+                    Files.copy(
+                            file,
+                            target.resolve(source.relativize(file)),
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -76,8 +76,9 @@ public class InvokerMojo extends AbstractInvokerMojo {
             Invoker invoker,
             SettingsBuilder settingsBuilder,
             ToolchainManager toolchainManager,
-            InterpolatorUtils interpolaterUtils) {
-        super(invoker, settingsBuilder, toolchainManager, interpolaterUtils);
+            InterpolatorUtils interpolaterUtils,
+            SharedSlotPools sharedSlotPools) {
+        super(invoker, settingsBuilder, toolchainManager, interpolaterUtils, sharedSlotPools);
     }
 
     void processResults(InvokerSession invokerSession) throws MojoFailureException {
@@ -19,10 +19,13 @@
 package org.apache.maven.plugins.invoker;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -49,6 +52,10 @@ class InvokerProperties {
     private static final Pattern ENVIRONMENT_VARIABLES_PATTERN =
             Pattern.compile("invoker\\.environmentVariables\\.([A-Za-z][^.]+)(\\.(\\d+))?");
 
+    private static final Pattern MAX_HEAP_PATTERN = Pattern.compile("(?:^|\\s)-Xmx(\\S+)");
+
+    private static final Pattern MEMORY_SIZE_PATTERN = Pattern.compile("(\\d+)([kKmMgGtT]?)");
+
     // default values from Mojo configuration
     private Boolean defaultDebug;
     private Boolean defaultQuiet;
@@ -60,6 +67,7 @@ class InvokerProperties {
     private File defaultMavenExecutable;
     private Boolean defaultUpdateSnapshots;
     private String defaultUserPropertiesFiles;
+    private int defaultMaxHeap;
 
     private enum InvocationProperty {
         PROJECT("invoker.project"),
@@ -173,6 +181,15 @@ class InvokerProperties {
         this.defaultMavenOpts = defaultMavenOpts;
     }
 
+    /**
+     * Default maximal heap in MB, added as <code>-Xmx</code> to the mavenOpts of invocations without one.
+     * @param defaultMaxHeap a default value, <code>0</code> to add none
+     * @since 3.10.2
+     */
+    public void setDefaultMaxHeap(int defaultMaxHeap) {
+        this.defaultMaxHeap = defaultMaxHeap;
+    }
+
     /**
      * Default value for timeoutInSeconds
      * @param defaultTimeoutInSeconds a default value
@@ -241,6 +258,225 @@ class InvokerProperties {
         return Integer.parseInt(this.properties.getProperty("invoker.ordinal", "0"));
     }
 
+    /**
+     * Gets whether the corresponding build job is always executed, also when it does not fit into a time budget.
+     *
+     * @return The value of <code>invoker.mandatory</code>, <code>false</code> if not set.
+     * @since 3.10.2
+     */
+    public boolean isMandatory() {
+        return Boolean.parseBoolean(this.properties.getProperty("invoker.mandatory", "false"));
+    }
+
+    /**
+     * Gets whether the Maven invocations of the corresponding build job may run inside the invoking JVM.
+     *
+     * @return The value of <code>invoker.embedded</code>, <code>true</code> if not set.
+     * @since 3.10.2
+     */
+    public boolean isEmbedded() {
+        return Boolean.parseBoolean(this.properties.getProperty("invoker.embedded", "true"));
+    }
+
+    /**
+     * Gets whether the Maven invocations of the corresponding build job may run in a long-lived Maven worker JVM.
+     *
+     * @return The value of <code>invoker.workerPool</code>, <code>true</code> if not set.
+     * @since 3.10.2
+     */
+    public boolean isWorkerPool() {
+        return Boolean.parseBoolean(this.properties.getProperty("invoker.workerPool", "true"));
+    }
+
+    /**
+     * Gets whether the corresponding build job may run together with other build jobs in one Maven invocation.
+     *
+     * @return The value of <code>invoker.batch</code>, <code>true</code> if not set.
+     * @since 3.10.2
+     */
+    public boolean isBatch() {
+        return Boolean.parseBoolean(this.properties.getProperty("invoker.batch", "true"));
+    }
+
+    /**
+     * Gets the project paths of the build jobs which must be finished before the corresponding build job is started.
+     *
+     * @return The list of project paths, may be empty but never <code>null</code>.
+     * @since 3.10.2
+     */
+    public List<String> getDependsOn() {
+        return Optional.ofNullable(this.properties.getProperty("invoker.dependsOn"))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(s -> s.split("\\s*[ ,]+\\s*"))
+                .map(Arrays::asList)
+                .orElse(Collections.emptyList());
+    }
+
+    /**
+     * Gets the names of the resources locked by the corresponding build job while it is running.
+     *
+     * @return The list of lock names, may be empty but never <code>null</code>.
+     * @since 3.10.2
+     */
+    public List<String> getLocks() {
+        return Optional.ofNullable(this.properties.getProperty("invoker.locks"))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(s -> s.split("\\s*[ ,]+\\s*"))
+                .map(Arrays::asList)
+                .orElse(Collections.emptyList());
+    }
+
+    /**
+     * Gets the heap in MB used by the Maven invocations of this build job: the value of
+     * <code>invoker.memoryBudget</code> or the largest <code>-Xmx</code> of all invocations, the default maximal
+     * heap for invocations without one.
+     *
+     * @param jvmConfig The content of <code>.mvn/jvm.config</code> of the project, may be <code>null</code>.
+     * @return The heap in MB or <code>0</code> if not known.
+     * @since 3.10.2
+     */
+    public int getMemoryBudget(String jvmConfig) {
+        Optional<Integer> memoryBudget = Optional.ofNullable(this.properties.getProperty("invoker.memoryBudget"))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(s -> parseMemorySize(s, false));
+        if (memoryBudget.isPresent()) {
+            return memoryBudget.get();
+        }
+
+        int maxHeap = 0;
+        for (int index = 1; index == 1 || isInvocationDefined(index); index++) {
+            // MAVEN_OPTS are placed after .mvn/jvm.config by mvn script, so they have precedence
+            String mavenOpts = get(InvocationProperty.MAVEN_OPTS, index).orElse(defaultMavenOpts);
+            int heap = getMaxHeap(Objects.toString(jvmConfig, "") + " " + Objects.toString(mavenOpts, ""));
+            maxHeap = Math.max(maxHeap, heap > 0 ? heap : defaultMaxHeap);
+        }
+        return maxHeap;
+    }
+
+    /**
+     * Gets the number of parallel slots occupied by this build job: the value of <code>invoker.slots</code> or the
+     * largest number of threads given by <code>-T</code> in the goals of all invocations.
+     *
+     * @param mavenConfig The content of <code>.mvn/maven.config</code> of the project, may be <code>null</code>.
+     * @param processors The number of processors, used for thread counts like <code>1C</code>.
+     * @return The number of slots, at least <code>1</code>.
+     * @since 3.10.2
+     */
+    public int getSlots(String mavenConfig, int processors) {
+        Optional<String> slots = Optional.ofNullable(this.properties.getProperty("invoker.slots"))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty());
+        if (slots.isPresent()) {
+            return Math.max(1, Integer.parseInt(slots.get()));
+        }
+
+        List<String> configArgs = mavenConfig != null
+                ? Arrays.asList(mavenConfig.trim().split("\\s+"))
+                : Collections.emptyList();
+        int maxThreads = 1;
+        for (int index = 1; index == 1 || isInvocationDefined(index); index++) {
+            // arguments from .mvn/maven.config are placed before the command line ones
+            List<String> args = new ArrayList<>(configArgs);
+            List<String> goals = get(InvocationProperty.GOALS, index)
+                    .map(s -> Arrays.asList(s.split("\\s*[ ,]+\\s*")))
+                    .orElse(defaultGoals);
+            if (goals != null) {
+                args.addAll(goals);
+            }
+            maxThreads = Math.max(maxThreads, getThreads(args, processors));
+        }
+        return maxThreads;
+    }
+
+    /**
+     * Gets the number of threads of the last <code>-T</code> or <code>--threads</code> option.
+     *
+     * @param args The Maven command line arguments, must not be <code>null</code>.
+     * @param processors The number of processors, used for thread counts like <code>1C</code>.
+     * @return The number of threads, <code>1</code> if not set.
+     */
+    static int getThreads(List<String> args, int processors) {
+        String threads = null;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if ((arg.equals("-T") || arg.equals("--threads")) && i + 1 < args.size()) {
+                threads = args.get(++i);
+            } else if (arg.startsWith("--threads=")) {
+                threads = arg.substring("--threads=".length());
+            } else if (arg.startsWith("-T") && arg.length() > 2) {
+                threads = arg.substring(2);
+            }
+        }
+        if (threads == null) {
+            return 1;
+        }
+        try {
+            if (threads.endsWith("C") || threads.endsWith("c")) {
+                return Math.max(1, (int) (Float.parseFloat(threads.substring(0, threads.length() - 1)) * processors));
+            }
+            return Math.max(1, Integer.parseInt(threads));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Gets the mavenOpts of an invocation, with the default maximal heap added when they have no <code>-Xmx</code>.
+     */
+    private String getMavenOpts(int index) {
+        String mavenOpts = get(InvocationProperty.MAVEN_OPTS, index).orElse(defaultMavenOpts);
+        if (defaultMaxHeap <= 0 || (mavenOpts != null && getMaxHeap(mavenOpts) > 0)) {
+            return mavenOpts;
+        }
+        String maxHeap = "-Xmx" + defaultMaxHeap + "m";
+        return mavenOpts == null || mavenOpts.trim().isEmpty() ? maxHeap : mavenOpts.trim() + " " + maxHeap;
+    }
+
+    /**
+     * Gets the value of the last <code>-Xmx</code> option.
+     *
+     * @param jvmOptions The JVM options, must not be <code>null</code>.
+     * @return The maximal heap in MB or <code>0</code> if not set.
+     */
+    static int getMaxHeap(String jvmOptions) {
+        int maxHeap = 0;
+        Matcher matcher = MAX_HEAP_PATTERN.matcher(jvmOptions);
+        while (matcher.find()) {
+            maxHeap = parseMemorySize(matcher.group(1), true);
+        }
+        return maxHeap;
+    }
+
+    /**
+     * Parses a memory size in the format of the <code>-Xmx</code> option.
+     *
+     * @param size The size like <code>512m</code> or <code>2g</code>, must not be <code>null</code>.
+     * @param bytesByDefault Whether a number without unit is in bytes, like for <code>-Xmx</code>, or in MB.
+     * @return The size in MB.
+     */
+    static int parseMemorySize(String size, boolean bytesByDefault) {
+        Matcher matcher = MEMORY_SIZE_PATTERN.matcher(size.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("invalid memory size: " + size);
+        }
+        long value = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2).toLowerCase(Locale.ROOT)) {
+            case "k":
+                return (int) (value / 1024);
+            case "m":
+                return (int) value;
+            case "g":
+                return (int) (value * 1024);
+            case "t":
+                return (int) (value * 1024 * 1024);
+            default:
+                return (int) (bytesByDefault ? value / (1024 * 1024) : value);
+        }
+    }
+
     /**
      * Gets the specification of JRE versions on which this build job should be run.
      *
@@ -428,8 +664,7 @@ class InvokerProperties {
                 request::setMavenExecutable,
                 get(InvocationProperty.MAVEN_EXECUTABLE, index).map(File::new).orElse(defaultMavenExecutable));
 
-        setIfNotNull(
-                request::setMavenOpts, get(InvocationProperty.MAVEN_OPTS, index).orElse(defaultMavenOpts));
+        setIfNotNull(request::setMavenOpts, getMavenOpts(index));
 
         get(InvocationProperty.FAILURE_BEHAVIOR, index)
                 .map(InvocationRequest.ReactorFailureBehavior::valueOfByLongOption)
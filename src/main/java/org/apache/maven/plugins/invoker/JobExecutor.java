@@ -18,19 +18,73 @@
  */
 package org.apache.maven.plugins.invoker;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.maven.plugins.invoker.model.BuildJob;
 
 /**
  * Execute build jobs with parallel.
+ * <p>
+ * A job is started as soon as a thread is free and all jobs it depends on are finished. A job depends on the jobs
+ * listed in its {@code dependsOn} attribute, or - if it does not declare any - on all jobs with a higher ordinal. A job
+ * can also be started after other jobs regardless of their results.
+ * <p>
+ * From the jobs ready to start, the ones with the longest estimated duration are started first. Optionally the jobs
+ * which failed in the previous run are started before the others.
+ * <p>
+ * A job occupies as many of the slots as given by its {@code slots} attribute, at most the number of threads. With a
+ * memory budget, a job also reserves its heap while running. A job is only started when its slots and heap fit into
+ * the ones not used by running jobs. The first job which does not fit holds a reservation, other jobs may only pass it
+ * when they fit in addition to it, so a large job is not starved by smaller ones.
+ * <p>
+ * With a slot pool shared with other executions, a job is only started when it also gets its slots from the pool.
+ * <p>
+ * Jobs which hold a common name in their {@code locks} attribute are never running at the same time, other jobs are
+ * started meanwhile.
+ * <p>
+ * Each started job gets the lowest {@code worker} index not used by other running jobs, between zero and the number of
+ * threads minus one. With a slot pool assigning workers, the index is taken from the pool instead, so it is unique
+ * among the running jobs of all executors sharing it.
+ * <p>
+ * A failed job is queued again, up to the retry count, with an incremented {@code executionCount}. Jobs depending on it
+ * wait until its last execution is finished.
+ * <p>
+ * In fail fast mode, no more jobs are started once the given number of jobs failed. The threads of running jobs are
+ * interrupted, which stops their Maven processes, and the remaining jobs are skipped. A job counts as failed when it
+ * has no retries left.
+ * <p>
+ * With a time budget, mandatory jobs and then the jobs expected to find the most failures per second are started
+ * first. Once the budget is used up, no more jobs are started except mandatory jobs and the jobs they depend on, the
+ * other jobs are skipped.
+ * <p>
+ * With speculative execution, a job running much longer than its recorded durations is started a second time, when no
+ * other job is waiting to be started and its slots are free. The execution which succeeds first gives the result of the
+ * job, the other one is interrupted. When the first execution fails, the result of the other one is taken. The
+ * execution not taken is kept as superseded execution of the job.
  *
  * @author Slawomir Jaranowski
  */
@@ -39,45 +93,820 @@ class JobExecutor {
         void accept(BuildJob t) throws Throwable;
     }
 
+    /**
+     * Limits the number of concurrently running jobs during execution.
+     */
+    interface ConcurrencyLimit {
+        /**
+         * @param usedSlots the number of slots occupied by currently running jobs
+         * @return the number of slots which may be occupied concurrently, between one and the number of threads
+         */
+        int getLimit(int usedSlots);
+    }
+
+    /**
+     * Slots shared with other job executors, taken by each running job in addition to its slots in this executor.
+     */
+    interface SlotPool {
+        /**
+         * Takes slots from the pool for a job if they are free.
+         *
+         * @param buildJob the job, holding the slots until they are released
+         * @param slots the number of slots of the job
+         * @return <code>true</code> if the slots were taken, <code>false</code> if not enough slots are free
+         */
+        boolean tryAcquire(BuildJob buildJob, int slots);
+
+        /**
+         * Returns the slots taken by {@link #tryAcquire(BuildJob, int)} for a job to the pool.
+         *
+         * @param buildJob the job
+         */
+        void release(BuildJob buildJob);
+
+        /**
+         * Gets the worker index of a job holding slots of the pool, unique among the running jobs of all executors
+         * sharing the pool.
+         *
+         * @param buildJob the job holding slots of the pool
+         * @return the index, or <code>-1</code> if the pool does not assign workers
+         */
+        default int getWorker(BuildJob buildJob) {
+            return -1;
+        }
+
+        /**
+         * Combines two pools, slots are only taken when both pools have enough free slots.
+         *
+         * @param first the first pool, must not be <code>null</code>
+         * @param second the second pool, must not be <code>null</code>
+         * @return the combined pool
+         */
+        static SlotPool both(SlotPool first, SlotPool second) {
+            return new SlotPool() {
+                @Override
+                public boolean tryAcquire(BuildJob buildJob, int slots) {
+                    if (!first.tryAcquire(buildJob, slots)) {
+                        return false;
+                    }
+                    if (!second.tryAcquire(buildJob, slots)) {
+                        first.release(buildJob);
+                        return false;
+                    }
+                    return true;
+                }
+
+                @Override
+                public void release(BuildJob buildJob) {
+                    second.release(buildJob);
+                    first.release(buildJob);
+                }
+
+                @Override
+                public int getWorker(BuildJob buildJob) {
+                    int worker = first.getWorker(buildJob);
+                    return worker >= 0 ? worker : second.getWorker(buildJob);
+                }
+            };
+        }
+    }
+
+    /**
+     * How often a {@link ConcurrencyLimit} is checked while jobs are running.
+     */
+    private static final long LIMIT_CHECK_INTERVAL_MILLIS = 1000;
+
+    /**
+     * How often a {@link SlotPool} is checked while jobs are waiting for it.
+     */
+    private static final long SLOT_POOL_CHECK_INTERVAL_MILLIS = 100;
+
+    /**
+     * The percentile of recorded durations which a job has to exceed to get a speculative execution.
+     */
+    private static final int SPECULATION_PERCENTILE = 95;
+
     private final List<BuildJob> jobs;
     private final int threadsCount;
 
+    private BuildJobHistory history;
+
+    private boolean failedFirst;
+
+    private ConcurrencyLimit concurrencyLimit;
+
+    private SlotPool slotPool;
+
+    private int memoryBudget;
+
+    private boolean virtualThreads;
+
+    private int retryCount;
+
+    private int failFastThreshold;
+
+    private boolean failFastTriggered;
+
+    private long timeBudgetMillis;
+
+    private float speculationFactor;
+
+    private ThrowableJobConsumer speculationConsumer;
+
+    private final Map<BuildJob, Set<BuildJob>> previousJobs = new HashMap<>();
+
     JobExecutor(List<BuildJob> jobs, int threadsCount) {
         this.jobs = jobs;
         this.threadsCount = threadsCount;
     }
 
+    /**
+     * Durations of previous runs used to start the longest jobs first.
+     *
+     * @param history the history, may be <code>null</code> to keep the order of jobs
+     */
+    void setHistory(BuildJobHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Start the jobs which failed in the previous run, as given by the history, before other jobs with the same
+     * ordinal.
+     *
+     * @param failedFirst <code>true</code> to start failed jobs first
+     */
+    void setFailedFirst(boolean failedFirst) {
+        this.failedFirst = failedFirst;
+    }
+
     public void forEach(ThrowableJobConsumer jobConsumer) {
-        // group and sort jobs by ordinal
-        Map<Integer, List<BuildJob>> groupedJobs = jobs.stream()
-                .sorted(Comparator.comparing(BuildJob::getOrdinal).reversed())
-                .collect(Collectors.groupingBy(BuildJob::getOrdinal, LinkedHashMap::new, Collectors.toList()));
-
-        ExecutorService executorService = Executors.newFixedThreadPool(threadsCount);
-
-        groupedJobs.forEach((key, value) -> {
-            // prepare list of callable tasks
-            List<Callable<Void>> callableJobs = value.stream()
-                    .map(buildJob -> (Callable<Void>) () -> {
-                        try {
-                            jobConsumer.accept(buildJob);
-                        } catch (Throwable e) {
-                            buildJob.setResult(BuildJob.Result.ERROR);
-                            buildJob.setFailureMessage(String.valueOf(e));
-                        }
-                        return null;
-                    })
-                    .collect(Collectors.toList());
+        forEach(jobConsumer, job -> {});
+    }
+
+    /**
+     * Limit of concurrently running jobs adjusted during execution, the number of threads is the upper bound.
+     *
+     * @param concurrencyLimit the limit, may be <code>null</code> to run as many jobs as threads
+     */
+    void setConcurrencyLimit(ConcurrencyLimit concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * Slots shared with other job executors, each job takes its slots from the pool while running.
+     *
+     * @param slotPool the pool, may be <code>null</code> to run jobs without taking slots from a pool
+     */
+    void setSlotPool(SlotPool slotPool) {
+        this.slotPool = slotPool;
+    }
+
+    /**
+     * Total heap in MB of all concurrently running jobs, a job reserves its {@code memoryBudget} while running.
+     *
+     * @param memoryBudget the budget in MB, <code>0</code> for no limit
+     */
+    void setMemoryBudget(int memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Run the jobs on virtual threads, if supported by the running JVM. The number of threads still limits the number
+     * of concurrently running jobs.
+     *
+     * @param virtualThreads <code>true</code> to use virtual threads
+     * @see #isVirtualThreadsSupported()
+     */
+    void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * @return <code>true</code> if the running JVM supports virtual threads, available since Java 21
+     */
+    static boolean isVirtualThreadsSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * How often a failed job is executed again.
+     *
+     * @param retryCount the number of retries, <code>0</code> to execute each job once
+     */
+    void setRetryCount(int retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    /**
+     * Stop executing jobs after the given number of failed jobs.
+     *
+     * @param failFastThreshold the number of failed jobs, <code>0</code> to execute all jobs
+     */
+    void setFailFastThreshold(int failFastThreshold) {
+        this.failFastThreshold = failFastThreshold;
+    }
+
+    /**
+     * @return <code>true</code> if the execution was stopped because too many jobs failed
+     */
+    boolean isFailFastTriggered() {
+        return failFastTriggered;
+    }
+
+    /**
+     * Stop starting jobs which are not mandatory after the given time, and start the most valuable jobs first. Requires
+     * the {@link #setHistory(BuildJobHistory) history} to order the jobs.
+     *
+     * @param timeBudgetMillis the time in milliseconds from the start of the execution, <code>0</code> for no limit
+     */
+    void setTimeBudget(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /**
+     * Start a second execution of a job running longer than the 95th percentile of its recorded durations, multiplied by
+     * the given factor. Requires the {@link #setHistory(BuildJobHistory) history}.
+     *
+     * @param speculationFactor the factor, <code>0</code> to execute each job once at a time
+     * @param speculationConsumer called for a job after both of its executions finished, the result of the job and its
+     *            superseded execution are already set
+     */
+    void setSpeculativeExecution(float speculationFactor, ThrowableJobConsumer speculationConsumer) {
+        this.speculationFactor = speculationFactor;
+        this.speculationConsumer = speculationConsumer;
+    }
+
+    /**
+     * Start a job only after another job is finished, in addition to the jobs it depends on. Unlike a dependency, the
+     * job is started whatever the result of the other job is.
+     *
+     * @param buildJob the job to start later, must not be <code>null</code>
+     * @param previousJob the job to finish first, must not be <code>null</code>
+     */
+    void startAfter(BuildJob buildJob, BuildJob previousJob) {
+        previousJobs.computeIfAbsent(buildJob, job -> new HashSet<>()).add(previousJob);
+    }
+
+    /**
+     * Execute all jobs.
+     *
+     * @param jobConsumer called for each job which should be executed
+     * @param unscheduledJobConsumer called for each job which will not be executed, the result and failure message of
+     *            the job are already set
+     */
+    public void forEach(ThrowableJobConsumer jobConsumer, ThrowableJobConsumer unscheduledJobConsumer) {
+        ExecutorService executorService = newExecutorService();
+        try {
+            new Execution(jobConsumer, unscheduledJobConsumer, executorService).run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            // all task are finished here
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * State of a single execution of all jobs, only accessed by the dispatching thread.
+     */
+    private class Execution {
+        private final ThrowableJobConsumer jobConsumer;
+        private final ThrowableJobConsumer unscheduledJobConsumer;
+        private final CompletionService<BuildJob> completionService;
+        private final Comparator<BuildJob> dispatchOrder;
+
+        private final Map<BuildJob, Collection<BuildJob>> prerequisites = resolvePrerequisites();
+        private final List<BuildJob> pendingJobs;
+        private final Set<BuildJob> finishedJobs = new HashSet<>();
+        private final Set<BuildJob> unscheduledJobs = new HashSet<>();
+
+        private final Set<String> heldLocks = new HashSet<>();
+        private final TreeSet<Integer> freeWorkers = new TreeSet<>();
+        // accessed by the job threads too
+        private final Map<BuildJob, Thread> runningThreads = new HashMap<>();
+
+        // start times of running jobs, in the order they were started
+        private final Map<BuildJob, Long> startTimes = new LinkedHashMap<>();
+        // running speculative executions by their original job, and the other way round
+        private final Map<BuildJob, BuildJob> speculativeExecutions = new HashMap<>();
+        private final Map<BuildJob, BuildJob> originalJobs = new HashMap<>();
+        // executions of a job with speculative execution which finished while the other one is still running
+        private final Set<BuildJob> finishedFirst = new HashSet<>();
+        private boolean readyJobsWaiting;
+        private boolean waitingForSlotPool;
+        private final long startTime = System.nanoTime();
+
+        private int runningJobs;
+        private int usedSlots;
+        private int usedMemory;
+        private int failedJobs;
+
+        Execution(
+                ThrowableJobConsumer jobConsumer,
+                ThrowableJobConsumer unscheduledJobConsumer,
+                ExecutorService executorService) {
+            this.jobConsumer = jobConsumer;
+            this.unscheduledJobConsumer = unscheduledJobConsumer;
+            this.completionService = new ExecutorCompletionService<>(executorService);
+
+            // jobs with the highest ordinal, failed before and then with the longest duration are dispatched first
+            Comparator<BuildJob> comparator = Comparator.comparing(BuildJob::getOrdinal);
+            if (history != null && failedFirst) {
+                comparator = comparator.thenComparing(job -> history.hasFailed(job.getProject()));
+            }
+            if (timeBudgetMillis > 0) {
+                comparator = comparator.thenComparing(BuildJob::isMandatory);
+            }
+            if (history != null && timeBudgetMillis > 0) {
+                comparator = comparator.thenComparing(job -> history.getFailureDensity(job.getProject()));
+            }
+            if (history != null) {
+                comparator = comparator.thenComparing(job -> history.getEstimatedDuration(job.getProject()));
+            }
+            this.dispatchOrder = comparator.reversed();
+            this.pendingJobs = jobs.stream().sorted(dispatchOrder).collect(Collectors.toList());
 
+            for (int worker = 0; worker < threadsCount; worker++) {
+                freeWorkers.add(worker);
+            }
+        }
+
+        void run() throws InterruptedException, ExecutionException {
+            while (!pendingJobs.isEmpty() || runningJobs > 0) {
+                if (failFastTriggered) {
+                    skipPendingJobs("Skipped due to fail fast after " + failedJobs + " failed build job"
+                            + (failedJobs < 2 ? "" : "s"));
+                }
+                if (timeBudgetMillis > 0
+                        && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) >= timeBudgetMillis) {
+                    skipJobsOverTimeBudget();
+                }
+
+                int limit = getLimit(usedSlots);
+                boolean finishedWithoutRun;
+                do {
+                    // jobs finished without running can make more jobs ready
+                    finishedWithoutRun = dispatchReadyJobs(limit);
+                } while (finishedWithoutRun);
+
+                if (speculationFactor > 0 && history != null && !readyJobsWaiting && !failFastTriggered) {
+                    startSpeculativeExecutions(limit);
+                }
+
+                if (runningJobs == 0 && !waitingForSlotPool) {
+                    // nothing is running and nothing can be started
+                    for (BuildJob buildJob : pendingJobs) {
+                        buildJob.setResult(BuildJob.Result.ERROR);
+                        buildJob.setFailureMessage("Circular dependency between build jobs");
+                        accept(unscheduledJobConsumer, buildJob);
+                    }
+                    pendingJobs.clear();
+                    break;
+                }
+
+                Future<BuildJob> finishedJob;
+                if (waitingForSlotPool) {
+                    // wake up often, slots of the pool can be released by other executors
+                    finishedJob = completionService.poll(SLOT_POOL_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                } else if (concurrencyLimit == null && speculationFactor <= 0) {
+                    finishedJob = completionService.take();
+                } else {
+                    // wake up regularly, the limit can be raised and jobs can become stragglers while jobs are running
+                    finishedJob = completionService.poll(LIMIT_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (finishedJob != null) {
+                    jobFinished(finishedJob.get());
+                }
+            }
+        }
+
+        /**
+         * Starts the ready jobs which fit into the free resources.
+         *
+         * @param limit the number of slots which may be occupied
+         * @return <code>true</code> if some jobs were finished without running
+         */
+        private boolean dispatchReadyJobs(int limit) {
+            boolean finishedWithoutRun = false;
+            readyJobsWaiting = false;
+            waitingForSlotPool = false;
+            // resources of the first ready job which does not fit, held back for it
+            boolean reserved = false;
+            int reservedSlots = 0;
+            int reservedMemory = 0;
+            Iterator<BuildJob> iterator = pendingJobs.iterator();
+            while (iterator.hasNext()) {
+                BuildJob buildJob = iterator.next();
+                Collection<BuildJob> jobPrerequisites = prerequisites.get(buildJob);
+                if (!finishedJobs.containsAll(jobPrerequisites)) {
+                    continue;
+                }
+
+                Optional<BuildJob> failedDependency = getFailedDependency(
+                        buildJob,
+                        jobPrerequisites,
+                        previousJobs.getOrDefault(buildJob, Collections.emptySet()),
+                        unscheduledJobs);
+                if (failedDependency.isPresent()) {
+                    iterator.remove();
+                    buildJob.setResult(BuildJob.Result.SKIPPED);
+                    buildJob.setFailureMessage(
+                            "Skipped due to failure of dependency " + failedDependency.get().getProject());
+                    accept(unscheduledJobConsumer, buildJob);
+                    finishedJobs.add(buildJob);
+                    unscheduledJobs.add(buildJob);
+                    finishedWithoutRun = true;
+                } else if (getLocks(buildJob).stream().noneMatch(heldLocks::contains)) {
+                    int jobSlots = getSlots(buildJob);
+                    int jobMemory = getMemoryCost(buildJob);
+                    // a job with more slots than the current limit runs alone
+                    boolean slotsFit = usedSlots == 0 || usedSlots + reservedSlots + jobSlots <= limit;
+                    boolean memoryFit = memoryBudget <= 0 || usedMemory + reservedMemory + jobMemory <= memoryBudget;
+                    if (slotsFit && memoryFit && acquireFromSlotPool(buildJob)) {
+                        iterator.remove();
+                        submit(buildJob);
+                    } else if (!reserved) {
+                        readyJobsWaiting = true;
+                        reserved = true;
+                        reservedSlots = jobSlots;
+                        reservedMemory = jobMemory;
+                    }
+                }
+            }
+            return finishedWithoutRun;
+        }
+
+        /**
+         * Starts a second execution of running jobs which take much longer than recorded before, as long as their
+         * slots and heap fit into the free resources. Jobs holding locks are not executed twice.
+         *
+         * @param limit the number of slots which may be occupied
+         */
+        private void startSpeculativeExecutions(int limit) {
+            long now = System.nanoTime();
+            for (Map.Entry<BuildJob, Long> entry : new ArrayList<>(startTimes.entrySet())) {
+                BuildJob buildJob = entry.getKey();
+                if (buildJob.isSpeculative()
+                        || speculativeExecutions.containsKey(buildJob)
+                        || !getLocks(buildJob).isEmpty()) {
+                    continue;
+                }
+                float threshold =
+                        history.getPercentileDuration(buildJob.getProject(), SPECULATION_PERCENTILE) * speculationFactor;
+                if (threshold <= 0 || TimeUnit.NANOSECONDS.toMillis(now - entry.getValue()) < threshold * 1000) {
+                    continue;
+                }
+                boolean slotsFit = usedSlots + getSlots(buildJob) <= limit;
+                boolean memoryFit = memoryBudget <= 0 || usedMemory + getMemoryCost(buildJob) <= memoryBudget;
+                if (!slotsFit || !memoryFit) {
+                    continue;
+                }
+                // the pool tracks slots and worker by job, the running original holds its own
+                BuildJob speculativeExecution = copyOf(buildJob);
+                if (acquireFromSlotPool(speculativeExecution)) {
+                    speculativeExecutions.put(buildJob, speculativeExecution);
+                    originalJobs.put(speculativeExecution, buildJob);
+                    submit(speculativeExecution);
+                }
+            }
+        }
+
+        private boolean acquireFromSlotPool(BuildJob buildJob) {
+            if (slotPool == null || slotPool.tryAcquire(buildJob, getSlots(buildJob))) {
+                return true;
+            }
+            waitingForSlotPool = true;
+            return false;
+        }
+
+        private void submit(BuildJob buildJob) {
+            int worker = slotPool != null ? slotPool.getWorker(buildJob) : -1;
+            buildJob.setWorker(worker >= 0 ? worker : freeWorkers.pollFirst());
+            completionService.submit(() -> {
+                synchronized (runningThreads) {
+                    runningThreads.put(buildJob, Thread.currentThread());
+                    if (buildJob.getCancellation() != null) {
+                        // cancelled before it was started
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                try {
+                    accept(jobConsumer, buildJob);
+                } finally {
+                    synchronized (runningThreads) {
+                        runningThreads.remove(buildJob);
+                        // the job may have been interrupted by fail fast after it was done
+                        Thread.interrupted();
+                    }
+                }
+                return buildJob;
+            });
+            startTimes.put(buildJob, System.nanoTime());
+            runningJobs++;
+            usedSlots += getSlots(buildJob);
+            usedMemory += getMemoryCost(buildJob);
+            heldLocks.addAll(getLocks(buildJob));
+        }
+
+        private void jobFinished(BuildJob buildJob) {
+            runningJobs--;
+            usedSlots -= getSlots(buildJob);
+            usedMemory -= getMemoryCost(buildJob);
+            heldLocks.removeAll(getLocks(buildJob));
+            startTimes.remove(buildJob);
+            if (slotPool == null || slotPool.getWorker(buildJob) < 0) {
+                freeWorkers.add(buildJob.getWorker());
+            }
+            if (slotPool != null) {
+                slotPool.release(buildJob);
+            }
+
+            BuildJob originalJob = originalJobs.getOrDefault(buildJob, buildJob);
+            if (speculativeExecutions.containsKey(originalJob)) {
+                if (!speculativeExecutionFinished(originalJob, buildJob)) {
+                    return;
+                }
+                buildJob = originalJob;
+            }
+
+            int executionCount = Math.max(1, buildJob.getExecutionCount());
+            if (!buildJob.isNotError() && executionCount <= retryCount && !failFastTriggered) {
+                // retry right away, while other jobs are still running
+                buildJob.setExecutionCount(executionCount + 1);
+                pendingJobs.add(buildJob);
+                pendingJobs.sort(dispatchOrder);
+                return;
+            }
+            finishedJobs.add(buildJob);
+
+            if (failFastThreshold > 0 && !failFastTriggered && !buildJob.isNotError()) {
+                failedJobs++;
+                if (failedJobs >= failFastThreshold) {
+                    failFastTriggered = true;
+                    // stop the running jobs, their Maven processes are destroyed when interrupted
+                    synchronized (runningThreads) {
+                        runningThreads.keySet().forEach(job -> cancel(job, "Cancelled due to fail fast"));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Handles a finished execution of a job with a speculative execution.
+         *
+         * @param originalJob the job
+         * @param execution the finished execution, the job itself or its speculative execution
+         * @return <code>true</code> if both executions are finished and the result of the job is set
+         */
+        private boolean speculativeExecutionFinished(BuildJob originalJob, BuildJob execution) {
+            BuildJob speculativeExecution = speculativeExecutions.get(originalJob);
+            BuildJob otherExecution = execution == originalJob ? speculativeExecution : originalJob;
+            if (!finishedFirst.contains(otherExecution)) {
+                finishedFirst.add(execution);
+                if (execution.isNotError()) {
+                    synchronized (runningThreads) {
+                        cancel(otherExecution, "Cancelled, the other execution of the build job finished first");
+                    }
+                }
+                return false;
+            }
+
+            finishedFirst.remove(otherExecution);
+            speculativeExecutions.remove(originalJob);
+            originalJobs.remove(speculativeExecution);
+
+            // a failed execution only wins when the other one failed as well
+            BuildJob winner = otherExecution.isNotError() ? otherExecution : execution;
+            BuildJob loser = winner == originalJob ? speculativeExecution : originalJob;
+            String loserResult = loser.getResult();
+            float loserTime = loser.getTime();
+            String loserBuildlog = loser.getBuildlog();
+            if (winner != originalJob) {
+                originalJob.setResult(winner.getResult());
+                originalJob.setFailureMessage(winner.getFailureMessage());
+                originalJob.setTime(winner.getTime());
+                originalJob.setBuildlog(winner.getBuildlog());
+            }
+            originalJob.setSupersededResult(loserResult);
+            originalJob.setSupersededTime(loserTime);
+            originalJob.setSupersededBuildlog(loserBuildlog);
+            originalJob.setCancellation(null);
+            accept(speculationConsumer, originalJob);
+            return true;
+        }
+
+        /**
+         * Interrupts a running job, must be called while holding the lock of the running threads.
+         */
+        private void cancel(BuildJob buildJob, String reason) {
+            buildJob.setCancellation(reason);
+            Thread thread = runningThreads.get(buildJob);
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * Skips the pending jobs, except the mandatory ones and the jobs they depend on.
+         */
+        private void skipJobsOverTimeBudget() {
+            Set<BuildJob> requiredJobs = new HashSet<>();
+            Deque<BuildJob> queue = pendingJobs.stream()
+                    .filter(BuildJob::isMandatory)
+                    .collect(Collectors.toCollection(ArrayDeque::new));
+            while (!queue.isEmpty()) {
+                BuildJob buildJob = queue.poll();
+                if (requiredJobs.add(buildJob) && buildJob.getDependsOn() != null) {
+                    queue.addAll(prerequisites.get(buildJob));
+                }
+            }
+
+            Iterator<BuildJob> iterator = pendingJobs.iterator();
+            while (iterator.hasNext()) {
+                BuildJob buildJob = iterator.next();
+                if (!requiredJobs.contains(buildJob)) {
+                    iterator.remove();
+                    buildJob.setResult(BuildJob.Result.SKIPPED);
+                    buildJob.setFailureMessage(TimeBudget.SKIP_REASON);
+                    accept(unscheduledJobConsumer, buildJob);
+                    // skipped jobs do not block the jobs depending on them by ordinal only
+                    finishedJobs.add(buildJob);
+                    unscheduledJobs.add(buildJob);
+                }
+            }
+        }
+
+        private void skipPendingJobs(String reason) {
+            for (BuildJob buildJob : pendingJobs) {
+                buildJob.setResult(BuildJob.Result.SKIPPED);
+                buildJob.setFailureMessage(reason);
+                accept(unscheduledJobConsumer, buildJob);
+            }
+            pendingJobs.clear();
+        }
+    }
+
+    private ExecutorService newExecutorService() {
+        if (virtualThreads) {
             try {
-                executorService.invokeAll(callableJobs);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException(e);
+                // Java 21 API, called by reflection as long as Java 8 is supported
+                return (ExecutorService)
+                        Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // not supported, use platform threads
+            }
+        }
+        return Executors.newFixedThreadPool(threadsCount);
+    }
+
+    private static BuildJob copyOf(BuildJob buildJob) {
+        BuildJob copy = new BuildJob(buildJob.getProject());
+        copy.setType(buildJob.getType());
+        copy.setOrdinal(buildJob.getOrdinal());
+        copy.setDependsOn(buildJob.getDependsOn());
+        copy.setLocks(buildJob.getLocks());
+        copy.setSlots(buildJob.getSlots());
+        copy.setMemoryBudget(buildJob.getMemoryBudget());
+        copy.setExecutionCount(buildJob.getExecutionCount());
+        copy.setSpeculative(true);
+        return copy;
+    }
+
+    private int getLimit(int usedSlots) {
+        if (concurrencyLimit == null) {
+            return threadsCount;
+        }
+        return Math.max(1, Math.min(threadsCount, concurrencyLimit.getLimit(usedSlots)));
+    }
+
+    private int getSlots(BuildJob buildJob) {
+        return Math.max(1, Math.min(threadsCount, buildJob.getSlots()));
+    }
+
+    /**
+     * A job with a heap larger than the whole budget reserves all of it, so it runs alone.
+     */
+    private int getMemoryCost(BuildJob buildJob) {
+        if (memoryBudget <= 0) {
+            return 0;
+        }
+        return Math.max(0, Math.min(memoryBudget, buildJob.getMemoryBudget()));
+    }
+
+    private static List<String> getLocks(BuildJob buildJob) {
+        if (buildJob.getLocks() == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(buildJob.getLocks().split(","));
+    }
+
+    private static void accept(ThrowableJobConsumer jobConsumer, BuildJob buildJob) {
+        try {
+            jobConsumer.accept(buildJob);
+        } catch (Throwable e) {
+            buildJob.setResult(BuildJob.Result.ERROR);
+            buildJob.setFailureMessage(String.valueOf(e));
+        }
+    }
+
+    private static Optional<BuildJob> getFailedDependency(
+            BuildJob buildJob,
+            Collection<BuildJob> prerequisites,
+            Set<BuildJob> jobPreviousJobs,
+            Set<BuildJob> unscheduledJobs) {
+        if (buildJob.getDependsOn() == null) {
+            // ordinal ordering only, the job is executed regardless of the result of the previous ones
+            return Optional.empty();
+        }
+        return prerequisites.stream()
+                .filter(job -> !jobPreviousJobs.contains(job))
+                .filter(job -> !job.isNotError() || unscheduledJobs.contains(job))
+                .findFirst();
+    }
+
+    /**
+     * Gets the {@code dependsOn} entries which match none of the given jobs, like misspelled paths.
+     *
+     * @param jobs all selected jobs, including setup jobs, must not be <code>null</code>
+     * @return the unmatched entries by the job declaring them, in the order of the jobs
+     */
+    static Map<BuildJob, List<String>> getUnknownDependencies(List<BuildJob> jobs) {
+        Set<String> paths = getJobsByPath(jobs).keySet();
+        Map<BuildJob, List<String>> unknownDependencies = new LinkedHashMap<>();
+        for (BuildJob buildJob : jobs) {
+            if (buildJob.getDependsOn() != null) {
+                for (String dependsOn : buildJob.getDependsOn().split(",")) {
+                    if (!paths.contains(normalizeProjectPath(dependsOn))) {
+                        unknownDependencies.computeIfAbsent(buildJob, job -> new ArrayList<>()).add(dependsOn.trim());
+                    }
+                }
             }
-        });
+        }
+        return unknownDependencies;
+    }
+
+    private static Map<String, BuildJob> getJobsByPath(List<BuildJob> jobs) {
+        Map<String, BuildJob> jobsByPath = new HashMap<>();
+        for (BuildJob buildJob : jobs) {
+            jobsByPath.put(normalizeProjectPath(buildJob.getProject()), buildJob);
+        }
+        return jobsByPath;
+    }
+
+    private Map<BuildJob, Collection<BuildJob>> resolvePrerequisites() {
+        Map<String, BuildJob> jobsByPath = getJobsByPath(jobs);
+
+        Map<BuildJob, Collection<BuildJob>> prerequisites = new HashMap<>();
+        for (BuildJob buildJob : jobs) {
+            Collection<BuildJob> jobPrerequisites = new LinkedHashSet<>();
+            if (buildJob.getDependsOn() != null) {
+                // dependencies not executed by this executor, like setup jobs, are already finished, unknown ones
+                // are reported before by getUnknownDependencies
+                for (String dependsOn : buildJob.getDependsOn().split(",")) {
+                    BuildJob dependency = jobsByPath.get(normalizeProjectPath(dependsOn));
+                    if (dependency != null && dependency != buildJob) {
+                        jobPrerequisites.add(dependency);
+                    }
+                }
+            } else {
+                for (BuildJob job : jobs) {
+                    if (job.getOrdinal() > buildJob.getOrdinal()) {
+                        jobPrerequisites.add(job);
+                    }
+                }
+            }
+            for (BuildJob previousJob : previousJobs.getOrDefault(buildJob, Collections.emptySet())) {
+                if (jobs.contains(previousJob) && previousJob != buildJob) {
+                    jobPrerequisites.add(previousJob);
+                }
+            }
+            prerequisites.put(buildJob, new ArrayList<>(jobPrerequisites));
+        }
+        return prerequisites;
+    }
 
-        // all task are finished here
-        executorService.shutdownNow();
+    /**
+     * Project path as a directory path in unix style, so {@code it/pom.xml}, {@code it/} and {@code it\} are equal.
+     */
+    static String normalizeProjectPath(String project) {
+        String path = project.trim().replace('\\', '/');
+        if (path.equals("pom.xml")) {
+            return ".";
+        }
+        if (path.endsWith("/pom.xml")) {
+            path = path.substring(0, path.length() - "/pom.xml".length());
+        }
+        while (path.endsWith("/") && path.length() > 1) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
     }
 }
@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+import org.apache.maven.shared.invoker.InvocationRequest;
+import org.apache.maven.shared.invoker.MavenInvocationException;
+
+/**
+ * Starts Maven processes with the <code>java</code> command line <code>bin/mvn</code> of a Maven installation would
+ * execute, without running the script. The classworlds launcher and the options of the script are resolved once,
+ * the <code>.mvn/jvm.config</code> of the project and <code>MAVEN_OPTS</code> are applied like the script does.
+ *
+ * @since 3.10.2
+ */
+class MavenLauncher {
+
+    static final String LAUNCHER = "org.codehaus.plexus.classworlds.launcher.Launcher";
+
+    static final String ENABLE_NATIVE_ACCESS = "--enable-native-access=ALL-UNNAMED";
+
+    private final File mavenHome;
+    private final File classworldsJar;
+    private final boolean probeNativeAccess;
+
+    /**
+     * Whether the <code>java</code> executables support {@link #ENABLE_NATIVE_ACCESS}, probed by the script on every
+     * run.
+     */
+    private final Map<File, Boolean> nativeAccess = new ConcurrentHashMap<>();
+
+    MavenLauncher(File mavenHome, File classworldsJar, boolean probeNativeAccess) {
+        this.mavenHome = mavenHome;
+        this.classworldsJar = classworldsJar;
+        this.probeNativeAccess = probeNativeAccess;
+    }
+
+    /**
+     * Resolves the classworlds launcher of a Maven installation.
+     *
+     * @param mavenHome the home directory of the Maven installation, must not be <code>null</code>
+     * @return the launcher or <code>null</code> if the installation does not start the Maven 3 command line
+     * @throws IOException if the installation can not be read
+     */
+    static MavenLauncher create(File mavenHome) throws IOException {
+        File[] classworldsJars = new File(mavenHome, "boot")
+                .listFiles((dir, name) -> name.startsWith("plexus-classworlds-") && name.endsWith(".jar"));
+        if (classworldsJars == null
+                || classworldsJars.length != 1
+                || EmbeddedMavenCli.getBootClassPath(mavenHome) == null) {
+            return null;
+        }
+        File script = new File(mavenHome, "bin/mvn");
+        boolean probeNativeAccess = script.isFile()
+                && new String(Files.readAllBytes(script.toPath()), StandardCharsets.UTF_8)
+                        .contains("--enable-native-access");
+        return new MavenLauncher(mavenHome, classworldsJars[0], probeNativeAccess);
+    }
+
+    File getMavenHome() {
+        return mavenHome;
+    }
+
+    /**
+     * Checks whether an invocation must be started by the Maven executable.
+     *
+     * @param request the invocation configured for the build job, must not be <code>null</code>
+     * @return the reason to use the Maven executable or <code>null</code> if it can be launched directly
+     */
+    String getForkReason(InvocationRequest request) {
+        if (request.getMavenExecutable() != null) {
+            return "Maven executable " + request.getMavenExecutable();
+        }
+        if (request.getMavenHome() != null && !EmbeddedMavenExecutor.isSameFile(request.getMavenHome(), mavenHome)) {
+            return "Maven home " + request.getMavenHome();
+        }
+        return null;
+    }
+
+    /**
+     * Runs an invocation in a new Maven process.
+     *
+     * @param request the invocation configured for the build job, must not be <code>null</code>
+     * @return the exit code of Maven
+     * @throws MavenInvocationException if the process could not be started or timed out, also when the current
+     *             thread was interrupted
+     */
+    int execute(InvocationRequest request) throws MavenInvocationException {
+        String[] args = EmbeddedMavenExecutor.getArguments(request);
+        File workingDirectory = EmbeddedMavenExecutor.getWorkingDirectory(request);
+
+        ProcessBuilder processBuilder = new ProcessBuilder().directory(workingDirectory);
+        Map<String, String> environment = processBuilder.environment();
+        if (!request.isShellEnvironmentInherited()) {
+            environment.clear();
+        }
+        environment.putAll(request.getShellEnvironments());
+        if (request.getJavaHome() != null) {
+            environment.put("JAVA_HOME", request.getJavaHome().getAbsolutePath());
+        }
+        File projectBaseDirectory = environment.containsKey("MAVEN_BASEDIR")
+                ? new File(environment.get("MAVEN_BASEDIR"))
+                : getProjectBaseDirectory(workingDirectory, args);
+        environment.put("MAVEN_PROJECTBASEDIR", projectBaseDirectory.getAbsolutePath());
+        environment.put("MAVEN_CMD_LINE_ARGS", getMavenCmdLineArgs(environment.get("MAVEN_CONFIG"), args));
+        if (request.getMavenOpts() != null) {
+            environment.put("MAVEN_OPTS", request.getMavenOpts());
+        }
+
+        InvocationOutputHandler outputHandler = request.getOutputHandler(null);
+        InvocationOutputHandler errorHandler = request.getErrorHandler(null);
+        boolean sameHandler = outputHandler != null && outputHandler == errorHandler;
+        processBuilder
+                .command(getCommand(
+                        getJavaHome(environment),
+                        projectBaseDirectory,
+                        environment.get("MAVEN_OPTS"),
+                        environment.get("MAVEN_DEBUG_OPTS"),
+                        environment.get("MAVEN_ARGS"),
+                        args))
+                .redirectErrorStream(sameHandler);
+
+        Process process;
+        try {
+            process = processBuilder.start();
+            process.getOutputStream().close();
+        } catch (IOException e) {
+            throw new MavenInvocationException("Error starting Maven: " + e.getMessage(), e);
+        }
+        StreamPumper outputPumper = new StreamPumper(process.getInputStream(), outputHandler, System.out);
+        StreamPumper errorPumper =
+                sameHandler ? null : new StreamPumper(process.getErrorStream(), errorHandler, System.err);
+        try {
+            int timeout = request.getTimeoutInSeconds();
+            if (timeout > 0) {
+                if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                    throw new MavenInvocationException("Maven did not finish within " + timeout + " seconds");
+                }
+            } else {
+                process.waitFor();
+            }
+            outputPumper.finish();
+            if (errorPumper != null) {
+                errorPumper.finish();
+            }
+            return process.exitValue();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new MavenInvocationException("Interrupted", e);
+        } catch (IOException e) {
+            throw new MavenInvocationException("Error reading output of Maven: " + e.getMessage(), e);
+        }
+    }
+
+    private static File getJavaHome(Map<String, String> environment) {
+        String javaHome = environment.get("JAVA_HOME");
+        return javaHome != null ? new File(javaHome) : new File(System.getProperty("java.home"));
+    }
+
+    /**
+     * Builds the command line of a Maven process like <code>bin/mvn</code> does.
+     *
+     * @param javaHome the Java home to run Maven with, must not be <code>null</code>
+     * @param projectBaseDirectory the directory with <code>.mvn</code>, must not be <code>null</code>
+     * @param mavenOpts the value of <code>MAVEN_OPTS</code>, may be <code>null</code>
+     * @param mavenDebugOpts the value of <code>MAVEN_DEBUG_OPTS</code>, may be <code>null</code>
+     * @param mavenArgs the value of <code>MAVEN_ARGS</code>, may be <code>null</code>
+     * @param args the arguments of the Maven command line, must not be <code>null</code>
+     * @return the command line
+     * @throws MavenInvocationException if the <code>.mvn/jvm.config</code> of the project can not be read
+     */
+    List<String> getCommand(
+            File javaHome,
+            File projectBaseDirectory,
+            String mavenOpts,
+            String mavenDebugOpts,
+            String mavenArgs,
+            String[] args)
+            throws MavenInvocationException {
+        File java = new File(javaHome, "bin/java");
+        List<String> command = new ArrayList<>();
+        command.add(java.getPath());
+        if (probeNativeAccess && nativeAccess.computeIfAbsent(java, MavenLauncher::isNativeAccessSupported)) {
+            command.add(ENABLE_NATIVE_ACCESS);
+        }
+        try {
+            command.addAll(getJvmConfigOptions(projectBaseDirectory));
+        } catch (IOException e) {
+            throw new MavenInvocationException("Error reading .mvn/jvm.config: " + e.getMessage(), e);
+        }
+        command.addAll(split(mavenOpts));
+        command.addAll(split(mavenDebugOpts));
+        command.add("-classpath");
+        command.add(classworldsJar.getAbsolutePath());
+        command.add("-Dclassworlds.conf=" + EmbeddedMavenCli.getM2Conf(mavenHome).getAbsolutePath());
+        command.add("-Dmaven.home=" + mavenHome.getAbsolutePath());
+        command.add("-Dlibrary.jansi.path=" + new File(mavenHome, "lib/jansi-native").getAbsolutePath());
+        command.add("-Dmaven.multiModuleProjectDirectory=" + projectBaseDirectory.getAbsolutePath());
+        command.add(LAUNCHER);
+        command.addAll(split(mavenArgs));
+        command.addAll(Arrays.asList(args));
+        return command;
+    }
+
+    /**
+     * Gets the options of the <code>.mvn/jvm.config</code> of a project, the lines are joined and split at white space
+     * like <code>bin/mvn</code> does. Comments from a <code>#</code> to the end of the line are left out, like newer
+     * versions of <code>bin/mvn</code> do.
+     *
+     * @param projectBaseDirectory the directory with <code>.mvn</code>, must not be <code>null</code>
+     * @return the options, may be empty but never <code>null</code>
+     * @throws IOException if the file can not be read
+     */
+    static List<String> getJvmConfigOptions(File projectBaseDirectory) throws IOException {
+        File jvmConfig = new File(projectBaseDirectory, ".mvn/jvm.config");
+        if (!jvmConfig.isFile()) {
+            return new ArrayList<>();
+        }
+        String content = new String(Files.readAllBytes(jvmConfig.toPath()), Charset.defaultCharset());
+        List<String> options = new ArrayList<>();
+        for (String line : content.split("[\r\n]")) {
+            int comment = line.indexOf('#');
+            options.addAll(split(comment >= 0 ? line.substring(0, comment) : line));
+        }
+        return options;
+    }
+
+    /**
+     * Looks for the directory with <code>.mvn</code> like <code>bin/mvn</code> does, starting at the directory of
+     * the <code>-f</code> argument, if any.
+     */
+    static File getProjectBaseDirectory(File workingDirectory, String[] args) {
+        File start = workingDirectory;
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("-f".equals(args[i]) || "--file".equals(args[i])) {
+                File file = new File(args[i + 1]);
+                if (!file.isAbsolute()) {
+                    file = new File(workingDirectory, args[i + 1]);
+                }
+                start = file.isDirectory() ? file : file.getAbsoluteFile().getParentFile();
+                break;
+            }
+        }
+        return EmbeddedMavenCli.getMultiModuleProjectDirectory(start);
+    }
+
+    private static String getMavenCmdLineArgs(String mavenConfig, String[] args) {
+        StringBuilder buffer = new StringBuilder(mavenConfig != null ? mavenConfig : "");
+        for (String arg : args) {
+            buffer.append(' ').append(arg);
+        }
+        return buffer.toString();
+    }
+
+    static List<String> split(String options) {
+        List<String> result = new ArrayList<>();
+        if (options != null) {
+            for (String option : options.trim().split("\\s+")) {
+                if (!option.isEmpty()) {
+                    result.add(option);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isNativeAccessSupported(File java) {
+        try {
+            Process process = new ProcessBuilder(java.getPath(), ENABLE_NATIVE_ACCESS, "-version")
+                    .redirectErrorStream(true)
+                    .start();
+            try (InputStream is = process.getInputStream()) {
+                byte[] buffer = new byte[1024];
+                while (is.read(buffer) >= 0) {
+                    // discard the version
+                }
+            }
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Hands the lines of an output stream of a Maven process to the output handler of the invocation.
+     */
+    private static class StreamPumper extends Thread {
+
+        private final InputStream input;
+        private final InvocationOutputHandler handler;
+        private final PrintStream defaultStream;
+        private IOException exception;
+
+        StreamPumper(InputStream input, InvocationOutputHandler handler, PrintStream defaultStream) {
+            this.input = input;
+            this.handler = handler;
+            this.defaultStream = defaultStream;
+            setDaemon(true);
+            start();
+        }
+
+        @Override
+        public void run() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, Charset.defaultCharset()))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (handler != null) {
+                        handler.consumeLine(line);
+                    } else {
+                        defaultStream.println(line);
+                    }
+                }
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+
+        void finish() throws IOException, InterruptedException {
+            join();
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
+}
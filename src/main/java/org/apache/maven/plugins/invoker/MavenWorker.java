@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The main class of the long-lived Maven worker JVMs of the {@link MavenWorkerPool}. The Maven core is loaded once, so
+ * its classes stay loaded and compiled by the JIT compiler across builds, the plugins are loaded by each build.
+ * <p>
+ * A build is read from the standard input as the number of arguments, the arguments and the working directory. The
+ * lines written by Maven are sent to the standard output as frames tagged with {@link #OUT} or {@link #ERR}, the
+ * build ends with an {@link #EXIT} frame holding the exit code and the heap used after the build. The worker exits
+ * at the end of the standard input.
+ *
+ * @since 3.10.2
+ */
+class MavenWorker {
+
+    static final byte OUT = 'O';
+
+    static final byte ERR = 'E';
+
+    static final byte EXIT = 'X';
+
+    private MavenWorker() {}
+
+    /**
+     * Runs builds until the end of the standard input.
+     *
+     * @param args the home directory of the Maven installation
+     * @throws Exception if Maven can not be loaded
+     */
+    public static void main(String[] args) throws Exception {
+        File mavenHome = new File(args[0]);
+        OutputStream stderr = new FileOutputStream(FileDescriptor.err);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        DataOutputStream protocol =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        PrintStream out = new PrintStream(new FrameOutputStream(protocol, OUT, stderr), true);
+        PrintStream err = new PrintStream(new FrameOutputStream(protocol, ERR, stderr), true);
+        System.setOut(out);
+        System.setErr(err);
+
+        URL[] bootClassPath = EmbeddedMavenCli.getBootClassPath(mavenHome);
+        if (bootClassPath == null) {
+            throw new IllegalArgumentException("Maven installation " + mavenHome + " can not be embedded");
+        }
+        try (EmbeddedMavenCli cli = EmbeddedMavenCli.load(mavenHome, bootClassPath)) {
+            for (String[] cliArgs = readArguments(in); cliArgs != null; cliArgs = readArguments(in)) {
+                File workingDirectory = new File(readString(in));
+                int exitCode;
+                try {
+                    exitCode = cli.doMain(cliArgs, workingDirectory, out, err);
+                } catch (InvocationTargetException e) {
+                    e.getCause().printStackTrace(err);
+                    exitCode = 1;
+                }
+                out.flush();
+                err.flush();
+
+                System.gc();
+                Runtime runtime = Runtime.getRuntime();
+                synchronized (protocol) {
+                    protocol.writeByte(EXIT);
+                    protocol.writeInt(exitCode);
+                    protocol.writeLong(runtime.totalMemory() - runtime.freeMemory());
+                    protocol.flush();
+                }
+            }
+        }
+        // threads left behind by builds must not keep the worker alive
+        System.exit(0);
+    }
+
+    private static String[] readArguments(DataInputStream in) throws IOException {
+        int count;
+        try {
+            count = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        String[] args = new String[count];
+        for (int i = 0; i < count; i++) {
+            args[i] = readString(in);
+        }
+        return args;
+    }
+
+    static void writeArguments(DataOutputStream out, String[] args, File workingDirectory) throws IOException {
+        out.writeInt(args.length);
+        for (String arg : args) {
+            writeString(out, arg);
+        }
+        writeString(out, workingDirectory.getAbsolutePath());
+        out.flush();
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        // no writeUTF, lines of Maven may be longer than 64 KB
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Sends the lines written by Maven as frames to the invoker.
+     */
+    private static class FrameOutputStream extends EmbeddedMavenCli.LineOutputStream {
+
+        private final DataOutputStream protocol;
+
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream protocol, byte type, OutputStream original) {
+            super(original);
+            this.protocol = protocol;
+            this.type = type;
+        }
+
+        @Override
+        protected void consumeLine(String line) throws IOException {
+            synchronized (protocol) {
+                protocol.writeByte(type);
+                writeString(protocol, line);
+                protocol.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+import org.apache.maven.shared.invoker.InvocationRequest;
+import org.apache.maven.shared.invoker.MavenInvocationException;
+
+/**
+ * A pool of long-lived Maven worker JVMs running {@link MavenWorker}, which keep the Maven core loaded and compiled by
+ * the JIT compiler across builds. Each build still gets its own container, so the plugins are loaded again by every
+ * build.
+ * <p>
+ * A worker is started with the Java home, <code>.mvn/jvm.config</code>, <code>MAVEN_OPTS</code> and environment
+ * variables of the invocation which needs it, and only runs invocations with the same ones. Workers are recycled after
+ * a number of builds or when the heap used after a build exceeds a threshold, idle workers beyond the number of
+ * parallel threads are stopped.
+ *
+ * @since 3.10.2
+ */
+class MavenWorkerPool implements Closeable {
+
+    private final File mavenHome;
+    private final String classPath;
+    private final File logDirectory;
+    private final int maxBuilds;
+    private final long maxHeapUsage;
+    private final int maxIdleWorkers;
+
+    private final LinkedList<Worker> idleWorkers = new LinkedList<>();
+
+    private final AtomicInteger workerCount = new AtomicInteger();
+
+    private boolean closed;
+
+    /**
+     * Creates a pool, workers are started when needed.
+     *
+     * @param mavenHome the home directory of the Maven installation, must not be <code>null</code>
+     * @param logDirectory the directory for the error output of the workers, must not be <code>null</code>
+     * @param maxBuilds the number of builds after which a worker is recycled
+     * @param maxHeapUsage the heap in bytes used after a build above which a worker is recycled, <code>0</code> for
+     *            no limit
+     * @param maxIdleWorkers the number of idle workers kept
+     */
+    MavenWorkerPool(File mavenHome, File logDirectory, int maxBuilds, long maxHeapUsage, int maxIdleWorkers) {
+        this.mavenHome = mavenHome;
+        this.classPath = getClassPath();
+        this.logDirectory = logDirectory;
+        this.maxBuilds = maxBuilds;
+        this.maxHeapUsage = maxHeapUsage;
+        this.maxIdleWorkers = maxIdleWorkers;
+    }
+
+    private static String getClassPath() {
+        try {
+            return new File(MavenWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .getPath();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Checks whether an invocation must be forked, because it needs a setting the workers can't apply.
+     * <p>
+     * The working directory of a build is only passed to Maven as <code>user.dir</code>, the worker process keeps its
+     * own. Builds resolving relative files against the process directory, e.g. plugins forking a process without
+     * setting its directory, must be forked with <code>invoker.workerPool = false</code> in their invoker properties.
+     *
+     * @param request the invocation configured for the build job, must not be <code>null</code>
+     * @return the reason to fork the invocation or <code>null</code> if it can be run by a worker
+     */
+    String getForkReason(InvocationRequest request) {
+        if (request.getMavenExecutable() != null) {
+            return "Maven executable " + request.getMavenExecutable();
+        }
+        if (request.getMavenHome() != null && !EmbeddedMavenExecutor.isSameFile(request.getMavenHome(), mavenHome)) {
+            return "Maven home " + request.getMavenHome();
+        }
+        if (request.getTimeoutInSeconds() > 0) {
+            return "timeout";
+        }
+        return null;
+    }
+
+    /**
+     * Runs an invocation in a worker.
+     *
+     * @param request the invocation configured for the build job, must not be <code>null</code>
+     * @return the exit code of Maven
+     * @throws MavenInvocationException if the worker could not be started or failed, also when the current thread
+     *             was interrupted
+     */
+    int execute(InvocationRequest request) throws MavenInvocationException {
+        String[] args = EmbeddedMavenExecutor.getArguments(request);
+        File workingDirectory = EmbeddedMavenExecutor.getWorkingDirectory(request);
+        InvocationOutputHandler outputHandler = request.getOutputHandler(null);
+        InvocationOutputHandler errorHandler = request.getErrorHandler(null);
+
+        Worker worker;
+        try {
+            worker = acquire(request, args, workingDirectory);
+        } catch (IOException e) {
+            throw new MavenInvocationException("Failed to start Maven worker: " + e.getMessage(), e);
+        }
+        boolean reusable = false;
+        try {
+            worker.building = true;
+            MavenWorker.writeArguments(worker.out, args, workingDirectory);
+            while (true) {
+                Frame frame = worker.frames.take();
+                if (frame.failure != null) {
+                    throw frame.failure;
+                }
+                if (frame.type == MavenWorker.EXIT) {
+                    worker.building = false;
+                    reusable = ++worker.builds < maxBuilds && (maxHeapUsage <= 0 || frame.heapUsage <= maxHeapUsage);
+                    return frame.exitCode;
+                }
+                if (frame.type == MavenWorker.ERR) {
+                    consumeLine(errorHandler, System.err, frame.line);
+                } else {
+                    consumeLine(outputHandler, System.out, frame.line);
+                }
+            }
+        } catch (IOException e) {
+            throw new MavenInvocationException(
+                    "Maven worker failed: " + e.getMessage() + ", see " + worker.log.getAbsolutePath(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MavenInvocationException("Interrupted", e);
+        } finally {
+            release(worker, reusable);
+        }
+    }
+
+    private static void consumeLine(InvocationOutputHandler handler, PrintStream defaultStream, String line)
+            throws IOException {
+        if (handler != null) {
+            handler.consumeLine(line);
+        } else {
+            defaultStream.println(line);
+        }
+    }
+
+    private Worker acquire(InvocationRequest request, String[] args, File workingDirectory) throws IOException {
+        File javaHome =
+                request.getJavaHome() != null ? request.getJavaHome() : new File(System.getProperty("java.home"));
+        File projectBaseDirectory = MavenLauncher.getProjectBaseDirectory(workingDirectory, args);
+        List<String> jvmOptions = MavenLauncher.getJvmConfigOptions(projectBaseDirectory);
+        jvmOptions.addAll(MavenLauncher.split(request.getMavenOpts()));
+        Map<String, String> environment = new TreeMap<>();
+        request.getShellEnvironments().forEach((name, value) -> {
+            // mirrored as user properties
+            if (!name.startsWith("INVOKER_PORT_")) {
+                environment.put(name, value);
+            }
+        });
+        List<Object> key = Arrays.asList(javaHome.getAbsoluteFile(), jvmOptions, environment);
+
+        synchronized (this) {
+            for (Iterator<Worker> it = idleWorkers.iterator(); it.hasNext(); ) {
+                Worker worker = it.next();
+                if (worker.key.equals(key)) {
+                    it.remove();
+                    return worker;
+                }
+            }
+        }
+        return start(key, javaHome, jvmOptions, environment, request.getJavaHome() != null);
+    }
+
+    private Worker start(
+            List<Object> key,
+            File javaHome,
+            List<String> jvmOptions,
+            Map<String, String> environment,
+            boolean setJavaHome)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(javaHome, "bin/java").getPath());
+        command.addAll(jvmOptions);
+        command.add("-Dmaven.home=" + mavenHome.getAbsolutePath());
+        command.add("-Dclassworlds.conf=" + EmbeddedMavenCli.getM2Conf(mavenHome).getAbsolutePath());
+        command.add("-Dlibrary.jansi.path=" + new File(mavenHome, "lib/jansi-native").getAbsolutePath());
+        command.add("-cp");
+        command.add(classPath);
+        command.add(MavenWorker.class.getName());
+        command.add(mavenHome.getAbsolutePath());
+
+        Files.createDirectories(logDirectory.toPath());
+        String name = "worker-" + workerCount.incrementAndGet();
+        File log = new File(logDirectory, name + ".log");
+        ProcessBuilder processBuilder = new ProcessBuilder(command).directory(logDirectory).redirectError(log);
+        processBuilder.environment().putAll(environment);
+        if (setJavaHome) {
+            processBuilder.environment().put("JAVA_HOME", javaHome.getAbsolutePath());
+        }
+        Worker worker = new Worker(key, processBuilder.start(), log);
+        Thread reader = new Thread(worker::readFrames, "maven-" + name + "-reader");
+        reader.setDaemon(true);
+        reader.start();
+        return worker;
+    }
+
+    private void release(Worker worker, boolean reusable) {
+        Worker stopped = worker;
+        synchronized (this) {
+            if (reusable && !closed) {
+                idleWorkers.addFirst(worker);
+                stopped = idleWorkers.size() > maxIdleWorkers ? idleWorkers.removeLast() : null;
+            }
+        }
+        if (stopped != null) {
+            stopped.stop();
+        }
+    }
+
+    /**
+     * Stops the idle workers, the busy ones are stopped when their build is done.
+     */
+    @Override
+    public void close() {
+        List<Worker> workers;
+        synchronized (this) {
+            closed = true;
+            workers = new ArrayList<>(idleWorkers);
+            idleWorkers.clear();
+        }
+        workers.forEach(Worker::stop);
+    }
+
+    private static class Worker {
+
+        private final List<Object> key;
+        private final Process process;
+        private final File log;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+        private int builds;
+        private boolean building;
+
+        Worker(List<Object> key, Process process, File log) {
+            this.key = key;
+            this.process = process;
+            this.log = log;
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        }
+
+        /**
+         * Reads the frames written by the worker until its process exits, so the thread running a build waits for them
+         * interruptibly. An interrupted build stops the process, which ends the reading.
+         */
+        void readFrames() {
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == MavenWorker.EXIT) {
+                        frames.add(new Frame(type, null, in.readInt(), in.readLong(), null));
+                    } else {
+                        frames.add(new Frame(type, MavenWorker.readString(in), 0, 0, null));
+                    }
+                }
+            } catch (IOException e) {
+                // also the end of the output when the process exits
+                frames.add(new Frame((byte) 0, null, 0, 0, e));
+            }
+        }
+
+        void stop() {
+            if (building) {
+                // failed or interrupted in the middle of a build
+                process.destroyForcibly();
+                return;
+            }
+            try {
+                out.close();
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException e) {
+                process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Output line or exit of a build, or the failure reading the output of a worker.
+     */
+    private static class Frame {
+
+        private final byte type;
+        private final String line;
+        private final int exitCode;
+        private final long heapUsage;
+        private final IOException failure;
+
+        Frame(byte type, String line, int exitCode, long heapUsage, IOException failure) {
+            this.type = type;
+            this.line = line;
+            this.exitCode = exitCode;
+            this.heapUsage = heapUsage;
+            this.failure = failure;
+        }
+    }
+}
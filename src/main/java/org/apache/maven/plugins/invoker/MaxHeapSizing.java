@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Maximal heap of the Maven processes of build jobs derived from the physical memory, used for
+ * <code>autoMaxHeap</code>.
+ * <p>
+ * The memory left after the reserve for the Maven process of the plugin is divided by the number of concurrently
+ * running build jobs. Only a part of it is used as heap, the rest is left for metaspace, thread stacks and code cache
+ * of each process.
+ *
+ * @since 3.10.2
+ */
+class MaxHeapSizing {
+
+    /**
+     * The part of the memory of a Maven process used as heap.
+     */
+    static final double HEAP_RATIO = 0.75;
+
+    /**
+     * The smallest heap in MB given to a Maven process.
+     */
+    static final int MIN_HEAP = 256;
+
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+
+    private static final Path[] CGROUP_LIMITS = {
+        Paths.get("/sys/fs/cgroup/memory.max"), Paths.get("/sys/fs/cgroup/memory/memory.limit_in_bytes")
+    };
+
+    private MaxHeapSizing() {}
+
+    /**
+     * Computes the maximal heap of each Maven process.
+     *
+     * @param totalMemory the physical memory in MB
+     * @param reserve the memory in MB reserved for the Maven process of the plugin
+     * @param concurrency the number of concurrently running build jobs
+     * @return the maximal heap in MB, at least {@link #MIN_HEAP}
+     */
+    static int compute(long totalMemory, long reserve, int concurrency) {
+        long memory = (totalMemory - Math.max(0, reserve)) / Math.max(1, concurrency);
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_HEAP, (long) (memory * HEAP_RATIO)));
+    }
+
+    /**
+     * Gets the physical memory, limited to the memory limit of the container on Linux.
+     *
+     * @return the physical memory in MB or a negative value if not available
+     */
+    static long getTotalMemory() {
+        long totalMemory = -1;
+        try {
+            if (Files.isReadable(MEMINFO)) {
+                totalMemory = parseTotalMemory(Files.readAllLines(MEMINFO));
+            }
+        } catch (IOException | RuntimeException e) {
+            // use fallback
+        }
+        if (totalMemory < 0) {
+            OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+            if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+                totalMemory = ((com.sun.management.OperatingSystemMXBean) bean).getTotalPhysicalMemorySize()
+                        / (1024 * 1024);
+            }
+        }
+
+        for (Path cgroupLimit : CGROUP_LIMITS) {
+            try {
+                if (Files.isReadable(cgroupLimit)) {
+                    long limit = parseCgroupLimit(new String(Files.readAllBytes(cgroupLimit)));
+                    if (limit > 0 && (totalMemory < 0 || limit < totalMemory)) {
+                        totalMemory = limit;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // no limit
+            }
+        }
+        return totalMemory > 0 ? totalMemory : -1;
+    }
+
+    static long parseTotalMemory(List<String> meminfo) {
+        for (String line : meminfo) {
+            if (line.startsWith("MemTotal:")) {
+                String[] fields = line.substring("MemTotal:".length()).trim().split("\\s+");
+                return Long.parseLong(fields[0]) / 1024;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the memory limit of a cgroup, <code>max</code> for no limit.
+     *
+     * @return the limit in MB or a negative value if not limited
+     */
+    static long parseCgroupLimit(String limit) {
+        String value = limit.trim();
+        if (value.isEmpty() || "max".equals(value)) {
+            return -1;
+        }
+        return Long.parseLong(value) / (1024 * 1024);
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugins.invoker.model.BuildJob;
+import org.apache.maven.shared.invoker.InvocationOutputHandler;
+
+/**
+ * Build jobs run together as modules of a generated aggregator POM, so they share one Maven invocation.
+ * <p>
+ * The invocation runs with <code>--fail-at-end</code>, so a failed module does not stop the others. Its output is split
+ * by the project headers Maven 3.6 and later print before each module, like
+ * <code>[INFO] ----&lt; groupId:artifactId &gt;----</code>. The build log of a build job consists of the output before
+ * the first module, the section of its module and the reactor summary. The result of a module is taken from the line
+ * of the reactor summary at the index of its header, <code>[k/n]</code>, as the names in the summary need not be
+ * unique. Unless the output accounts for every module, with a header and a summary line of the same project at its
+ * own index, no module of a failed invocation counts as built.
+ *
+ * @since 3.10.2
+ */
+class ReactorBatch implements InvocationOutputHandler {
+
+    private static final Pattern PROJECT_HEADER = Pattern.compile("\\[INFO\\] -+< (\\S+) >-+");
+
+    private static final Pattern PROJECT_INDEX = Pattern.compile("\\[INFO\\] Building (.+?)\\s+\\[(\\d+)/(\\d+)\\]");
+
+    // names up to the padded width are followed by dots
+    private static final Pattern PROJECT_RESULT =
+            Pattern.compile("\\[INFO\\] (.+?) (?:\\.+ )?(SUCCESS|FAILURE|SKIPPED)( \\[.*\\])?");
+
+    private static final String REACTOR_SUMMARY = "[INFO] Reactor Summary";
+
+    private static final String SEPARATOR = "[INFO] ---";
+
+    private final File directory;
+
+    private final Map<BuildJob, Module> modules = new LinkedHashMap<>();
+
+    private final Map<String, Module> modulesByCoordinates = new HashMap<>();
+
+    private final List<String> output = new ArrayList<>();
+
+    private final List<String> prelude = new ArrayList<>();
+
+    private final List<String> summary = new ArrayList<>();
+
+    private final List<String> resultNames = new ArrayList<>();
+
+    private final List<String> results = new ArrayList<>();
+
+    private List<String> section = prelude;
+
+    private Module current;
+
+    private boolean inSummary;
+
+    private boolean summaryDone;
+
+    private int projectCount;
+
+    private long time;
+
+    ReactorBatch(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Adds a build job as module.
+     *
+     * @param buildJob the build job, must not be <code>null</code>
+     * @param coordinates the <code>groupId:artifactId</code> of the project, must not be <code>null</code>
+     * @param pomFile the POM to build, must not be <code>null</code>
+     * @return <code>false</code> if the batch has a module with the same coordinates already
+     */
+    boolean add(BuildJob buildJob, String coordinates, File pomFile) {
+        if (modulesByCoordinates.containsKey(coordinates)) {
+            return false;
+        }
+        Module module = new Module(pomFile);
+        modules.put(buildJob, module);
+        modulesByCoordinates.put(coordinates, module);
+        return true;
+    }
+
+    int size() {
+        return modules.size();
+    }
+
+    List<BuildJob> getBuildJobs() {
+        return new ArrayList<>(modules.keySet());
+    }
+
+    File getBasedir(BuildJob buildJob) {
+        return modules.get(buildJob).pomFile.getParentFile();
+    }
+
+    File getModulePomFile(BuildJob buildJob) {
+        return modules.get(buildJob).pomFile;
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    File getPomFile() {
+        return new File(directory, "pom.xml");
+    }
+
+    /**
+     * @return the time of the invocation in milliseconds divided by the number of modules
+     */
+    long getTimePerBuildJob() {
+        return time / Math.max(1, modules.size());
+    }
+
+    void setTime(long time) {
+        this.time = time;
+    }
+
+    /**
+     * Writes the aggregator POM and an empty <code>.mvn</code> directory, so Maven does not pick up the configuration
+     * of a parent directory.
+     *
+     * @throws IOException if the files can not be written
+     */
+    void writePom() throws IOException {
+        Files.createDirectories(new File(directory, ".mvn").toPath());
+        StringBuilder pom = new StringBuilder();
+        pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        pom.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+        pom.append("  <modelVersion>4.0.0</modelVersion>\n");
+        pom.append("  <groupId>org.apache.maven.plugins.invoker.batch</groupId>\n");
+        pom.append("  <artifactId>").append(directory.getName()).append("</artifactId>\n");
+        pom.append("  <version>1</version>\n");
+        pom.append("  <packaging>pom</packaging>\n");
+        pom.append("  <modules>\n");
+        for (Module module : modules.values()) {
+            pom.append("    <module>").append(getModulePath(module.pomFile)).append("</module>\n");
+        }
+        pom.append("  </modules>\n");
+        pom.append("</project>\n");
+        Files.write(getPomFile().toPath(), pom.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String getModulePath(File pomFile) {
+        File module = "pom.xml".equals(pomFile.getName()) ? pomFile.getParentFile() : pomFile;
+        String path = directory.getAbsoluteFile()
+                .toPath()
+                .relativize(module.getAbsoluteFile().toPath())
+                .toString()
+                .replace('\\', '/');
+        return path.replace("&", "&amp;").replace("<", "&lt;");
+    }
+
+    /**
+     * Writes the complete output of the invocation to <code>build.log</code> next to the aggregator POM.
+     *
+     * @throws IOException if the log can not be written
+     */
+    synchronized void writeBuildLog() throws IOException {
+        Files.write(new File(directory, "build.log").toPath(), output, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void consumeLine(String line) {
+        output.add(line);
+        if (inSummary) {
+            summary.add(line);
+            if (line.startsWith(SEPARATOR)) {
+                // followed by the overall result
+                summaryDone = true;
+            }
+            Matcher result = PROJECT_RESULT.matcher(line);
+            if (!summaryDone && result.matches()) {
+                resultNames.add(result.group(1));
+                results.add(result.group(2));
+            }
+            return;
+        }
+        if (line.startsWith(REACTOR_SUMMARY)) {
+            inSummary = true;
+            summary.add(line);
+            return;
+        }
+        Matcher header = PROJECT_HEADER.matcher(line);
+        if (header.matches()) {
+            current = modulesByCoordinates.get(header.group(1));
+            // lines of the aggregator itself belong to no build job
+            section = current != null ? current.section : null;
+        } else if (current != null && current.index == 0) {
+            Matcher index = PROJECT_INDEX.matcher(line);
+            if (index.matches()) {
+                current.name = index.group(1);
+                current.index = Integer.parseInt(index.group(2));
+                projectCount = Integer.parseInt(index.group(3));
+            }
+        }
+        if (section != null) {
+            section.add(line);
+        }
+    }
+
+    /**
+     * Checks whether the module of a build job was built successfully.
+     *
+     * @param buildJob the build job, must not be <code>null</code>
+     * @param exitCode the exit code of the invocation
+     * @return <code>true</code> if the invocation succeeded or the reactor summary reports success for the module and
+     *         the output accounts for every module
+     */
+    synchronized boolean isSuccessful(BuildJob buildJob, int exitCode) {
+        if (exitCode == 0) {
+            return true;
+        }
+        Module module = modules.get(buildJob);
+        return isAccountedFor() && "SUCCESS".equals(results.get(module.index - 1));
+    }
+
+    /**
+     * Checks whether the output accounts for every module: the reactor has the modules and the aggregator, each module
+     * has a header with its own index, and the line of the reactor summary at that index names the same project.
+     */
+    private boolean isAccountedFor() {
+        if (projectCount != modules.size() + 1 || results.size() != projectCount) {
+            return false;
+        }
+        Set<Integer> indexes = new HashSet<>();
+        for (Module module : modules.values()) {
+            if (module.index < 1
+                    || module.index > projectCount
+                    || !indexes.add(module.index)
+                    // the header adds the version to the name
+                    || !module.name.startsWith(resultNames.get(module.index - 1))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the part of the output belonging to the module of a build job.
+     *
+     * @param buildJob the build job, must not be <code>null</code>
+     * @return the lines of the output before the first module, of the module and of the reactor summary
+     */
+    synchronized List<String> getBuildLog(BuildJob buildJob) {
+        List<String> buildLog = new ArrayList<>(prelude);
+        buildLog.addAll(modules.get(buildJob).section);
+        buildLog.addAll(summary);
+        return buildLog;
+    }
+
+    private static class Module {
+
+        private final File pomFile;
+
+        private final List<String> section = new ArrayList<>();
+
+        private String name;
+
+        private int index;
+
+        Module(File pomFile) {
+            this.pomFile = pomFile;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugins.invoker.model.BuildJob;
+
+/**
+ * Holds the pools of parallel slots shared by all executions of the plugin in a Maven session, e.g. by the modules
+ * of a reactor built with <code>-T</code>.
+ *
+ * @since 3.10.2
+ */
+@Named
+@Singleton
+class SharedSlotPools {
+
+    // keyed by the request, the session is cloned for each module in a parallel build
+    private final Map<Object, Pool> pools = new WeakHashMap<>();
+
+    /**
+     * Gets the pool of the given session, created with the given size by the first execution asking for it.
+     *
+     * @param session the current session, must not be <code>null</code>
+     * @param size the number of slots of a new pool
+     * @return the pool of the session, never <code>null</code>
+     */
+    synchronized Pool get(MavenSession session, int size) {
+        return pools.computeIfAbsent(session.getRequest(), k -> new Pool(size));
+    }
+
+    /**
+     * A fixed number of slots, taken by the running build jobs of all executions. Each running build job also gets a
+     * worker index from the pool, so port ranges and processor sets of build jobs running in different executions
+     * are disjoint.
+     */
+    static class Pool implements JobExecutor.SlotPool {
+        private final int size;
+        private int usedSlots;
+
+        // slots and workers taken by the running jobs
+        private final Map<BuildJob, Integer> jobSlots = new HashMap<>();
+        private final Map<BuildJob, Integer> jobWorkers = new HashMap<>();
+        private final TreeSet<Integer> freeWorkers = new TreeSet<>();
+
+        Pool(int size) {
+            this.size = Math.max(1, size);
+            for (int worker = 0; worker < this.size; worker++) {
+                freeWorkers.add(worker);
+            }
+        }
+
+        /**
+         * @return the number of slots
+         */
+        int getSize() {
+            return size;
+        }
+
+        @Override
+        public synchronized boolean tryAcquire(BuildJob buildJob, int slots) {
+            int required = Math.min(size, slots);
+            if (usedSlots + required > size) {
+                return false;
+            }
+            usedSlots += required;
+            jobSlots.put(buildJob, required);
+            // each job takes at least one slot, so there is a free worker
+            jobWorkers.put(buildJob, freeWorkers.pollFirst());
+            return true;
+        }
+
+        @Override
+        public synchronized void release(BuildJob buildJob) {
+            Integer slots = jobSlots.remove(buildJob);
+            if (slots != null) {
+                usedSlots -= slots;
+                freeWorkers.add(jobWorkers.remove(buildJob));
+            }
+        }
+
+        @Override
+        public synchronized int getWorker(BuildJob buildJob) {
+            return jobWorkers.getOrDefault(buildJob, -1);
+        }
+    }
+}
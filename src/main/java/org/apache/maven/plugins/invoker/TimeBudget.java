@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.maven.plugins.invoker.model.BuildJob;
+
+/**
+ * Selects the build jobs which fit into a time budget.
+ * <p>
+ * Build jobs are chosen by the failures they are expected to find per second, estimated by the failure rates and
+ * durations recorded in the history, until the sum of their estimated durations divided by the number of threads
+ * exceeds the budget. Mandatory build jobs are always chosen, and with each chosen build job the build jobs it depends
+ * on.
+ *
+ * @since 3.10.2
+ */
+class TimeBudget {
+
+    /**
+     * The reason of build jobs skipped because they do not fit into the time budget.
+     */
+    static final String SKIP_REASON = "Skipped due to time budget";
+
+    private static final Pattern DURATION_PATTERN = Pattern.compile("(\\d+)([hms]?)");
+
+    private final long budgetSeconds;
+    private final int threadsCount;
+    private final BuildJobHistory history;
+
+    /**
+     * @param budgetSeconds the time budget in seconds
+     * @param threadsCount the number of build jobs running in parallel
+     * @param history the recorded durations and failures, must not be <code>null</code>
+     */
+    TimeBudget(long budgetSeconds, int threadsCount, BuildJobHistory history) {
+        this.budgetSeconds = budgetSeconds;
+        this.threadsCount = Math.max(1, threadsCount);
+        this.history = history;
+    }
+
+    /**
+     * Parses a time budget like <code>90s</code>, <code>10m</code> or <code>1h30m</code>, a number without unit are
+     * seconds.
+     *
+     * @param timeBudget the time budget, must not be <code>null</code>
+     * @return the time budget in seconds
+     * @throws IllegalArgumentException if the time budget can not be parsed
+     */
+    static long parse(String timeBudget) {
+        String value = timeBudget.trim().toLowerCase();
+        Matcher matcher = DURATION_PATTERN.matcher(value);
+        long seconds = 0;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            long amount = Long.parseLong(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "h":
+                    seconds += amount * 3600;
+                    break;
+                case "m":
+                    seconds += amount * 60;
+                    break;
+                default:
+                    seconds += amount;
+            }
+            end = matcher.end();
+        }
+        if (value.isEmpty() || end != value.length()) {
+            throw new IllegalArgumentException("Invalid time budget: " + timeBudget);
+        }
+        return seconds;
+    }
+
+    /**
+     * Selects the build jobs which fit into the time budget.
+     *
+     * @param buildJobs the build jobs to choose from, must not be <code>null</code>
+     * @return the chosen build jobs in the original order
+     */
+    List<BuildJob> select(List<BuildJob> buildJobs) {
+        Map<String, BuildJob> jobsByPath = new HashMap<>();
+        for (BuildJob buildJob : buildJobs) {
+            jobsByPath.put(JobExecutor.normalizeProjectPath(buildJob.getProject()), buildJob);
+        }
+
+        Set<BuildJob> selected = new LinkedHashSet<>();
+        float usedSeconds = 0;
+        for (BuildJob buildJob : buildJobs) {
+            if (isMandatory(buildJob)) {
+                usedSeconds += add(withDependencies(buildJob, jobsByPath), selected);
+            }
+        }
+
+        float capacity = (float) budgetSeconds * threadsCount;
+        List<BuildJob> candidates = buildJobs.stream()
+                .filter(job -> !selected.contains(job))
+                .sorted(Comparator.comparing((BuildJob job) -> history.getFailureDensity(job.getProject()))
+                        .reversed()
+                        .thenComparing(job -> JobExecutor.normalizeProjectPath(job.getProject())))
+                .collect(Collectors.toList());
+        for (BuildJob buildJob : candidates) {
+            if (selected.contains(buildJob)) {
+                continue;
+            }
+            Set<BuildJob> required = withDependencies(buildJob, jobsByPath);
+            required.removeAll(selected);
+            if (usedSeconds + getEstimatedDuration(required) <= capacity) {
+                usedSeconds += add(required, selected);
+            }
+        }
+
+        return buildJobs.stream().filter(selected::contains).collect(Collectors.toList());
+    }
+
+    private static boolean isMandatory(BuildJob buildJob) {
+        return buildJob.isMandatory() || BuildJob.Type.SETUP.equals(buildJob.getType());
+    }
+
+    private float add(Set<BuildJob> buildJobs, Set<BuildJob> selected) {
+        Set<BuildJob> added = new LinkedHashSet<>(buildJobs);
+        added.removeAll(selected);
+        selected.addAll(added);
+        return getEstimatedDuration(added);
+    }
+
+    private float getEstimatedDuration(Set<BuildJob> buildJobs) {
+        float duration = 0;
+        for (BuildJob buildJob : buildJobs) {
+            duration += history.getEstimatedDuration(buildJob.getProject());
+        }
+        return duration;
+    }
+
+    /**
+     * The build job and all build jobs it depends on, directly or indirectly.
+     */
+    private static Set<BuildJob> withDependencies(BuildJob buildJob, Map<String, BuildJob> jobsByPath) {
+        Set<BuildJob> result = new LinkedHashSet<>();
+        Deque<BuildJob> queue = new ArrayDeque<>();
+        queue.add(buildJob);
+        while (!queue.isEmpty()) {
+            BuildJob job = queue.poll();
+            if (result.add(job) && job.getDependsOn() != null) {
+                for (String dependsOn : job.getDependsOn().split(",")) {
+                    BuildJob dependency = jobsByPath.get(JobExecutor.normalizeProjectPath(dependsOn));
+                    if (dependency != null) {
+                        queue.add(dependency);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
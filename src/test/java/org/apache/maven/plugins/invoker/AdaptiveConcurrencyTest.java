@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.util.Arrays;
+
+import org.apache.maven.plugin.logging.Log;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for AdaptiveConcurrency.
+ */
+@ExtendWith(MockitoExtension.class)
+class AdaptiveConcurrencyTest {
+
+    @Mock
+    private Log log;
+
+    private double loadAverage;
+
+    private long availableMemory;
+
+    private final AdaptiveConcurrency.SystemMetrics metrics = new AdaptiveConcurrency.SystemMetrics() {
+        @Override
+        public double getLoadAverage() {
+            return loadAverage;
+        }
+
+        @Override
+        public long getAvailableMemory() {
+            return availableMemory;
+        }
+    };
+
+    @Test
+    void initialLimitDependsOnLoad() {
+        loadAverage = 5;
+        availableMemory = 8192;
+
+        assertThat(new AdaptiveConcurrency(1, 6, 1024, 8, metrics, log).getLimit(0))
+                .isEqualTo(3);
+
+        loadAverage = 0;
+        assertThat(new AdaptiveConcurrency(1, 6, 1024, 8, metrics, log).getLimit(0))
+                .isEqualTo(6);
+
+        loadAverage = 12;
+        assertThat(new AdaptiveConcurrency(2, 6, 1024, 8, metrics, log).getLimit(0))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void limitGrowsWithSpareCapacity() {
+        loadAverage = 6;
+        availableMemory = 8192;
+        AdaptiveConcurrency concurrency = new AdaptiveConcurrency(1, 4, 1024, 8, metrics, log);
+        assertThat(concurrency.getLimit(0)).isEqualTo(2);
+
+        loadAverage = 2;
+        // not all slots are used
+        assertThat(concurrency.decide(1)).isEqualTo(2);
+        assertThat(concurrency.decide(2)).isEqualTo(3);
+        assertThat(concurrency.decide(3)).isEqualTo(4);
+        // maximum reached
+        assertThat(concurrency.decide(4)).isEqualTo(4);
+
+        verify(log).info(contains("spare capacity - active slots 2 -> 3"));
+    }
+
+    @Test
+    void limitShrinksWhenOverloadedOrLowMemory() {
+        loadAverage = 0;
+        availableMemory = 8192;
+        AdaptiveConcurrency concurrency = new AdaptiveConcurrency(2, 4, 1024, 8, metrics, log);
+        assertThat(concurrency.getLimit(0)).isEqualTo(4);
+
+        loadAverage = 9;
+        assertThat(concurrency.decide(4)).isEqualTo(3);
+
+        loadAverage = 1;
+        availableMemory = 512;
+        assertThat(concurrency.decide(3)).isEqualTo(2);
+        // minimum reached
+        assertThat(concurrency.decide(2)).isEqualTo(2);
+
+        verify(log).info(contains("system overloaded - active slots 4 -> 3"));
+        verify(log).info(contains("low memory - active slots 3 -> 2"));
+    }
+
+    @Test
+    void parseAvailableMemory() {
+        assertThat(AdaptiveConcurrency.ProcMetrics.parseAvailableMemory(Arrays.asList(
+                        "MemTotal:       16314368 kB", "MemFree:         1215608 kB", "MemAvailable:    8388608 kB")))
+                .isEqualTo(8192);
+        assertThat(AdaptiveConcurrency.ProcMetrics.parseAvailableMemory(Arrays.asList("MemTotal: 16314368 kB")))
+                .isEqualTo(-1);
+    }
+}
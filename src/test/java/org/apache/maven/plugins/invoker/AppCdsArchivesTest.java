@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.maven.shared.invoker.DefaultInvocationRequest;
+import org.apache.maven.shared.invoker.InvocationRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for AppCdsArchives.
+ */
+class AppCdsArchivesTest {
+
+    @TempDir
+    private File tempDir;
+
+    private File mavenHome;
+
+    private File javaHome;
+
+    private File directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mavenHome = new File(tempDir, "maven");
+        write(new File(mavenHome, "bin/m2.conf"), "main is org.apache.maven.cli.MavenCli from plexus.core");
+        write(new File(mavenHome, "boot/plexus-classworlds-2.8.0.jar"), "boot");
+        write(new File(mavenHome, "lib/maven-core-3.9.11.jar"), "core");
+        javaHome = new File(tempDir, "jdk-17");
+        write(new File(javaHome, "release"), "JAVA_VERSION=\"17.0.9\"");
+        write(new File(javaHome, "lib/modules"), "modules");
+        directory = new File(tempDir, "target/invoker-cds");
+    }
+
+    @Test
+    void parseJavaVersion() {
+        assertThat(AppCdsArchives.parseJavaVersion(Arrays.asList("IMPLEMENTOR=\"Eclipse\"", "JAVA_VERSION=\"17.0.9\"")))
+                .isEqualTo(17);
+        assertThat(AppCdsArchives.parseJavaVersion(Collections.singletonList("JAVA_VERSION=\"21\"")))
+                .isEqualTo(21);
+        assertThat(AppCdsArchives.parseJavaVersion(Collections.singletonList("JAVA_VERSION=\"1.8.0_392\"")))
+                .isEqualTo(8);
+        assertThat(AppCdsArchives.parseJavaVersion(Collections.singletonList("IMPLEMENTOR=\"Eclipse\"")))
+                .isEqualTo(-1);
+    }
+
+    @Test
+    void firstInvocationShouldTrainArchiveUsedByLaterInvocations() throws IOException {
+        AppCdsArchives archives = AppCdsArchives.create(mavenHome, directory);
+
+        InvocationRequest training = newRequest("-Xmx512m");
+        File trainingArchive = archives.configure(training);
+        assertThat(trainingArchive).isNotNull();
+        assertThat(training.getMavenOpts())
+                .isEqualTo("-Xmx512m " + AppCdsArchives.ARCHIVE_CLASSES_AT_EXIT + trainingArchive.getAbsolutePath()
+                        + " " + AppCdsArchives.DISABLE_CDS_LOG);
+
+        InvocationRequest parallel = newRequest(null);
+        assertThat(archives.configure(parallel)).isNull();
+        assertThat(parallel.getMavenOpts()).isNull();
+
+        write(trainingArchive, "archive");
+        archives.trained(trainingArchive);
+        File archive = new File(directory, archives.getArchiveName(javaHome));
+        assertThat(archive).isFile();
+        assertThat(trainingArchive).doesNotExist();
+
+        InvocationRequest later = newRequest(null);
+        assertThat(archives.configure(later)).isNull();
+        assertThat(later.getMavenOpts())
+                .isEqualTo(AppCdsArchives.SHARED_ARCHIVE_FILE + archive.getAbsolutePath() + " "
+                        + AppCdsArchives.DISABLE_CDS_LOG);
+    }
+
+    @Test
+    void failedTrainingShouldNotBeRepeated() throws IOException {
+        AppCdsArchives archives = AppCdsArchives.create(mavenHome, directory);
+
+        File trainingArchive = archives.configure(newRequest(null));
+        archives.trained(trainingArchive);
+
+        InvocationRequest request = newRequest(null);
+        assertThat(archives.configure(request)).isNull();
+        assertThat(request.getMavenOpts()).isNull();
+    }
+
+    @Test
+    void archiveNameShouldChangeWithMavenAndJava() throws IOException {
+        String name = AppCdsArchives.create(mavenHome, directory).getArchiveName(javaHome);
+        assertThat(name).startsWith("maven-").endsWith(".jsa");
+        assertThat(AppCdsArchives.create(mavenHome, directory).getArchiveName(javaHome))
+                .isEqualTo(name);
+
+        write(new File(javaHome, "release"), "JAVA_VERSION=\"17.0.10\"");
+        String newJava = AppCdsArchives.create(mavenHome, directory).getArchiveName(javaHome);
+        assertThat(newJava).isNotEqualTo(name);
+
+        write(new File(mavenHome, "lib/maven-core-3.9.11.jar"), "patched core");
+        assertThat(AppCdsArchives.create(mavenHome, directory).getArchiveName(javaHome))
+                .isNotEqualTo(newJava);
+    }
+
+    @Test
+    void oldJavaShouldNotBeArchived() throws IOException {
+        write(new File(javaHome, "release"), "JAVA_VERSION=\"11.0.21\"");
+        AppCdsArchives archives = AppCdsArchives.create(mavenHome, directory);
+
+        assertThat(archives.getArchiveName(javaHome)).isNull();
+        assertThat(archives.getArchiveName(new File(tempDir, "missing"))).isNull();
+        InvocationRequest request = newRequest(null);
+        assertThat(archives.configure(request)).isNull();
+        assertThat(request.getMavenOpts()).isNull();
+    }
+
+    @Test
+    void configuredClassDataSharingShouldBeKept() {
+        AppCdsArchives archives = AppCdsArchives.create(mavenHome, directory);
+
+        InvocationRequest request = newRequest("-Xshare:off");
+        assertThat(archives.configure(request)).isNull();
+        assertThat(request.getMavenOpts()).isEqualTo("-Xshare:off");
+        assertThat(AppCdsArchives.hasOption("-XX:SharedArchiveFile=app.jsa")).isTrue();
+        assertThat(AppCdsArchives.hasOption("-Xmx512m")).isFalse();
+        assertThat(AppCdsArchives.hasOption(null)).isFalse();
+    }
+
+    @Test
+    void classDataSharingConfiguredInJvmConfigShouldBeKept() throws IOException {
+        AppCdsArchives archives = AppCdsArchives.create(mavenHome, directory);
+        File project = new File(tempDir, "project");
+        write(new File(project, ".mvn/jvm.config"), "# no sharing\n-Xshare:off\n");
+
+        InvocationRequest request = newRequest("-Xmx512m");
+        request.setBaseDirectory(project);
+        assertThat(archives.configure(request)).isNull();
+        assertThat(request.getMavenOpts()).isEqualTo("-Xmx512m");
+
+        write(new File(project, ".mvn/jvm.config"), "# -Xshare:off\n-Xss4m\n");
+        assertThat(archives.configure(request)).isNotNull();
+    }
+
+    @Test
+    void getJavaHomeShouldFollowJavaHomeVariable() {
+        InvocationRequest request = new DefaultInvocationRequest();
+        request.addShellEnvironment("JAVA_HOME", javaHome.getPath());
+        assertThat(AppCdsArchives.getJavaHome(request)).isEqualTo(javaHome);
+
+        request.setJavaHome(mavenHome);
+        assertThat(AppCdsArchives.getJavaHome(request)).isEqualTo(mavenHome);
+    }
+
+    private InvocationRequest newRequest(String mavenOpts) {
+        InvocationRequest request = new DefaultInvocationRequest();
+        request.setJavaHome(javaHome);
+        request.setMavenOpts(mavenOpts);
+        return request;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
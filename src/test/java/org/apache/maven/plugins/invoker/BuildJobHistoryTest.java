@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.maven.plugins.invoker.model.BuildJob;
+import org.apache.maven.plugins.invoker.model.io.xpp3.BuildJobXpp3Writer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for BuildJobHistory.
+ */
+class BuildJobHistoryTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void estimatedDurationIsAverageOfRecordedDurations() {
+        BuildJobHistory history = new BuildJobHistory();
+        history.addDuration("project1", 10);
+        history.addDuration("project1", 20);
+        history.addDuration("project2", 30);
+
+        assertThat(history.getEstimatedDuration("project1/pom.xml")).isEqualTo(15);
+        assertThat(history.getEstimatedDuration("project2")).isEqualTo(30);
+
+        // average of all projects
+        assertThat(history.getEstimatedDuration("unknown")).isEqualTo(22.5f);
+
+        history.setDefaultDuration(5f);
+        assertThat(history.getEstimatedDuration("unknown")).isEqualTo(5);
+    }
+
+    @Test
+    void percentileDurationUsesNearestRank() {
+        BuildJobHistory history = new BuildJobHistory();
+        for (int i = 10; i >= 1; i--) {
+            history.addDuration("project", i);
+        }
+
+        assertThat(history.getPercentileDuration("project", 95)).isEqualTo(10);
+        assertThat(history.getPercentileDuration("project", 50)).isEqualTo(5);
+        assertThat(history.getPercentileDuration("project", 0)).isEqualTo(1);
+        assertThat(history.getPercentileDuration("unknown", 95)).isZero();
+    }
+
+    @Test
+    void onlyRecentDurationsAreKept() {
+        BuildJobHistory history = new BuildJobHistory();
+        for (int i = 1; i <= BuildJobHistory.MAX_SAMPLES + 2; i++) {
+            history.addDuration("project", i);
+        }
+
+        assertThat(history.getDurations("project"))
+                .hasSize(BuildJobHistory.MAX_SAMPLES)
+                .startsWith(3f)
+                .endsWith((float) BuildJobHistory.MAX_SAMPLES + 2);
+    }
+
+    @Test
+    void storeAndLoad() throws Exception {
+        BuildJobHistory history = new BuildJobHistory();
+        history.record(Arrays.asList(
+                aJob("project1/pom.xml", BuildJob.Result.SUCCESS, 12.5f),
+                aJob("project2/pom.xml", BuildJob.Result.FAILURE_BUILD, 3),
+                aJob("project3/pom.xml", BuildJob.Result.SKIPPED, 0)));
+
+        File historyFile = tempDir.resolve("history.properties").toFile();
+        history.store(historyFile);
+
+        BuildJobHistory loadedHistory = new BuildJobHistory();
+        loadedHistory.load(historyFile);
+
+        assertThat(loadedHistory.getDurations("project1")).containsExactly(12.5f);
+        assertThat(loadedHistory.getDurations("project2")).containsExactly(3f);
+        assertThat(loadedHistory.getDurations("project3")).isEmpty();
+        assertThat(loadedHistory.getFailureRate("project1")).isZero();
+        assertThat(loadedHistory.getFailureRate("project2")).isEqualTo(1);
+        assertThat(loadedHistory.getFailureRate("project3")).isZero();
+    }
+
+    @Test
+    void failureRateIsShareOfFailedExecutions() {
+        BuildJobHistory history = new BuildJobHistory();
+        history.addResult("project", true);
+        history.addResult("project", false);
+        history.addResult("project", false);
+        history.addResult("project", true);
+
+        assertThat(history.getFailureRate("project/pom.xml")).isEqualTo(0.5f);
+
+        history.addFailure("failed");
+        assertThat(history.getFailureRate("failed")).isEqualTo(1);
+        assertThat(history.getFailureRate("unknown")).isZero();
+    }
+
+    @Test
+    void reportsAreUsedForProjectsWithoutHistory() throws Exception {
+        writeReport(aJob("project1/pom.xml", BuildJob.Result.SUCCESS, 7));
+        writeReport(aJob("project2/pom.xml", BuildJob.Result.SUCCESS, 8));
+
+        BuildJobHistory history = new BuildJobHistory();
+        history.addDuration("project1", 1);
+        history.loadReports(tempDir.toFile());
+
+        assertThat(history.getDurations("project1")).containsExactly(1f);
+        assertThat(history.getDurations("project2")).containsExactly(8f);
+    }
+
+    @Test
+    void failuresAreLoadedFromReports() throws Exception {
+        writeReport(aJob("success/pom.xml", BuildJob.Result.SUCCESS, 7));
+        writeReport(aJob("skipped/pom.xml", BuildJob.Result.SKIPPED, 0));
+        writeReport(aJob("failure/pom.xml", BuildJob.Result.FAILURE_BUILD, 8));
+        writeReport(aJob("error/pom.xml", BuildJob.Result.ERROR, 0));
+
+        BuildJobHistory history = new BuildJobHistory();
+        history.loadFailures(tempDir.toFile());
+
+        assertThat(history.getFailedCount()).isEqualTo(2);
+        assertThat(history.hasFailed("failure")).isTrue();
+        assertThat(history.hasFailed("error/pom.xml")).isTrue();
+        assertThat(history.hasFailed("success")).isFalse();
+        assertThat(history.hasFailed("skipped")).isFalse();
+    }
+
+    private void writeReport(BuildJob buildJob) throws Exception {
+        String name = buildJob.getProject().replace("/pom.xml", "");
+        try (Writer writer = Files.newBufferedWriter(tempDir.resolve("BUILD-" + name + ".xml"))) {
+            new BuildJobXpp3Writer().write(writer, buildJob);
+        }
+    }
+
+    private BuildJob aJob(String project, String result, float time) {
+        BuildJob buildJob = new BuildJob(project);
+        buildJob.setResult(result);
+        buildJob.setTime(time);
+        return buildJob;
+    }
+}
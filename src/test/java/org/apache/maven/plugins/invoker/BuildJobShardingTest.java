@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugins.invoker.model.BuildJob;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for BuildJobSharding.
+ */
+class BuildJobShardingTest {
+
+    @TempDir
+    private File tempDir;
+
+    @Test
+    void shardsShouldBeBalancedByDuration() {
+        BuildJobHistory history = new BuildJobHistory();
+        history.addDuration("long", 100);
+        history.addDuration("medium1", 50);
+        history.addDuration("medium2", 50);
+        history.addDuration("short1", 10);
+        history.addDuration("short2", 10);
+
+        List<BuildJob> buildJobs = Arrays.asList(
+                aJob("short1"), aJob("medium1"), aJob("long"), aJob("short2"), aJob("medium2"));
+
+        BuildJobSharding sharding = new BuildJobSharding(2, history);
+
+        assertThat(sharding.select(buildJobs, 1)).extracting(BuildJob::getProject).containsExactly("short1", "long");
+        assertThat(sharding.select(buildJobs, 2))
+                .extracting(BuildJob::getProject)
+                .containsExactly("medium1", "short2", "medium2");
+    }
+
+    @Test
+    void shardsShouldCoverAllJobsOnce() {
+        List<BuildJob> buildJobs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            buildJobs.add(aJob("project" + i));
+        }
+        BuildJob setupJob = aJob("setup");
+        setupJob.setType(BuildJob.Type.SETUP);
+        buildJobs.add(setupJob);
+
+        BuildJobSharding sharding = new BuildJobSharding(3, new BuildJobHistory());
+
+        List<BuildJob> allShards = new ArrayList<>();
+        for (int shard = 1; shard <= 3; shard++) {
+            List<BuildJob> shardJobs = sharding.select(buildJobs, shard);
+            assertThat(shardJobs).contains(setupJob).hasSizeBetween(7, 8);
+            allShards.addAll(shardJobs);
+        }
+        allShards.removeAll(Collections.singleton(setupJob));
+
+        assertThat(allShards).hasSize(20).containsAll(buildJobs.subList(0, 20));
+    }
+
+    @Test
+    void shardsShouldNotDependOnOrderOfJobs() {
+        List<BuildJob> buildJobs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            buildJobs.add(aJob("project" + i));
+        }
+        List<BuildJob> reversedJobs = new ArrayList<>(buildJobs);
+        Collections.reverse(reversedJobs);
+
+        BuildJobSharding sharding = new BuildJobSharding(4, null);
+
+        assertThat(sharding.assign(reversedJobs)).isEqualTo(sharding.assign(buildJobs));
+    }
+
+    @Test
+    void dependentJobsShouldBeInSameShard() {
+        BuildJob base = aJob("base/pom.xml");
+        BuildJob dependent1 = aJob("dependent1");
+        dependent1.setDependsOn("base");
+        BuildJob dependent2 = aJob("dependent2");
+        dependent2.setDependsOn("dependent1,unknown");
+        List<BuildJob> buildJobs =
+                Arrays.asList(dependent2, aJob("other1"), base, aJob("other2"), dependent1, aJob("other3"));
+
+        Map<BuildJob, Integer> shards = new BuildJobSharding(3, null).assign(buildJobs);
+
+        assertThat(shards.get(dependent1)).isEqualTo(shards.get(base));
+        assertThat(shards.get(dependent2)).isEqualTo(shards.get(base));
+    }
+
+    @Test
+    void manifestShouldListProjectsOfShard() throws Exception {
+        BuildJob setupJob = aJob("setup/pom.xml");
+        setupJob.setType(BuildJob.Type.SETUP);
+        File manifestFile = new File(tempDir, "reports/invoker-shard-2-of-3.txt");
+
+        new BuildJobSharding(3, null)
+                .writeManifest(Arrays.asList(aJob("project-b"), setupJob, aJob("project-a/pom.xml")), 2, manifestFile);
+
+        assertThat(Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8))
+                .containsExactly(
+                        "# invoker shard 2 of 3, setup projects are part of every shard",
+                        "project-a",
+                        "project-b",
+                        "setup (setup)");
+    }
+
+    private static BuildJob aJob(String project) {
+        BuildJob buildJob = new BuildJob(project);
+        buildJob.setType(BuildJob.Type.NORMAL);
+        return buildJob;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.shared.invoker.DefaultInvocationRequest;
+import org.apache.maven.shared.invoker.InvocationRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for CpuAffinity.
+ */
+class CpuAffinityTest {
+
+    @TempDir
+    private File tempDir;
+
+    @Test
+    void parseCpuList() {
+        assertThat(CpuAffinity.parseCpuList("0-3,8,10-11\n")).containsExactly(0, 1, 2, 3, 8, 10, 11);
+        assertThat(CpuAffinity.parseCpuList("\t5")).containsExactly(5);
+    }
+
+    @Test
+    void partitionShouldSplitIntoDisjointSets() {
+        List<Integer> cpus = CpuAffinity.parseCpuList("0-9");
+
+        assertThat(CpuAffinity.partition(cpus, 3))
+                .containsExactly(Arrays.asList(0, 1, 2), Arrays.asList(3, 4, 5), Arrays.asList(6, 7, 8, 9));
+        assertThat(CpuAffinity.partition(cpus, 1)).containsExactly(cpus);
+        assertThat(CpuAffinity.partition(CpuAffinity.parseCpuList("0-1"), 4))
+                .containsExactly(Collections.singletonList(0), Collections.singletonList(1));
+    }
+
+    @Test
+    void configureShouldRunMavenThroughLauncher() throws Exception {
+        File mavenHome = new File(tempDir, "maven");
+        File mvn = new File(mavenHome, "bin/mvn");
+        Files.createDirectories(mvn.getParentFile().toPath());
+        Files.createFile(mvn.toPath());
+        File launcher = new File(tempDir, "taskset.sh");
+        CpuAffinity affinity = new CpuAffinity(CpuAffinity.partition(CpuAffinity.parseCpuList("0-7"), 2), launcher);
+
+        InvocationRequest request = new DefaultInvocationRequest();
+        request.setMavenHome(mavenHome);
+        request.setBaseDirectory(tempDir);
+        request.setMavenOpts("-Xmx512m");
+        affinity.configure(request, 3);
+
+        assertThat(request.getMavenExecutable()).isEqualTo(launcher);
+        assertThat(request.getShellEnvironments())
+                .containsEntry(CpuAffinity.CPU_SET_VARIABLE, "4,5,6,7")
+                .containsEntry(CpuAffinity.MAVEN_EXECUTABLE_VARIABLE, mvn.getCanonicalPath());
+        assertThat(request.getMavenOpts()).isEqualTo("-Xmx512m -XX:ActiveProcessorCount=4");
+    }
+
+    @Test
+    void configureShouldKeepActiveProcessorCount() throws Exception {
+        File mvn = new File(tempDir, "mvn");
+        Files.createFile(mvn.toPath());
+        CpuAffinity affinity = new CpuAffinity(
+                CpuAffinity.partition(CpuAffinity.parseCpuList("0-7"), 2), new File(tempDir, "taskset.sh"));
+
+        InvocationRequest request = new DefaultInvocationRequest();
+        request.setMavenExecutable(mvn);
+        request.setBaseDirectory(tempDir);
+        request.setMavenOpts("-XX:ActiveProcessorCount=2");
+        affinity.configure(request, 0);
+
+        assertThat(request.getShellEnvironments())
+                .containsEntry(CpuAffinity.CPU_SET_VARIABLE, "0,1,2,3")
+                .containsEntry(CpuAffinity.MAVEN_EXECUTABLE_VARIABLE, mvn.getPath());
+        assertThat(request.getMavenOpts()).isEqualTo("-XX:ActiveProcessorCount=2");
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for EmbeddedMavenCli.
+ */
+class EmbeddedMavenCliTest {
+
+    @TempDir
+    private File tempDir;
+
+    @Test
+    void getMultiModuleProjectDirectory() throws Exception {
+        File module = new File(tempDir, "project/module");
+        Files.createDirectories(module.toPath());
+
+        assertThat(EmbeddedMavenCli.getMultiModuleProjectDirectory(module)).isEqualTo(module);
+
+        Files.createDirectories(new File(tempDir, "project/.mvn").toPath());
+        assertThat(EmbeddedMavenCli.getMultiModuleProjectDirectory(module)).isEqualTo(module.getParentFile());
+    }
+
+    @Test
+    void getUserPropertyNames() {
+        String[] args = {"-B", "-D", "first=1", "-Dsecond=2", "--define", "third", "-Dfourth", "-X"};
+
+        assertThat(EmbeddedMavenCli.getUserPropertyNames(args))
+                .containsExactlyInAnyOrder("first", "second", "third", "fourth");
+    }
+
+    @Test
+    void lineOutputStreamShouldSplitLines() throws Exception {
+        List<String> lines = new ArrayList<>();
+        try (PrintStream out = new PrintStream(
+                new EmbeddedMavenCli.LineOutputStream(System.out) {
+                    @Override
+                    protected void consumeLine(String line) {
+                        lines.add(line);
+                    }
+                },
+                true)) {
+            out.print("first\r\nsecond\n\nthi");
+            out.print("rd");
+        }
+
+        assertThat(lines).containsExactly("first", "second", "", "third");
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.shared.invoker.DefaultInvocationRequest;
+import org.apache.maven.shared.invoker.InvocationRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for EmbeddedMavenExecutor.
+ */
+class EmbeddedMavenExecutorTest {
+
+    @TempDir
+    private File tempDir;
+
+    @Test
+    void createShouldRequireMavenCli() throws Exception {
+        File mavenHome = new File(tempDir, "maven");
+        Files.createDirectories(new File(mavenHome, "bin").toPath());
+        Files.createDirectories(new File(mavenHome, "boot").toPath());
+        Files.createFile(new File(mavenHome, "boot/plexus-classworlds.jar").toPath());
+
+        assertThat(EmbeddedMavenExecutor.create(mavenHome)).isNull();
+
+        writeM2Conf(mavenHome, "org.apache.maven.cling.MavenCling");
+        assertThat(EmbeddedMavenExecutor.create(mavenHome)).isNull();
+
+        writeM2Conf(mavenHome, EmbeddedMavenCli.MAVEN_CLI);
+        assertThat(EmbeddedMavenExecutor.create(mavenHome)).isNotNull();
+    }
+
+    @Test
+    void getForkReason() throws Exception {
+        EmbeddedMavenExecutor executor =
+                new EmbeddedMavenExecutor(tempDir, new URL[0]);
+        File basedir = new File(tempDir, "project");
+        Files.createDirectories(basedir.toPath());
+
+        InvocationRequest request = new DefaultInvocationRequest();
+        request.setBaseDirectory(basedir);
+        request.setMavenHome(tempDir);
+        request.setJavaHome(new File(System.getProperty("java.home")));
+        request.addShellEnvironment("INVOKER_PORT_BASE", "10000");
+        assertThat(executor.getForkReason(request)).isNull();
+
+        request.setMavenOpts("-Xmx512m");
+        assertThat(executor.getForkReason(request)).startsWith("MAVEN_OPTS");
+        request.setMavenOpts(" ");
+        assertThat(executor.getForkReason(request)).isNull();
+
+        request.setTimeoutInSeconds(10);
+        assertThat(executor.getForkReason(request)).isEqualTo("timeout");
+        request.setTimeoutInSeconds(0);
+
+        request.addShellEnvironment("FOO", "bar");
+        assertThat(executor.getForkReason(request)).isEqualTo("environment variable FOO");
+        request.getShellEnvironments().remove("FOO");
+
+        request.setMavenHome(basedir);
+        assertThat(executor.getForkReason(request)).startsWith("Maven home");
+        request.setMavenHome(null);
+
+        request.setJavaHome(basedir);
+        assertThat(executor.getForkReason(request)).startsWith("Java home");
+        request.setJavaHome(null);
+
+        File jvmConfig = new File(basedir, ".mvn/jvm.config");
+        Files.createDirectories(jvmConfig.getParentFile().toPath());
+        Files.write(jvmConfig.toPath(), "-Xss4m".getBytes(StandardCharsets.UTF_8));
+        assertThat(executor.getForkReason(request)).isEqualTo(jvmConfig.getPath());
+    }
+
+    @Test
+    void outputHandlerStreamShouldPassLines() throws Exception {
+        List<String> lines = new ArrayList<>();
+        try (PrintStream out = EmbeddedMavenExecutor.newPrintStream(lines::add, System.out)) {
+            out.println("first");
+            out.print("second");
+        }
+
+        assertThat(lines).containsExactly("first", "second");
+    }
+
+    private static void writeM2Conf(File mavenHome, String mainClass) throws Exception {
+        String m2Conf = "main is " + mainClass + " from plexus.core\n\n[plexus.core]\nload ${maven.home}/lib/*.jar\n";
+        Files.write(new File(mavenHome, "bin/m2.conf").toPath(), m2Conf.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugins.invoker.model.BuildJob;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for HostSlotPool.
+ */
+class HostSlotPoolTest {
+
+    @TempDir
+    private File tempDir;
+
+    private final BuildJob job1 = new BuildJob("job1");
+
+    private final BuildJob job2 = new BuildJob("job2");
+
+    @Test
+    void slotsShouldBeSharedByPoolsOfOneDirectory() throws Exception {
+        Path directory = tempDir.toPath().resolve("slots");
+        HostSlotPool first = new HostSlotPool(directory, 2);
+        HostSlotPool second = new HostSlotPool(directory, 2);
+
+        assertThat(first.tryAcquire(job1, 2)).isTrue();
+        assertThat(second.tryAcquire(job2, 1)).isFalse();
+
+        first.release(job1);
+        assertThat(second.tryAcquire(job2, 1)).isTrue();
+        assertThat(first.tryAcquire(job1, 2)).isFalse();
+        assertThat(first.tryAcquire(job1, 1)).isTrue();
+
+        first.release(job1);
+        second.release(job2);
+        assertThat(second.tryAcquire(job2, 2)).isTrue();
+        assertThat(directory.resolve("slot-0.lock")).exists();
+        assertThat(directory.resolve("slot-1.lock")).exists();
+        second.release(job2);
+    }
+
+    @Test
+    void jobSlotsShouldBeCappedToSize() throws Exception {
+        HostSlotPool pool = new HostSlotPool(tempDir.toPath(), 2);
+
+        assertThat(pool.tryAcquire(job1, 4)).isTrue();
+        assertThat(pool.tryAcquire(job2, 1)).isFalse();
+
+        pool.release(job1);
+        assertThat(pool.tryAcquire(job2, 1)).isTrue();
+        pool.release(job2);
+    }
+
+    @Test
+    void releaseShouldFreeSlotsOfJob() throws Exception {
+        HostSlotPool pool = new HostSlotPool(tempDir.toPath(), 3);
+        BuildJob job3 = new BuildJob("job3");
+
+        assertThat(pool.tryAcquire(job1, 1)).isTrue();
+        assertThat(pool.tryAcquire(job2, 2)).isTrue();
+        pool.release(job1);
+
+        assertThat(pool.tryAcquire(job3, 2)).isFalse();
+        assertThat(pool.tryAcquire(job3, 1)).isTrue();
+        pool.release(job2);
+        pool.release(job3);
+    }
+
+    @Test
+    void combinedPoolShouldTakeNoSlotsWhenOnePoolIsFull() throws Exception {
+        HostSlotPool host = new HostSlotPool(tempDir.toPath(), 1);
+        SharedSlotPools.Pool shared = new SharedSlotPools.Pool(2);
+        JobExecutor.SlotPool combined = JobExecutor.SlotPool.both(shared, host);
+
+        assertThat(host.tryAcquire(job1, 1)).isTrue();
+        assertThat(combined.tryAcquire(job2, 1)).isFalse();
+        assertThat(shared.tryAcquire(job2, 2)).isTrue();
+        shared.release(job2);
+
+        host.release(job1);
+        assertThat(combined.tryAcquire(job2, 1)).isTrue();
+        assertThat(host.tryAcquire(job1, 1)).isFalse();
+        combined.release(job2);
+        assertThat(host.tryAcquire(job1, 1)).isTrue();
+        host.release(job1);
+    }
+
+    @Test
+    void slotsShouldStayTakenForOtherProcesses() throws Exception {
+        Path directory = tempDir.toPath().resolve("slots");
+        HostSlotPool first = new HostSlotPool(directory, 2);
+        HostSlotPool second = new HostSlotPool(directory, 2);
+
+        assertThat(first.tryAcquire(job1, 1)).isTrue();
+        assertThat(second.tryAcquire(job2, 1)).isTrue();
+        // looks at the slots held by this process
+        assertThat(second.tryAcquire(new BuildJob("job3"), 1)).isFalse();
+        assertThat(tryAcquireInOtherProcess(directory, 2)).isEqualTo("false");
+
+        first.release(job1);
+        assertThat(tryAcquireInOtherProcess(directory, 2)).isEqualTo("true");
+        second.release(job2);
+    }
+
+    private String tryAcquireInOtherProcess(Path directory, int size) throws Exception {
+        File output = new File(tempDir, "other-process.txt");
+        List<String> command = new ArrayList<>(Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp",
+                System.getProperty("java.class.path"),
+                OtherProcess.class.getName(),
+                directory.toString(),
+                String.valueOf(size)));
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(output)
+                .start();
+        assertThat(process.waitFor(30, TimeUnit.SECONDS)).isTrue();
+        return new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Takes a slot in a separate process and prints whether it got one.
+     */
+    static class OtherProcess {
+        public static void main(String[] args) throws Exception {
+            HostSlotPool pool = new HostSlotPool(Paths.get(args[0]), Integer.parseInt(args[1]));
+            System.out.print(pool.tryAcquire(new BuildJob("other"), 1));
+        }
+    }
+}
@@ -69,7 +69,7 @@ class InterpolationTest {
 
     @Test
     void pomInterpolation() throws Exception {
-        InvokerMojo invokerMojo = new InvokerMojo(null, null, null, null);
+        InvokerMojo invokerMojo = new InvokerMojo(null, null, null, null, null);
         TestUtil.setVariableValueToObject(invokerMojo, "project", buildMavenProjectStub());
         TestUtil.setVariableValueToObject(invokerMojo, "settings", new Settings());
         Properties properties = new Properties();
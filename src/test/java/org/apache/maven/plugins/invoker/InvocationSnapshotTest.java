@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for InvocationSnapshot.
+ */
+class InvocationSnapshotTest {
+
+    @TempDir
+    private File tempDir;
+
+    private File project;
+
+    private File snapshots;
+
+    @BeforeEach
+    void setUp() {
+        project = new File(tempDir, "its/project");
+        snapshots = new File(tempDir, "target/invoker-snapshots");
+    }
+
+    @Test
+    void restoreShouldReplaceProjectDirectory() throws Exception {
+        Path basedir = project.toPath();
+        write(basedir.resolve("pom.xml"), "pom");
+        write(basedir.resolve("target/first.txt"), "first");
+
+        Properties userProperties = new Properties();
+        userProperties.setProperty("key", "value");
+        InvocationSnapshot snapshot = InvocationSnapshot.create(project, snapshots, 3, userProperties);
+        assertThat(snapshots.list()).hasSize(1);
+        userProperties.setProperty("key", "changed");
+
+        write(basedir.resolve("pom.xml"), "changed");
+        write(basedir.resolve("target/second.txt"), "second");
+        Files.delete(basedir.resolve("target/first.txt"));
+
+        snapshot.restore(project);
+
+        assertThat(basedir.resolve("pom.xml")).hasContent("pom");
+        assertThat(basedir.resolve("target/first.txt")).hasContent("first");
+        assertThat(basedir.resolve("target/second.txt")).doesNotExist();
+        assertThat(snapshot.getInvocationIndex()).isEqualTo(3);
+        assertThat(snapshot.getUserProperties()).containsEntry("key", "value");
+
+        snapshot.delete();
+        assertThat(snapshots.list()).isEmpty();
+    }
+
+    @Test
+    void buildLogsShouldBeKept() throws Exception {
+        Path basedir = project.toPath();
+        write(basedir.resolve("build.log"), "first execution");
+
+        InvocationSnapshot snapshot = InvocationSnapshot.create(project, snapshots, 1, new Properties());
+
+        Files.move(basedir.resolve("build.log"), basedir.resolve("build.log.1"));
+        write(basedir.resolve("build.log"), "second execution");
+
+        snapshot.restore(project);
+
+        assertThat(basedir.resolve("build.log")).hasContent("second execution");
+        assertThat(basedir.resolve("build.log.1")).hasContent("first execution");
+
+        snapshot.delete();
+    }
+
+    private static void write(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.maven.plugins.invoker;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -42,7 +43,7 @@ class InvokerMojoTest {
     private static final String INTERPOLATION_PROJECT = "interpolation" + File.separator + "pom.xml";
     private static final String WITHOUT_POM_PROJECT = "without-pom-project-dir";
 
-    private final InvokerMojo invokerMojo = new InvokerMojo(null, null, null, null);
+    private final InvokerMojo invokerMojo = new InvokerMojo(null, null, null, null, null);
 
     private MavenProject getMavenProject() {
         MavenProject mavenProject = new MavenProject();
@@ -195,4 +196,49 @@ class InvokerMojoTest {
             assertThat(expectedParallelThreads).isEqualTo(invokerMojo.getParallelThreadsCount());
         }
     }
+
+    @Test
+    void autoParallelThreadsSettings() throws Exception {
+        setVariableValueToObject(invokerMojo, "parallelThreads", "auto");
+        setVariableValueToObject(invokerMojo, "parallelThreadsMin", 2);
+        setVariableValueToObject(invokerMojo, "parallelThreadsMax", "6");
+
+        assertThat(invokerMojo.getParallelThreadsCount()).isEqualTo(6);
+
+        setVariableValueToObject(invokerMojo, "parallelThreadsMax", "2C");
+
+        assertThat(invokerMojo.getParallelThreadsCount())
+                .isEqualTo(Math.max(2, 2 * Runtime.getRuntime().availableProcessors()));
+    }
+
+    @Test
+    void setupParallelThreadsSettings() throws Exception {
+        BuildJob setupJob1 = new BuildJob("setup1");
+        BuildJob setupJob2 = new BuildJob("setup2");
+        setVariableValueToObject(invokerMojo, "parallelThreads", "4");
+
+        assertThat(invokerMojo.getSetupParallelThreadsCount(Arrays.asList(setupJob1, setupJob2)))
+                .isEqualTo(1);
+
+        setupJob2.setDependsOn("setup1");
+        assertThat(invokerMojo.getSetupParallelThreadsCount(Arrays.asList(setupJob1, setupJob2)))
+                .isEqualTo(4);
+
+        setVariableValueToObject(invokerMojo, "setupParallelThreads", "2");
+        assertThat(invokerMojo.getSetupParallelThreadsCount(Arrays.asList(setupJob1, setupJob2)))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void portRangesOfWorkersShouldBeDisjoint() throws Exception {
+        BuildJob buildJob = new BuildJob("project");
+        buildJob.setWorker(2);
+
+        assertThat(invokerMojo.getPortBase(buildJob)).isZero();
+
+        setVariableValueToObject(invokerMojo, "portRangeBase", 20000);
+        setVariableValueToObject(invokerMojo, "portRangeSize", 50);
+
+        assertThat(invokerMojo.getPortBase(buildJob)).isEqualTo(20100);
+    }
 }
@@ -84,6 +84,142 @@ class InvokerPropertiesTest {
         assertThat(facade.getJobName()).isEqualTo(jobName);
     }
 
+    @Test
+    void getDependsOn() {
+        Properties props = new Properties();
+        InvokerProperties facade = new InvokerProperties(props);
+
+        assertThat(facade.getDependsOn()).isEmpty();
+
+        props.setProperty("invoker.dependsOn", " project-a, group/project-b  project-c ");
+        assertThat(facade.getDependsOn()).containsExactly("project-a", "group/project-b", "project-c");
+    }
+
+    @Test
+    void getLocks() {
+        Properties props = new Properties();
+        InvokerProperties facade = new InvokerProperties(props);
+
+        assertThat(facade.getLocks()).isEmpty();
+
+        props.setProperty("invoker.locks", " port-8080,shared-dir ");
+        assertThat(facade.getLocks()).containsExactly("port-8080", "shared-dir");
+    }
+
+    @Test
+    void isMandatory() {
+        Properties props = new Properties();
+        InvokerProperties facade = new InvokerProperties(props);
+
+        assertThat(facade.isMandatory()).isFalse();
+
+        props.setProperty("invoker.mandatory", "true");
+        assertThat(facade.isMandatory()).isTrue();
+    }
+
+    @Test
+    void isEmbedded() {
+        Properties props = new Properties();
+        InvokerProperties facade = new InvokerProperties(props);
+
+        assertThat(facade.isEmbedded()).isTrue();
+
+        props.setProperty("invoker.embedded", "false");
+        assertThat(facade.isEmbedded()).isFalse();
+    }
+
+    @Test
+    void isWorkerPool() {
+        Properties props = new Properties();
+        InvokerProperties facade = new InvokerProperties(props);
+
+        assertThat(facade.isWorkerPool()).isTrue();
+
+        props.setProperty("invoker.workerPool", "false");
+        assertThat(facade.isWorkerPool()).isFalse();
+    }
+
+    @Test
+    void isBatch() {
+        Properties props = new Properties();
+        InvokerProperties facade = new InvokerProperties(props);
+
+        assertThat(facade.isBatch()).isTrue();
+
+        props.setProperty("invoker.batch", "false");
+        assertThat(facade.isBatch()).isFalse();
+    }
+
+    @Test
+    void getMemoryBudget() {
+        Properties props = new Properties();
+        InvokerProperties facade = new InvokerProperties(props);
+
+        assertThat(facade.getMemoryBudget(null)).isZero();
+        assertThat(facade.getMemoryBudget("-Xms128m -Xmx1g")).isEqualTo(1024);
+
+        facade.setDefaultMavenOpts("-Xmx512m");
+        assertThat(facade.getMemoryBudget("-Xmx1g")).isEqualTo(512);
+
+        props.setProperty("invoker.mavenOpts.2", "-Xmx2g");
+        props.setProperty("invoker.goals.2", "verify");
+        assertThat(facade.getMemoryBudget(null)).isEqualTo(2048);
+
+        props.setProperty("invoker.memoryBudget", "768");
+        assertThat(facade.getMemoryBudget(null)).isEqualTo(768);
+    }
+
+    @Test
+    void getMemoryBudgetWithDefaultMaxHeap() {
+        Properties props = new Properties();
+        InvokerProperties facade = new InvokerProperties(props);
+        facade.setDefaultMaxHeap(1024);
+
+        assertThat(facade.getMemoryBudget(null)).isEqualTo(1024);
+        assertThat(facade.getMemoryBudget("-Xmx512m")).isEqualTo(512);
+
+        props.setProperty("invoker.mavenOpts", "-Xmx2g");
+        assertThat(facade.getMemoryBudget(null)).isEqualTo(2048);
+    }
+
+    @Test
+    void getMaxHeap() {
+        assertThat(InvokerProperties.getMaxHeap("")).isZero();
+        assertThat(InvokerProperties.getMaxHeap("-Xmx256m -Dfoo=-Xmx1g -Xmx512M")).isEqualTo(512);
+        assertThat(InvokerProperties.getMaxHeap("-Xmx2097152")).isEqualTo(2);
+        assertThat(InvokerProperties.getMaxHeap("-Xmx2G")).isEqualTo(2048);
+    }
+
+    @Test
+    void getSlots() {
+        Properties props = new Properties();
+        InvokerProperties facade = new InvokerProperties(props);
+
+        assertThat(facade.getSlots(null, 8)).isEqualTo(1);
+        assertThat(facade.getSlots("-T 2 -B", 8)).isEqualTo(2);
+
+        facade.setDefaultGoals(Arrays.asList("-T1C", "verify"));
+        assertThat(facade.getSlots(null, 8)).isEqualTo(8);
+
+        props.setProperty("invoker.goals", "clean --threads 3 verify");
+        props.setProperty("invoker.goals.2", "-T 0.5C verify");
+        assertThat(facade.getSlots("-T 2", 8)).isEqualTo(4);
+
+        props.setProperty("invoker.slots", "6");
+        assertThat(facade.getSlots(null, 8)).isEqualTo(6);
+    }
+
+    @Test
+    void getThreads() {
+        assertThat(InvokerProperties.getThreads(Collections.emptyList(), 4)).isEqualTo(1);
+        assertThat(InvokerProperties.getThreads(Arrays.asList("-T", "4", "verify"), 4))
+                .isEqualTo(4);
+        assertThat(InvokerProperties.getThreads(Arrays.asList("--threads=1.5C", "verify"), 4))
+                .isEqualTo(6);
+        assertThat(InvokerProperties.getThreads(Arrays.asList("-T2", "-T", "3"), 4)).isEqualTo(3);
+        assertThat(InvokerProperties.getThreads(Arrays.asList("-T", "${threads}"), 4)).isEqualTo(1);
+    }
+
     @Test
     void isExpectedResult() {
         Properties props = new Properties();
@@ -250,6 +386,30 @@ class InvokerPropertiesTest {
         verifyNoMoreInteractions(request);
     }
 
+    @Test
+    void configureRequestDefaultMaxHeap() {
+        Properties props = new Properties();
+
+        InvokerProperties facade = new InvokerProperties(props);
+        facade.setDefaultMaxHeap(1024);
+
+        facade.configureInvocation(request, 0);
+        verify(request).setMavenOpts("-Xmx1024m");
+        verifyNoMoreInteractions(request);
+        clearInvocations(request);
+
+        facade.setDefaultMavenOpts("-XxxDef");
+        facade.configureInvocation(request, 0);
+        verify(request).setMavenOpts("-XxxDef -Xmx1024m");
+        verifyNoMoreInteractions(request);
+        clearInvocations(request);
+
+        props.setProperty("invoker.mavenOpts", "-Xms64m -Xmx512m");
+        facade.configureInvocation(request, 0);
+        verify(request).setMavenOpts("-Xms64m -Xmx512m");
+        verifyNoMoreInteractions(request);
+    }
+
     @Test
     void configureRequestFailureBehavior() {
         Properties props = new Properties();
@@ -18,11 +18,17 @@
  */
 package org.apache.maven.plugins.invoker;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.plugins.invoker.model.BuildJob;
@@ -135,9 +141,640 @@ class JobExecutorTest {
         assertThat(job4.getDescription()).isNotEqualTo(job5.getDescription());
     }
 
+    @Test
+    void jobWithDependenciesShouldNotWaitForHigherOrdinal() throws Exception {
+        CountDownLatch slowJobRunning = new CountDownLatch(1);
+        CountDownLatch dependentJobFinished = new CountDownLatch(1);
+
+        BuildJob slowJob = aJob("slow", 100);
+        BuildJob fastJob = aJob("fast/pom.xml", 100);
+        BuildJob dependentJob = aJob("dependent", 1);
+        dependentJob.setDependsOn("fast");
+
+        JobExecutor jobExecutor = new JobExecutor(Arrays.asList(dependentJob, slowJob, fastJob), 3);
+
+        jobExecutor.forEach(job -> {
+            if (job == slowJob) {
+                slowJobRunning.countDown();
+                // the slow job finishes only when the dependent job is done
+                assertThat(dependentJobFinished.await(10, TimeUnit.SECONDS)).isTrue();
+            }
+            if (job == dependentJob) {
+                assertThat(slowJobRunning.await(10, TimeUnit.SECONDS)).isTrue();
+                assertThat(fastJob.getResult()).isEqualTo(BuildJob.Result.SUCCESS);
+                dependentJobFinished.countDown();
+            }
+            job.setResult(BuildJob.Result.SUCCESS);
+        });
+
+        assertThat(Arrays.asList(slowJob, fastJob, dependentJob))
+                .allSatisfy(job -> assertThat(job.getResult())
+                        .as(job.getFailureMessage())
+                        .isEqualTo(BuildJob.Result.SUCCESS));
+    }
+
+    @Test
+    void jobShouldBeSkippedWhenDependencyFailed() {
+        BuildJob job1 = aJob("job1", 0);
+        BuildJob job2 = aJob("job2", 0);
+        job2.setDependsOn("job1");
+        BuildJob job3 = aJob("job3", 0);
+        job3.setDependsOn("job2");
+
+        List<BuildJob> unscheduledJobs = Collections.synchronizedList(new ArrayList<>());
+
+        JobExecutor jobExecutor = new JobExecutor(Arrays.asList(job3, job2, job1), 2);
+
+        jobExecutor.forEach(job -> job.setResult(BuildJob.Result.FAILURE_BUILD), unscheduledJobs::add);
+
+        assertThat(job1.getResult()).isEqualTo(BuildJob.Result.FAILURE_BUILD);
+        assertThat(job2.getResult()).isEqualTo(BuildJob.Result.SKIPPED);
+        assertThat(job2.getFailureMessage()).isEqualTo("Skipped due to failure of dependency job1");
+        assertThat(job3.getResult()).isEqualTo(BuildJob.Result.SKIPPED);
+        assertThat(job3.getFailureMessage()).isEqualTo("Skipped due to failure of dependency job2");
+        assertThat(unscheduledJobs).containsExactly(job2, job3);
+    }
+
+    @Test
+    void jobShouldStartAfterPreviousJobWhateverItsResult() {
+        BuildJob previousJob = aJob("previous", 0);
+        BuildJob job = aJob("job", 0);
+        BuildJob otherJob = aJob("other", 0);
+        List<BuildJob> executedJobs = Collections.synchronizedList(new ArrayList<>());
+
+        JobExecutor jobExecutor = new JobExecutor(Arrays.asList(job, previousJob, otherJob), 1);
+        jobExecutor.startAfter(job, previousJob);
+
+        jobExecutor.forEach(buildJob -> {
+            executedJobs.add(buildJob);
+            buildJob.setResult(buildJob == previousJob ? BuildJob.Result.FAILURE_BUILD : BuildJob.Result.SUCCESS);
+        });
+
+        assertThat(executedJobs).containsExactlyInAnyOrder(previousJob, job, otherJob);
+        assertThat(executedJobs.indexOf(job)).isGreaterThan(executedJobs.indexOf(previousJob));
+        assertThat(job.getResult()).isEqualTo(BuildJob.Result.SUCCESS);
+    }
+
+    @Test
+    void circularDependenciesShouldBeReported() {
+        BuildJob job1 = aJob("job1", 0);
+        job1.setDependsOn("job2");
+        BuildJob job2 = aJob("job2", 0);
+        job2.setDependsOn("job1");
+        BuildJob job3 = aJob("job3", 0);
+
+        JobExecutor jobExecutor = new JobExecutor(Arrays.asList(job1, job2, job3), 2);
+
+        jobExecutor.forEach(job -> job.setResult(BuildJob.Result.SUCCESS));
+
+        assertThat(job1.getResult()).isEqualTo(BuildJob.Result.ERROR);
+        assertThat(job2.getResult()).isEqualTo(BuildJob.Result.ERROR);
+        assertThat(job2.getFailureMessage()).isEqualTo("Circular dependency between build jobs");
+        assertThat(job3.getResult()).isEqualTo(BuildJob.Result.SUCCESS);
+    }
+
+    @Test
+    void longestJobsShouldBeStartedFirst() {
+        BuildJobHistory history = new BuildJobHistory();
+        history.addDuration("short", 5);
+        history.addDuration("long", 180);
+        history.setDefaultDuration(60f);
+
+        BuildJob shortJob = aJob("short", 0);
+        BuildJob unknownJob = aJob("unknown", 0);
+        BuildJob longJob = aJob("long", 0);
+        BuildJob firstJob = aJob("first", 10);
+
+        List<BuildJob> executionOrder = Collections.synchronizedList(new ArrayList<>());
+
+        JobExecutor jobExecutor = new JobExecutor(Arrays.asList(shortJob, unknownJob, longJob, firstJob), 1);
+        jobExecutor.setHistory(history);
+        jobExecutor.forEach(executionOrder::add);
+
+        assertThat(executionOrder).containsExactly(firstJob, longJob, unknownJob, shortJob);
+    }
+
+    @Test
+    void failedJobsShouldBeStartedFirst() {
+        BuildJobHistory history = new BuildJobHistory();
+        history.addDuration("short", 5);
+        history.addDuration("long", 180);
+        history.addFailure("short/pom.xml");
+        history.addFailure("last");
+
+        BuildJob shortJob = aJob("short", 0);
+        BuildJob longJob = aJob("long", 0);
+        BuildJob firstJob = aJob("first", 10);
+        BuildJob lastJob = aJob("last", -10);
+
+        List<BuildJob> executionOrder = Collections.synchronizedList(new ArrayList<>());
+
+        JobExecutor jobExecutor = new JobExecutor(Arrays.asList(lastJob, longJob, shortJob, firstJob), 1);
+        jobExecutor.setHistory(history);
+        jobExecutor.setFailedFirst(true);
+        jobExecutor.forEach(executionOrder::add);
+
+        // the ordinal still comes first
+        assertThat(executionOrder).containsExactly(firstJob, shortJob, longJob, lastJob);
+    }
+
+    @Test
+    void slotsOfJobsShouldBeRespected() {
+        List<BuildJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            BuildJob job = aJob("job" + i, 0);
+            job.setSlots(i % 3 + 1);
+            jobs.add(job);
+        }
+        BuildJob largeJob = aJob("large", 0);
+        largeJob.setSlots(10);
+        jobs.add(largeJob);
+
+        AtomicInteger usedSlots = new AtomicInteger();
+        AtomicInteger maxUsedSlots = new AtomicInteger();
+
+        JobExecutor jobExecutor = new JobExecutor(jobs, 4);
+        jobExecutor.forEach(job -> {
+            int slots = Math.min(4, job.getSlots());
+            maxUsedSlots.accumulateAndGet(usedSlots.addAndGet(slots), Math::max);
+            Thread.sleep(20);
+            usedSlots.addAndGet(-slots);
+            job.setResult(BuildJob.Result.SUCCESS);
+        });
+
+        assertThat(maxUsedSlots.get()).isLessThanOrEqualTo(4);
+        assertThat(jobs).allSatisfy(job -> assertThat(job.getResult()).isEqualTo(BuildJob.Result.SUCCESS));
+    }
+
+    @Test
+    void jobsWithCommonLockShouldNotRunConcurrently() {
+        List<BuildJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            BuildJob job = aJob("job" + i, 0);
+            job.setLocks(i % 2 == 0 ? "port" : "port,dir");
+            jobs.add(job);
+        }
+        BuildJob freeJob = aJob("free", 0);
+        jobs.add(freeJob);
+
+        AtomicInteger portHolders = new AtomicInteger();
+        AtomicInteger maxPortHolders = new AtomicInteger();
+        CountDownLatch freeJobFinished = new CountDownLatch(1);
+
+        JobExecutor jobExecutor = new JobExecutor(jobs, 3);
+        jobExecutor.forEach(job -> {
+            if (job == freeJob) {
+                freeJobFinished.countDown();
+            } else {
+                maxPortHolders.accumulateAndGet(portHolders.incrementAndGet(), Math::max);
+                // the job without locks is started meanwhile
+                assertThat(freeJobFinished.await(10, TimeUnit.SECONDS)).isTrue();
+                portHolders.decrementAndGet();
+            }
+            job.setResult(BuildJob.Result.SUCCESS);
+        });
+
+        assertThat(maxPortHolders.get()).isEqualTo(1);
+        assertThat(jobs).allSatisfy(job -> assertThat(job.getResult())
+                .as(job.getFailureMessage())
+                .isEqualTo(BuildJob.Result.SUCCESS));
+    }
+
+    @Test
+    void runningJobsShouldHaveDistinctWorkers() {
+        List<BuildJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            jobs.add(aJob("job" + i, 0));
+        }
+
+        Set<Integer> usedWorkers = Collections.synchronizedSet(new HashSet<>());
+        AtomicInteger conflicts = new AtomicInteger();
+
+        JobExecutor jobExecutor = new JobExecutor(jobs, 3);
+        jobExecutor.forEach(job -> {
+            if (!usedWorkers.add(job.getWorker())) {
+                conflicts.incrementAndGet();
+            }
+            Thread.sleep(10);
+            usedWorkers.remove(job.getWorker());
+        });
+
+        assertThat(conflicts.get()).isZero();
+        assertThat(jobs).allSatisfy(job -> assertThat(job.getWorker()).isBetween(0, 2));
+    }
+
+    @Test
+    void virtualThreadsShouldBeUsedWhenSupported() {
+        List<BuildJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(aJob("job" + i, 0));
+        }
+
+        AtomicInteger runningJobs = new AtomicInteger();
+        AtomicInteger maxRunningJobs = new AtomicInteger();
+        List<String> threadNames = Collections.synchronizedList(new ArrayList<>());
+
+        JobExecutor jobExecutor = new JobExecutor(jobs, 2);
+        jobExecutor.setVirtualThreads(true);
+        jobExecutor.forEach(job -> {
+            threadNames.add(Thread.currentThread().toString());
+            maxRunningJobs.accumulateAndGet(runningJobs.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            runningJobs.decrementAndGet();
+            job.setResult(BuildJob.Result.SUCCESS);
+        });
+
+        assertThat(maxRunningJobs.get()).isLessThanOrEqualTo(2);
+        assertThat(jobs).allSatisfy(job -> assertThat(job.getResult()).isEqualTo(BuildJob.Result.SUCCESS));
+        if (JobExecutor.isVirtualThreadsSupported()) {
+            assertThat(threadNames).allSatisfy(name -> assertThat(name).startsWith("VirtualThread"));
+        }
+    }
+
+    @Test
+    void failedJobsShouldBeRetriedWhileOtherJobsAreRunning() throws Exception {
+        CountDownLatch retryFinished = new CountDownLatch(1);
+
+        BuildJob slowJob = aJob("slow", 0);
+        BuildJob flakyJob = aJob("flaky", 0);
+        BuildJob failingJob = aJob("failing", 0);
+        BuildJob dependentJob = aJob("dependent", 0);
+        dependentJob.setDependsOn("flaky");
+        List<BuildJob> jobs = Arrays.asList(slowJob, flakyJob, failingJob, dependentJob);
+        jobs.forEach(job -> job.setExecutionCount(1));
+
+        List<String> executions = Collections.synchronizedList(new ArrayList<>());
+
+        JobExecutor jobExecutor = new JobExecutor(jobs, 2);
+        jobExecutor.setRetryCount(2);
+        jobExecutor.forEach(job -> {
+            executions.add(job.getProject() + "-" + job.getExecutionCount());
+            if (job == slowJob) {
+                // the slow job finishes only when the flaky job was retried
+                assertThat(retryFinished.await(10, TimeUnit.SECONDS)).isTrue();
+                job.setResult(BuildJob.Result.SUCCESS);
+            } else if (job == flakyJob && job.getExecutionCount() == 1) {
+                job.setResult(BuildJob.Result.FAILURE_BUILD);
+            } else if (job == flakyJob) {
+                job.setResult(BuildJob.Result.SUCCESS);
+                retryFinished.countDown();
+            } else if (job == failingJob) {
+                job.setResult(BuildJob.Result.FAILURE_POST_HOOK);
+            } else {
+                assertThat(flakyJob.getResult()).isEqualTo(BuildJob.Result.SUCCESS);
+                job.setResult(BuildJob.Result.SUCCESS);
+            }
+        });
+
+        assertThat(executions)
+                .containsExactlyInAnyOrder(
+                        "slow-1", "flaky-1", "flaky-2", "failing-1", "failing-2", "failing-3", "dependent-1");
+        assertThat(flakyJob.getResult()).isEqualTo(BuildJob.Result.SUCCESS);
+        assertThat(failingJob.getResult()).isEqualTo(BuildJob.Result.FAILURE_POST_HOOK);
+        assertThat(failingJob.getExecutionCount()).isEqualTo(3);
+        assertThat(dependentJob.getResult()).isEqualTo(BuildJob.Result.SUCCESS);
+    }
+
+    @Test
+    void failFastShouldStopRunningAndSkipRemainingJobs() {
+        CountDownLatch runningJobStarted = new CountDownLatch(1);
+
+        BuildJob runningJob = aJob("running", 0);
+        BuildJob failingJob = aJob("failing", 0);
+        BuildJob remainingJob1 = aJob("remaining1", 0);
+        BuildJob remainingJob2 = aJob("remaining2", 0);
+
+        List<BuildJob> unscheduledJobs = Collections.synchronizedList(new ArrayList<>());
+
+        JobExecutor jobExecutor =
+                new JobExecutor(Arrays.asList(runningJob, failingJob, remainingJob1, remainingJob2), 2);
+        jobExecutor.setFailFastThreshold(1);
+        jobExecutor.forEach(
+                job -> {
+                    if (job == runningJob) {
+                        runningJobStarted.countDown();
+                        try {
+                            Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                            job.setResult(BuildJob.Result.SUCCESS);
+                        } catch (InterruptedException e) {
+                            job.setResult(BuildJob.Result.SKIPPED);
+                        }
+                    } else if (job == failingJob) {
+                        assertThat(runningJobStarted.await(10, TimeUnit.SECONDS))
+                                .isTrue();
+                        job.setResult(BuildJob.Result.FAILURE_BUILD);
+                    } else {
+                        job.setResult(BuildJob.Result.SUCCESS);
+                    }
+                },
+                unscheduledJobs::add);
+
+        assertThat(jobExecutor.isFailFastTriggered()).isTrue();
+        assertThat(runningJob.getResult()).isEqualTo(BuildJob.Result.SKIPPED);
+        assertThat(failingJob.getResult()).isEqualTo(BuildJob.Result.FAILURE_BUILD);
+        assertThat(unscheduledJobs).containsExactly(remainingJob1, remainingJob2);
+        assertThat(remainingJob1.getResult()).isEqualTo(BuildJob.Result.SKIPPED);
+        assertThat(remainingJob1.getFailureMessage()).isEqualTo("Skipped due to fail fast after 1 failed build job");
+    }
+
+    @Test
+    void failFastShouldWaitForThreshold() {
+        List<BuildJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(aJob("job" + i, 0));
+        }
+
+        JobExecutor jobExecutor = new JobExecutor(jobs, 1);
+        jobExecutor.setFailFastThreshold(3);
+        jobExecutor.forEach(job -> job.setResult(BuildJob.Result.FAILURE_BUILD));
+
+        assertThat(jobs.subList(0, 3))
+                .allSatisfy(job -> assertThat(job.getResult()).isEqualTo(BuildJob.Result.FAILURE_BUILD));
+        assertThat(jobs.subList(3, 6)).allSatisfy(job -> {
+            assertThat(job.getResult()).isEqualTo(BuildJob.Result.SKIPPED);
+            assertThat(job.getFailureMessage()).isEqualTo("Skipped due to fail fast after 3 failed build jobs");
+        });
+    }
+
+    @Test
+    void memoryBudgetShouldBeRespected() {
+        List<BuildJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            jobs.add(aJob("job" + i, 0, i % 2 == 0 ? 300 : 600));
+        }
+        jobs.add(aJob("huge", 0, 4000));
+
+        AtomicInteger usedMemory = new AtomicInteger();
+        AtomicInteger maxUsedMemory = new AtomicInteger();
+
+        JobExecutor jobExecutor = new JobExecutor(jobs, 4);
+        jobExecutor.setMemoryBudget(1000);
+        jobExecutor.forEach(job -> {
+            int used = usedMemory.addAndGet(Math.min(1000, job.getMemoryBudget()));
+            maxUsedMemory.accumulateAndGet(used, Math::max);
+            Thread.sleep(20);
+            usedMemory.addAndGet(-Math.min(1000, job.getMemoryBudget()));
+            job.setResult(BuildJob.Result.SUCCESS);
+        });
+
+        assertThat(maxUsedMemory.get()).isLessThanOrEqualTo(1000);
+        assertThat(jobs).allSatisfy(job -> assertThat(job.getResult()).isEqualTo(BuildJob.Result.SUCCESS));
+    }
+
+    @Test
+    void largeJobShouldNotBeStarvedBySmallerJobs() {
+        BuildJob firstJob = aJob("first", 10, 400);
+        BuildJob largeJob = aJob("large", 5, 1000);
+        BuildJob smallJob1 = aJob("small1", 1, 400);
+        BuildJob smallJob2 = aJob("small2", 1, 400);
+        // without ordinal barriers all jobs are ready at once
+        Arrays.asList(firstJob, largeJob, smallJob1, smallJob2).forEach(job -> job.setDependsOn(""));
+
+        List<BuildJob> executionOrder = Collections.synchronizedList(new ArrayList<>());
+
+        JobExecutor jobExecutor = new JobExecutor(Arrays.asList(smallJob1, smallJob2, largeJob, firstJob), 3);
+        jobExecutor.setMemoryBudget(1000);
+        jobExecutor.forEach(job -> {
+            executionOrder.add(job);
+            Thread.sleep(50);
+        });
+
+        assertThat(executionOrder.subList(0, 2)).containsExactly(firstJob, largeJob);
+    }
+
+    @Test
+    void executorsSharingSlotPoolShouldRespectItsSize() throws Exception {
+        SharedSlotPools.Pool pool = new SharedSlotPools.Pool(3);
+        AtomicInteger runningJobs = new AtomicInteger();
+        AtomicInteger maxRunningJobs = new AtomicInteger();
+        Set<Integer> runningWorkers = Collections.synchronizedSet(new HashSet<>());
+        List<Integer> sharedWorkers = Collections.synchronizedList(new ArrayList<>());
+
+        List<Thread> executions = new ArrayList<>();
+        List<BuildJob> allJobs = Collections.synchronizedList(new ArrayList<>());
+        for (int executor = 0; executor < 3; executor++) {
+            List<BuildJob> jobs = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                jobs.add(aJob("module" + executor + "/job" + i, 0));
+            }
+            allJobs.addAll(jobs);
+            JobExecutor jobExecutor = new JobExecutor(jobs, 2);
+            jobExecutor.setSlotPool(pool);
+            executions.add(new Thread(() -> jobExecutor.forEach(job -> {
+                maxRunningJobs.accumulateAndGet(runningJobs.incrementAndGet(), Math::max);
+                if (!runningWorkers.add(job.getWorker())) {
+                    sharedWorkers.add(job.getWorker());
+                }
+                Thread.sleep(20);
+                runningWorkers.remove(job.getWorker());
+                runningJobs.decrementAndGet();
+                job.setResult(BuildJob.Result.SUCCESS);
+            })));
+        }
+        for (Thread execution : executions) {
+            execution.start();
+        }
+        for (Thread execution : executions) {
+            execution.join(TimeUnit.SECONDS.toMillis(30));
+        }
+
+        assertThat(maxRunningJobs.get()).isLessThanOrEqualTo(3);
+        assertThat(sharedWorkers).isEmpty();
+        assertThat(allJobs)
+                .hasSize(12)
+                .allSatisfy(job -> assertThat(job.getWorker()).isBetween(0, 2))
+                .allSatisfy(job -> assertThat(job.getResult()).isEqualTo(BuildJob.Result.SUCCESS));
+    }
+
+    @Test
+    void jobsShouldWaitForSlotsTakenByOtherExecutors() {
+        SharedSlotPools.Pool pool = new SharedSlotPools.Pool(2);
+        BuildJob otherJob = aJob("other", 0);
+        assertThat(pool.tryAcquire(otherJob, 2)).isTrue();
+
+        BuildJob job = aJob("job", 0);
+        new Thread(() -> {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    pool.release(otherJob);
+                })
+                .start();
+
+        JobExecutor jobExecutor = new JobExecutor(Collections.singletonList(job), 2);
+        jobExecutor.setSlotPool(pool);
+        jobExecutor.forEach(j -> j.setResult(BuildJob.Result.SUCCESS));
+
+        assertThat(job.getResult()).isEqualTo(BuildJob.Result.SUCCESS);
+        assertThat(pool.tryAcquire(otherJob, 2)).isTrue();
+    }
+
+    @Test
+    void jobsOverTimeBudgetShouldBeSkippedExceptMandatoryJobs() {
+        BuildJobHistory history = new BuildJobHistory();
+        history.setDefaultDuration(1f);
+        history.addResult("slow", true);
+
+        BuildJob skippedJob = aJob("skipped", 0);
+        BuildJob neededJob = aJob("needed", 0);
+        BuildJob slowJob = aJob("slow", 0);
+        BuildJob mandatoryJob = aJob("mandatory", 0);
+        mandatoryJob.setMandatory(true);
+        mandatoryJob.setDependsOn("needed");
+
+        List<BuildJob> executionOrder = Collections.synchronizedList(new ArrayList<>());
+        List<BuildJob> unscheduledJobs = Collections.synchronizedList(new ArrayList<>());
+
+        JobExecutor jobExecutor = new JobExecutor(Arrays.asList(skippedJob, neededJob, slowJob, mandatoryJob), 1);
+        jobExecutor.setHistory(history);
+        jobExecutor.setTimeBudget(100);
+        jobExecutor.forEach(
+                job -> {
+                    executionOrder.add(job);
+                    if (job == slowJob) {
+                        Thread.sleep(200);
+                    }
+                    job.setResult(BuildJob.Result.SUCCESS);
+                },
+                unscheduledJobs::add);
+
+        assertThat(executionOrder).containsExactly(slowJob, neededJob, mandatoryJob);
+        assertThat(unscheduledJobs).containsExactly(skippedJob);
+        assertThat(skippedJob.getResult()).isEqualTo(BuildJob.Result.SKIPPED);
+        assertThat(skippedJob.getFailureMessage()).isEqualTo("Skipped due to time budget");
+    }
+
+    @Test
+    void stragglerShouldBeExecutedTwiceAndFirstSuccessTaken() {
+        BuildJobHistory history = new BuildJobHistory();
+        history.addDuration("straggler", 0.1f);
+
+        BuildJob straggler = aJob("straggler", 0);
+        List<BuildJob> reportedJobs = Collections.synchronizedList(new ArrayList<>());
+
+        JobExecutor jobExecutor = new JobExecutor(Collections.singletonList(straggler), 2);
+        jobExecutor.setHistory(history);
+        jobExecutor.setSpeculativeExecution(1.5f, reportedJobs::add);
+        jobExecutor.forEach(job -> {
+            if (job.isSpeculative()) {
+                job.setTime(0.1f);
+                job.setResult(BuildJob.Result.SUCCESS);
+            } else {
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                    job.setResult(BuildJob.Result.SUCCESS);
+                } catch (InterruptedException e) {
+                    job.setTime(2f);
+                    job.setResult(BuildJob.Result.SKIPPED);
+                    job.setFailureMessage(job.getCancellation());
+                }
+            }
+        });
+
+        assertThat(reportedJobs).containsExactly(straggler);
+        assertThat(straggler.getResult()).isEqualTo(BuildJob.Result.SUCCESS);
+        assertThat(straggler.getTime()).isEqualTo(0.1f);
+        assertThat(straggler.getFailureMessage()).isNull();
+        assertThat(straggler.getSupersededResult()).isEqualTo(BuildJob.Result.SKIPPED);
+        assertThat(straggler.getSupersededTime()).isEqualTo(2f);
+    }
+
+    @Test
+    void speculativeExecutionShouldTakeOwnSlotsAndWorkerFromSlotPool() {
+        SharedSlotPools.Pool pool = new SharedSlotPools.Pool(3);
+        BuildJobHistory history = new BuildJobHistory();
+        history.addDuration("straggler", 0.1f);
+
+        BuildJob straggler = aJob("straggler", 0);
+        Map<Boolean, Integer> workers = new ConcurrentHashMap<>();
+
+        JobExecutor jobExecutor = new JobExecutor(Collections.singletonList(straggler), 2);
+        jobExecutor.setHistory(history);
+        jobExecutor.setSlotPool(pool);
+        jobExecutor.setSpeculativeExecution(1.5f, job -> {});
+        jobExecutor.forEach(job -> {
+            workers.put(job.isSpeculative(), job.getWorker());
+            if (job.isSpeculative()) {
+                job.setResult(BuildJob.Result.SUCCESS);
+            } else {
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                    job.setResult(BuildJob.Result.SUCCESS);
+                } catch (InterruptedException e) {
+                    job.setResult(BuildJob.Result.SKIPPED);
+                }
+            }
+        });
+
+        assertThat(workers).containsOnlyKeys(false, true);
+        assertThat(workers.get(true)).isNotEqualTo(workers.get(false)).isBetween(0, 2);
+        assertThat(straggler.getResult()).isEqualTo(BuildJob.Result.SUCCESS);
+        // all slots are back in the pool
+        assertThat(pool.tryAcquire(aJob("other", 0), 3)).isTrue();
+    }
+
+    @Test
+    void failedSpeculativeExecutionShouldNotStopOriginalJob() {
+        BuildJobHistory history = new BuildJobHistory();
+        history.addDuration("straggler", 0.1f);
+
+        BuildJob straggler = aJob("straggler", 0);
+        CountDownLatch speculativeExecutionFinished = new CountDownLatch(1);
+
+        JobExecutor jobExecutor = new JobExecutor(Collections.singletonList(straggler), 2);
+        jobExecutor.setHistory(history);
+        jobExecutor.setSpeculativeExecution(1.5f, job -> {});
+        jobExecutor.forEach(job -> {
+            if (job.isSpeculative()) {
+                job.setResult(BuildJob.Result.FAILURE_BUILD);
+                speculativeExecutionFinished.countDown();
+            } else {
+                assertThat(speculativeExecutionFinished.await(10, TimeUnit.SECONDS))
+                        .isTrue();
+                Thread.sleep(100);
+                job.setResult(BuildJob.Result.SUCCESS);
+            }
+        });
+
+        assertThat(straggler.getResult()).isEqualTo(BuildJob.Result.SUCCESS);
+        assertThat(straggler.getSupersededResult()).isEqualTo(BuildJob.Result.FAILURE_BUILD);
+    }
+
+    @Test
+    void unknownDependenciesShouldBeReported() {
+        BuildJob job1 = aJob("job1/pom.xml", 0);
+        BuildJob job2 = aJob("group/job2/pom.xml", 0);
+        job2.setDependsOn("job1, group/jbo3");
+        BuildJob job3 = aJob("group/job3/pom.xml", 0);
+        job3.setDependsOn("../job1,group/job2/");
+
+        Map<BuildJob, List<String>> unknownDependencies =
+                JobExecutor.getUnknownDependencies(Arrays.asList(job1, job2, job3));
+
+        assertThat(unknownDependencies).containsOnlyKeys(job2, job3);
+        assertThat(unknownDependencies.get(job2)).containsExactly("group/jbo3");
+        assertThat(unknownDependencies.get(job3)).containsExactly("../job1");
+    }
+
+    @Test
+    void normalizeProjectPath() {
+        assertThat(JobExecutor.normalizeProjectPath("it/pom.xml")).isEqualTo("it");
+        assertThat(JobExecutor.normalizeProjectPath("it\\pom.xml")).isEqualTo("it");
+        assertThat(JobExecutor.normalizeProjectPath("group/it/")).isEqualTo("group/it");
+        assertThat(JobExecutor.normalizeProjectPath("pom.xml")).isEqualTo(".");
+    }
+
     private BuildJob aJob(String name, int ordinal) {
         BuildJob buildJob = new BuildJob(name);
         buildJob.setOrdinal(ordinal);
         return buildJob;
     }
+
+    private BuildJob aJob(String name, int ordinal, int memoryBudget) {
+        BuildJob buildJob = aJob(name, ordinal);
+        buildJob.setMemoryBudget(memoryBudget);
+        return buildJob;
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for MavenLauncher.
+ */
+class MavenLauncherTest {
+
+    @TempDir
+    private File tempDir;
+
+    @Test
+    void getCommandShouldApplyJvmConfigAndMavenOpts() throws Exception {
+        File mavenHome = new File(tempDir, "maven");
+        File classworldsJar = new File(mavenHome, "boot/plexus-classworlds-2.9.0.jar");
+        File project = new File(tempDir, "project");
+        File jvmConfig = new File(project, ".mvn/jvm.config");
+        Files.createDirectories(jvmConfig.getParentFile().toPath());
+        Files.write(jvmConfig.toPath(), "-Xss4m\r\n-Dfoo=bar\n".getBytes(StandardCharsets.UTF_8));
+        File javaHome = new File(tempDir, "jdk");
+
+        MavenLauncher launcher = new MavenLauncher(mavenHome, classworldsJar, false);
+
+        assertThat(launcher.getCommand(javaHome, project, "-Xmx1g  -ea", null, "-V", new String[] {"-B", "verify"}))
+                .containsExactly(
+                        new File(javaHome, "bin/java").getPath(),
+                        "-Xss4m",
+                        "-Dfoo=bar",
+                        "-Xmx1g",
+                        "-ea",
+                        "-classpath",
+                        classworldsJar.getAbsolutePath(),
+                        "-Dclassworlds.conf=" + new File(mavenHome, "bin/m2.conf").getAbsolutePath(),
+                        "-Dmaven.home=" + mavenHome.getAbsolutePath(),
+                        "-Dlibrary.jansi.path=" + new File(mavenHome, "lib/jansi-native").getAbsolutePath(),
+                        "-Dmaven.multiModuleProjectDirectory=" + project.getAbsolutePath(),
+                        MavenLauncher.LAUNCHER,
+                        "-V",
+                        "-B",
+                        "verify");
+    }
+
+    @Test
+    void getJvmConfigOptionsShouldLeaveOutComments() throws Exception {
+        File jvmConfig = new File(tempDir, ".mvn/jvm.config");
+        Files.createDirectories(jvmConfig.getParentFile().toPath());
+        String content = "# memory\r\n-Xmx1g -Xss4m # per thread\n\n  # properties\n-Dfoo=bar\n";
+        Files.write(jvmConfig.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(MavenLauncher.getJvmConfigOptions(tempDir)).containsExactly("-Xmx1g", "-Xss4m", "-Dfoo=bar");
+        assertThat(MavenLauncher.getJvmConfigOptions(new File(tempDir, "other"))).isEmpty();
+    }
+
+    @Test
+    void getProjectBaseDirectoryShouldStartAtFileArgument() throws Exception {
+        File project = new File(tempDir, "project");
+        File module = new File(project, "module");
+        Files.createDirectories(module.toPath());
+        Files.createDirectories(new File(module, ".mvn").toPath());
+
+        assertThat(MavenLauncher.getProjectBaseDirectory(project, new String[] {"-B", "verify"}))
+                .isEqualTo(project);
+        assertThat(MavenLauncher.getProjectBaseDirectory(project, new String[] {"-f", "module/pom.xml", "verify"}))
+                .isEqualTo(module);
+        assertThat(MavenLauncher.getProjectBaseDirectory(project, new String[] {"--file", module.getPath()}))
+                .isEqualTo(module);
+    }
+
+    @Test
+    void splitShouldSplitAtWhiteSpace() {
+        assertThat(MavenLauncher.split(" -Xmx1g\n-Dfoo=bar\r\n\t-ea ")).containsExactly("-Xmx1g", "-Dfoo=bar", "-ea");
+        assertThat(MavenLauncher.split("  ")).isEmpty();
+        assertThat(MavenLauncher.split(null)).isEmpty();
+    }
+}
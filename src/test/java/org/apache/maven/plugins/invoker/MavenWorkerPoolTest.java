@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+
+import org.apache.maven.shared.invoker.DefaultInvocationRequest;
+import org.apache.maven.shared.invoker.InvocationRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for MavenWorkerPool.
+ */
+class MavenWorkerPoolTest {
+
+    @TempDir
+    private File tempDir;
+
+    @Test
+    void getForkReason() {
+        MavenWorkerPool pool = new MavenWorkerPool(tempDir, new File(tempDir, "workers"), 10, 0, 2);
+
+        InvocationRequest request = new DefaultInvocationRequest();
+        request.setBaseDirectory(tempDir);
+        request.setMavenHome(tempDir);
+        request.setJavaHome(new File(tempDir, "jdk"));
+        request.setMavenOpts("-Xmx512m");
+        request.addShellEnvironment("FOO", "bar");
+        assertThat(pool.getForkReason(request)).isNull();
+
+        request.setTimeoutInSeconds(10);
+        assertThat(pool.getForkReason(request)).isEqualTo("timeout");
+        request.setTimeoutInSeconds(0);
+
+        request.setMavenExecutable(new File(tempDir, "mvnw"));
+        assertThat(pool.getForkReason(request)).startsWith("Maven executable");
+        request.setMavenExecutable(null);
+
+        request.setMavenHome(new File(tempDir, "other"));
+        assertThat(pool.getForkReason(request)).startsWith("Maven home");
+    }
+
+    @Test
+    void argumentsShouldBeReadByWorker() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        String longArgument = new String(new char[70000]).replace('\0', 'x');
+        MavenWorker.writeArguments(new DataOutputStream(bytes), new String[] {"-B", longArgument, "ä"}, tempDir);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThat(in.readInt()).isEqualTo(3);
+        assertThat(MavenWorker.readString(in)).isEqualTo("-B");
+        assertThat(MavenWorker.readString(in)).isEqualTo(longArgument);
+        assertThat(MavenWorker.readString(in)).isEqualTo("ä");
+        assertThat(MavenWorker.readString(in)).isEqualTo(tempDir.getAbsolutePath());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for MaxHeapSizing.
+ */
+class MaxHeapSizingTest {
+
+    @Test
+    void computeShouldDivideMemoryLeftAfterReserve() {
+        assertThat(MaxHeapSizing.compute(16384, 2048, 4)).isEqualTo(2688);
+        assertThat(MaxHeapSizing.compute(16384, 2048, 1)).isEqualTo(10752);
+        assertThat(MaxHeapSizing.compute(16384, 0, 0)).isEqualTo(12288);
+    }
+
+    @Test
+    void computeShouldNotGoBelowMinimum() {
+        assertThat(MaxHeapSizing.compute(4096, 2048, 16)).isEqualTo(MaxHeapSizing.MIN_HEAP);
+        assertThat(MaxHeapSizing.compute(1024, 2048, 2)).isEqualTo(MaxHeapSizing.MIN_HEAP);
+    }
+
+    @Test
+    void parseTotalMemory() {
+        assertThat(MaxHeapSizing.parseTotalMemory(Arrays.asList(
+                        "MemTotal:       16314336 kB", "MemFree:         1097264 kB", "MemAvailable:    8811196 kB")))
+                .isEqualTo(15931);
+        assertThat(MaxHeapSizing.parseTotalMemory(Collections.singletonList("MemFree: 1097264 kB")))
+                .isNegative();
+    }
+
+    @Test
+    void parseCgroupLimit() {
+        assertThat(MaxHeapSizing.parseCgroupLimit("4294967296\n")).isEqualTo(4096);
+        assertThat(MaxHeapSizing.parseCgroupLimit("max\n")).isNegative();
+    }
+
+    @Test
+    void totalMemoryShouldBeAvailable() {
+        assertThat(MaxHeapSizing.getTotalMemory()).isPositive();
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugins.invoker.model.BuildJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for ReactorBatch.
+ */
+class ReactorBatchTest {
+
+    private static final List<String> PRELUDE = Arrays.asList(
+            "[INFO] Scanning for projects...",
+            "[INFO] ------------------------------------------------------------------------",
+            "[INFO] Reactor Build Order:",
+            "[INFO] ",
+            "[INFO] it                                                                 [pom]",
+            "[INFO] it                                                                 [pom]",
+            "[INFO] batch-1                                                            [pom]",
+            "[INFO] ");
+
+    private static final List<String> FIRST = Arrays.asList(
+            "[INFO] ----------------------------< test:first >-----------------------------",
+            "[INFO] Building it 1                                                      [1/3]",
+            "[INFO]   from ../../its/first/pom.xml",
+            "[INFO] --------------------------------[ pom ]---------------------------------",
+            "[INFO] first output",
+            "[INFO] ");
+
+    private static final List<String> SECOND = Arrays.asList(
+            "[INFO] ----------------------------< test:second >----------------------------",
+            "[INFO] Building it 1                                                      [2/3]",
+            "[INFO]   from ../../its/second/pom.xml",
+            "[INFO] --------------------------------[ pom ]---------------------------------",
+            "[ERROR] second failed",
+            "[INFO] ");
+
+    private static final List<String> AGGREGATOR = Arrays.asList(
+            "[INFO] -----------------< org.apache.maven.plugins.invoker.batch:batch-1 >-----------------",
+            "[INFO] Building batch-1 1                                                 [3/3]",
+            "[INFO] --------------------------------[ pom ]---------------------------------",
+            "[INFO] ------------------------------------------------------------------------");
+
+    private static final List<String> SUMMARY = Arrays.asList(
+            "[INFO] Reactor Summary for batch-1 1:",
+            "[INFO] ",
+            "[INFO] it ................................................. SUCCESS [  0.004 s]",
+            "[INFO] it ................................................. FAILURE [  0.001 s]",
+            "[INFO] batch-1 ............................................ SUCCESS [  0.000 s]",
+            "[INFO] ------------------------------------------------------------------------",
+            "[INFO] BUILD FAILURE",
+            "[INFO] ------------------------------------------------------------------------");
+
+    @TempDir
+    private File tempDir;
+
+    private ReactorBatch reactorBatch;
+
+    private BuildJob first;
+
+    private BuildJob second;
+
+    @BeforeEach
+    void setUp() {
+        reactorBatch = new ReactorBatch(new File(tempDir, "target/invoker-batches/batch-1"));
+        first = new BuildJob("first/pom.xml");
+        second = new BuildJob("second/pom.xml");
+        reactorBatch.add(first, "test:first", new File(tempDir, "its/first/pom.xml"));
+        reactorBatch.add(second, "test:second", new File(tempDir, "its/second/interpolated-pom.xml"));
+    }
+
+    @Test
+    void addShouldRejectSameCoordinates() {
+        assertThat(reactorBatch.add(new BuildJob("third/pom.xml"), "test:first", new File(tempDir, "its/third")))
+                .isFalse();
+        assertThat(reactorBatch.size()).isEqualTo(2);
+        assertThat(reactorBatch.getBuildJobs()).containsExactly(first, second);
+        assertThat(reactorBatch.getBasedir(second)).isEqualTo(new File(tempDir, "its/second"));
+    }
+
+    @Test
+    void writePomShouldListModules() throws Exception {
+        reactorBatch.writePom();
+
+        String pom = new String(Files.readAllBytes(reactorBatch.getPomFile().toPath()), StandardCharsets.UTF_8);
+        assertThat(pom)
+                .contains("<artifactId>batch-1</artifactId>")
+                .contains("<packaging>pom</packaging>")
+                .contains("<module>../../../its/first</module>")
+                .contains("<module>../../../its/second/interpolated-pom.xml</module>");
+        assertThat(new File(reactorBatch.getDirectory(), ".mvn")).isDirectory();
+    }
+
+    @Test
+    void outputShouldBeSplitIntoSections() {
+        consume(PRELUDE, FIRST, SECOND, AGGREGATOR, SUMMARY);
+
+        assertThat(reactorBatch.getBuildLog(first))
+                .containsSequence(PRELUDE)
+                .containsSequence(FIRST)
+                .containsSequence(SUMMARY)
+                .doesNotContain(SECOND.get(0), "[ERROR] second failed", AGGREGATOR.get(0));
+        assertThat(reactorBatch.getBuildLog(second))
+                .containsSequence(SECOND)
+                .doesNotContain("[INFO] first output");
+    }
+
+    @Test
+    void resultsShouldFollowReactorSummary() {
+        consume(PRELUDE, FIRST, SECOND, AGGREGATOR, SUMMARY);
+
+        assertThat(reactorBatch.isSuccessful(first, 1)).isTrue();
+        assertThat(reactorBatch.isSuccessful(second, 1)).isFalse();
+        assertThat(reactorBatch.isSuccessful(second, 0)).isTrue();
+    }
+
+    @Test
+    void longNamesInReactorSummaryShouldBeMatched() {
+        List<String> summary = Arrays.asList(
+                "[INFO] Reactor Summary for batch-1 1:",
+                "[INFO] ",
+                "[INFO] it ................................................. SUCCESS [  0.004 s]",
+                "[INFO] it ................................................. FAILURE [  0.001 s]",
+                "[INFO] batch-1 with a name longer than the padded width of the reactor summary SUCCESS [  0.000 s]",
+                "[INFO] ------------------------------------------------------------------------");
+        consume(PRELUDE, FIRST, SECOND, AGGREGATOR, summary);
+
+        assertThat(reactorBatch.isSuccessful(first, 1)).isTrue();
+        assertThat(reactorBatch.isSuccessful(second, 1)).isFalse();
+    }
+
+    @Test
+    void modulesMissingInReactorSummaryShouldNotSucceed() {
+        consume(PRELUDE, FIRST, SECOND, AGGREGATOR, SUMMARY.subList(0, 3), SUMMARY.subList(4, SUMMARY.size()));
+
+        assertThat(reactorBatch.isSuccessful(first, 1)).isFalse();
+        assertThat(reactorBatch.isSuccessful(second, 1)).isFalse();
+    }
+
+    @Test
+    void otherProjectsInReactorSummaryShouldNotSucceed() {
+        List<String> summary = new ArrayList<>(SUMMARY);
+        summary.set(2, "[INFO] other .............................................. SUCCESS [  0.004 s]");
+        consume(PRELUDE, FIRST, SECOND, AGGREGATOR, summary);
+
+        assertThat(reactorBatch.isSuccessful(first, 1)).isFalse();
+    }
+
+    @Test
+    void modulesWithoutHeaderShouldNotSucceed() {
+        consume(PRELUDE, FIRST, AGGREGATOR, SUMMARY);
+
+        assertThat(reactorBatch.isSuccessful(first, 1)).isFalse();
+        assertThat(reactorBatch.isSuccessful(second, 1)).isFalse();
+    }
+
+    @Test
+    void modulesNotBuiltShouldNotSucceed() {
+        // e.g. an invalid POM fails the batch before any module is built
+        consume(Arrays.asList("[INFO] Scanning for projects...", "[ERROR] The build could not read 1 project"));
+
+        assertThat(reactorBatch.isSuccessful(first, 1)).isFalse();
+        assertThat(reactorBatch.isSuccessful(second, 1)).isFalse();
+        assertThat(reactorBatch.getBuildLog(first)).contains("[ERROR] The build could not read 1 project");
+    }
+
+    @Test
+    void writeBuildLogShouldWriteCompleteOutput() throws Exception {
+        Files.createDirectories(reactorBatch.getDirectory().toPath());
+        consume(PRELUDE, FIRST, SECOND, AGGREGATOR, SUMMARY);
+        reactorBatch.writeBuildLog();
+
+        assertThat(Files.readAllLines(
+                        new File(reactorBatch.getDirectory(), "build.log").toPath(), StandardCharsets.UTF_8))
+                .hasSize(PRELUDE.size() + FIRST.size() + SECOND.size() + AGGREGATOR.size() + SUMMARY.size());
+    }
+
+    @Test
+    void timeShouldBeSharedByBuildJobs() {
+        reactorBatch.setTime(3000);
+
+        assertThat(reactorBatch.getTimePerBuildJob()).isEqualTo(1500);
+    }
+
+    @SafeVarargs
+    private final void consume(List<String>... sections) {
+        for (List<String> section : sections) {
+            section.forEach(reactorBatch::consumeLine);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.invoker;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugins.invoker.model.BuildJob;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for TimeBudget.
+ */
+class TimeBudgetTest {
+
+    @Test
+    void parse() {
+        assertThat(TimeBudget.parse("600")).isEqualTo(600);
+        assertThat(TimeBudget.parse("90s")).isEqualTo(90);
+        assertThat(TimeBudget.parse("10m")).isEqualTo(600);
+        assertThat(TimeBudget.parse(" 1h30M ")).isEqualTo(5400);
+
+        assertThatThrownBy(() -> TimeBudget.parse("")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TimeBudget.parse("10 m")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TimeBudget.parse("ten")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void jobsFindingMostFailuresPerSecondShouldBeSelected() {
+        BuildJobHistory history = new BuildJobHistory();
+        history.addDuration("long", 300);
+        history.addDuration("flaky", 100);
+        history.addResult("flaky", true);
+        history.addResult("flaky", false);
+        history.addDuration("short1", 50);
+        history.addDuration("short2", 60);
+        history.addDuration("stable", 100);
+
+        List<BuildJob> buildJobs =
+                Arrays.asList(aJob("long"), aJob("flaky"), aJob("short1"), aJob("short2"), aJob("stable"));
+
+        // 2 threads for 100 seconds
+        List<BuildJob> selectedJobs = new TimeBudget(100, 2, history).select(buildJobs);
+
+        assertThat(selectedJobs).extracting(BuildJob::getProject).containsExactly("flaky", "short1");
+    }
+
+    @Test
+    void mandatoryJobsAndTheirDependenciesShouldAlwaysBeSelected() {
+        BuildJobHistory history = new BuildJobHistory();
+        history.addDuration("mandatory", 300);
+        history.addDuration("dependency", 300);
+        history.addDuration("setup", 300);
+        history.addDuration("short", 10);
+
+        BuildJob mandatory = aJob("mandatory");
+        mandatory.setMandatory(true);
+        mandatory.setDependsOn("dependency");
+        BuildJob setup = aJob("setup");
+        setup.setType(BuildJob.Type.SETUP);
+
+        List<BuildJob> buildJobs = Arrays.asList(aJob("short"), mandatory, aJob("dependency"), setup);
+
+        List<BuildJob> selectedJobs = new TimeBudget(60, 1, history).select(buildJobs);
+
+        assertThat(selectedJobs).extracting(BuildJob::getProject).containsExactly("mandatory", "dependency", "setup");
+    }
+
+    @Test
+    void dependenciesShouldBeSelectedWithTheJob() {
+        BuildJobHistory history = new BuildJobHistory();
+        history.addDuration("dependent", 10);
+        history.addResult("dependent", true);
+        history.addDuration("dependency", 40);
+        history.addDuration("other", 45);
+
+        BuildJob dependent = aJob("dependent");
+        dependent.setDependsOn("dependency");
+
+        List<BuildJob> buildJobs = Arrays.asList(aJob("other"), dependent, aJob("dependency"));
+
+        List<BuildJob> selectedJobs = new TimeBudget(60, 1, history).select(buildJobs);
+
+        assertThat(selectedJobs).extracting(BuildJob::getProject).containsExactly("dependent", "dependency");
+    }
+
+    private static BuildJob aJob(String project) {
+        return new BuildJob(project);
+    }
+}